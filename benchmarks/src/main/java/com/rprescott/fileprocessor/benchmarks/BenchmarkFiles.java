@@ -0,0 +1,108 @@
+package com.rprescott.fileprocessor.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.rprescott.fileprocessor.FileProcessor;
+import com.rprescott.fileprocessor.LineSplitter;
+import com.rprescott.fileprocessor.validation.FileConfiguration;
+import com.rprescott.fileprocessor.validation.FileConfigurationLoader;
+import com.rprescott.fileprocessor.validation.FileField;
+import com.rprescott.fileprocessor.validation.ValidationRule;
+import com.rprescott.fileprocessor.validation.XMLPrinter;
+import com.rprescott.fileprocessor.validation.rules.ValidationRules;
+
+/**
+ * Helpers shared by the benchmarks for generating input and wiring up a {@link FileProcessor} without a Spring context.
+ * 
+ * @author rprescott
+ */
+public final class BenchmarkFiles {
+
+	private BenchmarkFiles() {
+	}
+
+	public static FileProcessor newFileProcessor(ApplicationEventPublisher eventPublisher) throws Exception {
+		LineSplitter lineSplitter = new LineSplitter();
+		lineSplitter.setEventPublisher(eventPublisher);
+		ValidationRules validationRules = new ValidationRules();
+		validationRules.afterPropertiesSet();
+		FileConfigurationLoader fileConfigurationLoader = new FileConfigurationLoader();
+		fileConfigurationLoader.setXmlPrinter(new XMLPrinter());
+		FileProcessor fileProcessor = new FileProcessor();
+		fileProcessor.setEventPublisher(eventPublisher);
+		fileProcessor.setLineSplitter(lineSplitter);
+		fileProcessor.setFileConfigurationLoader(fileConfigurationLoader);
+		fileProcessor.setValidationRules(validationRules);
+		return fileProcessor;
+	}
+
+	/**
+	 * Builds a single line of the given number of fields, each of exactly the given width.
+	 */
+	public static String line(int fieldCount, int fieldWidth, char delimiter) {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < fieldCount; i++) {
+			if (i > 0) {
+				line.append(delimiter);
+			}
+			for (int j = 0; j < fieldWidth; j++) {
+				line.append((char) ('a' + (i + j) % 26));
+			}
+		}
+		return line.toString();
+	}
+
+	/**
+	 * A configuration with the same five fields and rules as the comma separated test configuration: an exact length
+	 * required field, a date, a max length field, a numeric field and a field without rules.
+	 */
+	public static FileConfiguration fiveFieldConfiguration() {
+		List<FileField> fields = new ArrayList<>();
+		fields.add(field(1, "Field1", new ValidationRule(1, null, true), new ValidationRule(2, "5", true)));
+		fields.add(field(2, "Field2", new ValidationRule(4, "yyyy-MM-dd", true)));
+		fields.add(field(3, "Field3", new ValidationRule(3, "5", true)));
+		fields.add(field(4, "Field4", new ValidationRule(5, null, true)));
+		fields.add(field(5, "Field5"));
+		FileConfiguration configuration = new FileConfiguration();
+		configuration.setDelimiter(",");
+		configuration.setContainsHeader(false);
+		configuration.setFileFields(fields);
+		return configuration;
+	}
+
+	public static FileField field(int position, String name, ValidationRule... rules) {
+		FileField field = new FileField();
+		field.setPosition(position);
+		field.setName(name);
+		for (ValidationRule rule : rules) {
+			field.addValidationRule(rule);
+		}
+		return field;
+	}
+
+	/**
+	 * Writes a file of valid records matching {@link #fiveFieldConfiguration()} using the given line ending.
+	 */
+	public static File generateFiveFieldFile(int records, String lineEnding) throws IOException {
+		File file = File.createTempFile("file-processor-benchmark", ".txt");
+		file.deleteOnExit();
+		Random random = new Random(records);
+		try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.US_ASCII)) {
+			for (int i = 0; i < records; i++) {
+				writer.write(String.format("%05d,2018-%02d-%02d,%d,%d,comment %d", random.nextInt(100000), 1 + random.nextInt(12),
+					1 + random.nextInt(28), random.nextInt(99999), random.nextInt(Integer.MAX_VALUE), i));
+				writer.write(lineEnding);
+			}
+		}
+		return file;
+	}
+}
@@ -0,0 +1,105 @@
+package com.rprescott.fileprocessor.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rprescott.fileprocessor.ByteLoopScanner;
+import com.rprescott.fileprocessor.ByteScanner;
+import com.rprescott.fileprocessor.SwarByteScanner;
+
+/**
+ * Compares the byte at a time {@link ByteLoopScanner} with the word at a time {@link SwarByteScanner} over a 1MB block of
+ * lines, on heap and direct buffers: finding every LF the way the reader does, counting LFs the way the parallel reader does,
+ * and finding the delimiters of each line both with a separate search per field and all at once the way the splitter does.
+ *
+ * @author rprescott
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteScannerBenchmark {
+
+	private static final byte LF = '\n';
+	private static final byte DELIMITER = ',';
+
+	@Param({ "loop", "swar" })
+	private String scannerType;
+
+	@Param({ "heap", "direct" })
+	private String bufferType;
+
+	@Param({ "4", "32" })
+	private int fieldWidth;
+
+	private ByteScanner scanner;
+	private ByteBuffer block;
+	private int[] delimiters = new int[10];
+
+	@Setup
+	public void setup() {
+		scanner = "swar".equals(scannerType) ? new SwarByteScanner() : new ByteLoopScanner();
+		byte[] line = (BenchmarkFiles.line(10, fieldWidth, (char) DELIMITER) + "\n").getBytes(StandardCharsets.US_ASCII);
+		block = "direct".equals(bufferType) ? ByteBuffer.allocateDirect(1048576) : ByteBuffer.allocate(1048576);
+		while (block.remaining() >= line.length) {
+			block.put(line);
+		}
+		block.flip();
+	}
+
+	@Benchmark
+	public int findLines() {
+		int lines = 0;
+		int limit = block.limit();
+		for (int i = scanner.indexOf(block, 0, limit, LF); i != -1; i = scanner.indexOf(block, i + 1, limit, LF)) {
+			lines++;
+		}
+		return lines;
+	}
+
+	@Benchmark
+	public int countLines() {
+		return scanner.count(block, 0, block.limit(), LF);
+	}
+
+	@Benchmark
+	public int findLinesAndFields() {
+		int fields = 0;
+		int limit = block.limit();
+		int lineStart = 0;
+		for (int i = scanner.indexOf(block, 0, limit, LF); i != -1; i = scanner.indexOf(block, i + 1, limit, LF)) {
+			for (int j = scanner.indexOf(block, lineStart, i, DELIMITER); j != -1; j = scanner.indexOf(block, j + 1, i, DELIMITER)) {
+				fields++;
+			}
+			lineStart = i + 1;
+		}
+		return fields;
+	}
+
+	@Benchmark
+	public int findLinesAndAllFields() {
+		int fields = 0;
+		int limit = block.limit();
+		int lineStart = 0;
+		for (int i = scanner.indexOf(block, 0, limit, LF); i != -1; i = scanner.indexOf(block, i + 1, limit, LF)) {
+			fields += scanner.indexesOf(block, lineStart, i, DELIMITER, delimiters);
+			lineStart = i + 1;
+		}
+		return fields;
+	}
+}
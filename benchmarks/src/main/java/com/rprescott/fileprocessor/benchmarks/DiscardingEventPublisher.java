@@ -0,0 +1,30 @@
+package com.rprescott.fileprocessor.benchmarks;
+
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Hands every event to a {@link Blackhole} so that publishing costs as little as possible without the JIT being able to
+ * eliminate the work that produced the event.
+ * 
+ * @author rprescott
+ */
+public class DiscardingEventPublisher implements ApplicationEventPublisher {
+
+	private Blackhole blackhole;
+
+	public DiscardingEventPublisher(Blackhole blackhole) {
+		this.blackhole = blackhole;
+	}
+
+	@Override
+	public void publishEvent(ApplicationEvent event) {
+		blackhole.consume(event);
+	}
+
+	@Override
+	public void publishEvent(Object event) {
+		blackhole.consume(event);
+	}
+}
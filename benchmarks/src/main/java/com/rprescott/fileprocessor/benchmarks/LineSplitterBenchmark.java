@@ -0,0 +1,86 @@
+package com.rprescott.fileprocessor.benchmarks;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.rprescott.fileprocessor.ByteRecord;
+import com.rprescott.fileprocessor.LineSplitter;
+
+/**
+ * Measures {@link LineSplitter#splitLine} for lines of varying field counts and widths, for both the decoded
+ * {@link CharBuffer} splitter and the byte level splitter, with every field needed and with only the first three projected.
+ * 
+ * @author rprescott
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineSplitterBenchmark {
+
+	@Param({ "5", "40" })
+	private int fieldCount;
+
+	@Param({ "4", "32" })
+	private int fieldWidth;
+
+	@Param({ "false", "true" })
+	private boolean projected;
+
+	private File inputFile = new File("benchmark.txt");
+	private LineSplitter lineSplitter;
+	private DiscardingEventPublisher eventPublisher;
+	private String line;
+	private ByteBuffer lineBytes;
+	private ByteRecord record;
+
+	@Setup
+	public void setup(Blackhole blackhole) {
+		eventPublisher = new DiscardingEventPublisher(blackhole);
+		lineSplitter = new LineSplitter();
+		lineSplitter.setEventPublisher(eventPublisher);
+		line = BenchmarkFiles.line(fieldCount, fieldWidth, ',');
+		lineBytes = ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII));
+		record = new ByteRecord();
+		if (projected) {
+			boolean[] projection = new boolean[fieldCount];
+			Arrays.fill(projection, 0, 3, true);
+			record.setProjection(projection);
+		}
+	}
+
+	@Benchmark
+	public Object splitCharBuffer() {
+		return lineSplitter.splitLine(inputFile, CharBuffer.wrap(line), ',', fieldCount, 1, true);
+	}
+
+	@Benchmark
+	public boolean splitByteBuffer() {
+		return lineSplitter.splitLine(inputFile, lineBytes, (byte) ',', fieldCount, 1, true, record, eventPublisher);
+	}
+
+	@Benchmark
+	public String[] splitByteBufferAndMaterialize() {
+		lineSplitter.splitLine(inputFile, lineBytes, (byte) ',', fieldCount, 1, true, record, eventPublisher);
+		return record.toArray();
+	}
+}
@@ -0,0 +1,75 @@
+package com.rprescott.fileprocessor.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.rprescott.fileprocessor.FileProcessor;
+import com.rprescott.fileprocessor.validation.FileConfiguration;
+
+/**
+ * Measures {@code FileProcessor.readFile} end to end over a generated five field file, with LF and CRLF line endings,
+ * both with and without validation, and with quoting off and on. The file has no quotes, so with quoting on this measures
+ * the cost of looking for them. Each operation reads the whole file, so divide by {@link #records} for a per record cost.
+ * 
+ * @author rprescott
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadFileBenchmark {
+
+	@Param({ "LF", "CRLF" })
+	private String lineEnding;
+
+	@Param({ "false", "true" })
+	private boolean performValidation;
+
+	@Param({ "false", "true" })
+	private boolean quoted;
+
+	@Param({ "100000" })
+	private int records;
+
+	private File inputFile;
+	private FileConfiguration fileConfiguration;
+	private FileProcessor fileProcessor;
+
+	@Setup(Level.Trial)
+	public void setup(Blackhole blackhole) throws Exception {
+		inputFile = BenchmarkFiles.generateFiveFieldFile(records, "CRLF".equals(lineEnding) ? "\r\n" : "\n");
+		fileConfiguration = BenchmarkFiles.fiveFieldConfiguration();
+		if (quoted) {
+			fileConfiguration.setQuote("\"");
+		}
+		fileProcessor = BenchmarkFiles.newFileProcessor(new DiscardingEventPublisher(blackhole));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		inputFile.delete();
+	}
+
+	@Benchmark
+	public void readFile() throws IOException {
+		fileProcessor.readFile(inputFile, fileConfiguration, performValidation);
+	}
+}
@@ -0,0 +1,104 @@
+package com.rprescott.fileprocessor.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.rprescott.fileprocessor.FileProcessor;
+import com.rprescott.fileprocessor.validation.FileField;
+import com.rprescott.fileprocessor.validation.RecordValidationResult;
+import com.rprescott.fileprocessor.validation.ValidationPlan;
+import com.rprescott.fileprocessor.validation.ValidationRule;
+import com.rprescott.fileprocessor.validation.rules.ValidationRules;
+
+/**
+ * Measures {@code FileProcessor.performValidation} of a single field against each of the built in rules, with both a
+ * value that passes and one that fails the rule.
+ * 
+ * @author rprescott
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+	/** Required, Exact Length, Max Length, Date Format and Numeric. */
+	@Param({ "1", "2", "3", "4", "5" })
+	private int ruleId;
+
+	@Param({ "true", "false" })
+	private boolean validValue;
+
+	private ExposedFileProcessor fileProcessor;
+	private ValidationPlan validationPlan;
+	private String[] record;
+
+	@Setup
+	public void setup(Blackhole blackhole) throws Exception {
+		fileProcessor = new ExposedFileProcessor();
+		ValidationRules validationRules = new ValidationRules();
+		validationRules.afterPropertiesSet();
+		fileProcessor.setValidationRules(validationRules);
+		fileProcessor.setEventPublisher(new DiscardingEventPublisher(blackhole));
+		FileField field = BenchmarkFiles.field(1, "Field1", new ValidationRule(ruleId, metadataFor(ruleId), true));
+		validationPlan = ValidationPlan.compile(Collections.singletonList(field), validationRules);
+		record = new String[] { validValue ? validValueFor(ruleId) : invalidValueFor(ruleId) };
+	}
+
+	@Benchmark
+	public RecordValidationResult performValidation() {
+		return fileProcessor.performValidation(record, 1, validationPlan);
+	}
+
+	private static String metadataFor(int ruleId) {
+		switch (ruleId) {
+			case 2:
+			case 3:
+				return "5";
+			case 4:
+				return "yyyy-MM-dd";
+			default:
+				return null;
+		}
+	}
+
+	private static String validValueFor(int ruleId) {
+		return ruleId == 4 ? "2018-06-08" : "12345";
+	}
+
+	private static String invalidValueFor(int ruleId) {
+		switch (ruleId) {
+			case 1:
+				return "";
+			case 4:
+				return "2018-13-08";
+			default:
+				return "1234567x";
+		}
+	}
+
+	/**
+	 * Gives the benchmark access to the protected validation method.
+	 */
+	private static class ExposedFileProcessor extends FileProcessor {
+		@Override
+		protected RecordValidationResult performValidation(String[] input, long lineNumber, ValidationPlan validationPlan) {
+			return super.performValidation(input, lineNumber, validationPlan);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.rprescott.fileprocessor.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rprescott.fileprocessor.validation.rules.AbstractInputValidationRule;
+import com.rprescott.fileprocessor.validation.rules.ValidationRules;
+
+/**
+ * Measures the reflective construction of each built in rule by {@link ValidationRules#getInstance(Integer, Object, boolean)}.
+ * 
+ * @author rprescott
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationRulesBenchmark {
+
+	@Param({ "1", "2", "3", "4", "5" })
+	private int ruleId;
+
+	private ValidationRules validationRules;
+	private Object metadata;
+
+	@Setup
+	public void setup() throws Exception {
+		validationRules = new ValidationRules();
+		validationRules.afterPropertiesSet();
+		metadata = ruleId == 4 ? "yyyy-MM-dd" : "5";
+	}
+
+	@Benchmark
+	public AbstractInputValidationRule getInstance() {
+		return validationRules.getInstance(ruleId, metadata, true);
+	}
+}
@@ -0,0 +1,32 @@
+package com.rprescott.fileprocessor;
+
+import java.io.File;
+
+/**
+ * A data file to be processed as part of a batch, along with the configuration file describing it.
+ * 
+ * @author rprescott
+ */
+public class BatchFile {
+
+	private File dataFile;
+	private File configurationFile;
+
+	public BatchFile(File dataFile, File configurationFile) {
+		this.dataFile = dataFile;
+		this.configurationFile = configurationFile;
+	}
+
+	public File getDataFile() {
+		return dataFile;
+	}
+
+	public File getConfigurationFile() {
+		return configurationFile;
+	}
+
+	@Override
+	public String toString() {
+		return dataFile + " (" + configurationFile + ")";
+	}
+}
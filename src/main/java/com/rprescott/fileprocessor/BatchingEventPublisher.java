@@ -0,0 +1,156 @@
+package com.rprescott.fileprocessor;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.rprescott.fileprocessor.events.ColumnarBatchEvent;
+import com.rprescott.fileprocessor.events.LineBatchSplitEvent;
+import com.rprescott.fileprocessor.events.LineSplitEvent;
+import com.rprescott.fileprocessor.events.LineValidatedEvent;
+import com.rprescott.fileprocessor.events.ValidatedBatchEvent;
+import com.rprescott.fileprocessor.validation.ValidationPlan;
+
+/**
+ * An {@link ApplicationEventPublisher} that gathers consecutive {@link LineSplitEvent}s into {@link LineBatchSplitEvent}s and
+ * consecutive {@link LineValidatedEvent}s into {@link ValidatedBatchEvent}s before handing them to the real publisher.
+ * 
+ * <br><br>
+ * 
+ * A batch is published once it holds the configured number of records or bytes. Any other event flushes the pending batch
+ * before it is passed through, so listeners still see everything in file order. Callers must {@link #flush()} once the file
+ * has been read. Instances are not thread safe; each worker should use its own.
+ * 
+ * <br><br>
+ * 
+ * If {@link ProcessingOptions#isColumnarBatches()} is set and a {@link ValidationPlan} is supplied, validated lines are instead
+ * gathered into {@link ColumnarBatchEvent}s. A validated line that one of its typed columns cannot hold flushes the pending batch
+ * and is passed through as a {@link LineValidatedEvent}, just as any other event would be.
+ * 
+ * @author rprescott
+ */
+class BatchingEventPublisher implements ApplicationEventPublisher {
+
+	private static final int INITIAL_COLUMNAR_ROWS = 1024;
+
+	private ApplicationEventPublisher target;
+	private File inputFile;
+	private int maxRecords;
+	private long maxBytes;
+	private List<LineSplitEvent> pendingSplitLines = new ArrayList<>();
+	private List<LineValidatedEvent> pendingValidatedLines = new ArrayList<>();
+	private ColumnarBatch.Schema columnarSchema;
+	private ColumnarBatch pendingColumns;
+	private long pendingBytes;
+
+	BatchingEventPublisher(ApplicationEventPublisher target, File inputFile, ProcessingOptions options) {
+		this(target, inputFile, options, null);
+	}
+
+	/**
+	 * @param validationPlan
+	 * 		The plan the lines are validated with, which gives the type of each column of a {@link ColumnarBatchEvent}. May be null
+	 * 		if the lines are not validated.
+	 */
+	BatchingEventPublisher(ApplicationEventPublisher target, File inputFile, ProcessingOptions options, ValidationPlan validationPlan) {
+		this.target = target;
+		this.inputFile = inputFile;
+		this.maxRecords = options.getEventBatchSize() > 0 ? options.getEventBatchSize() : Integer.MAX_VALUE;
+		this.maxBytes = options.getEventBatchBytes() > 0 ? options.getEventBatchBytes() : Long.MAX_VALUE;
+		if (options.isColumnarBatches() && validationPlan != null) {
+			this.columnarSchema = ColumnarBatch.schemaOf(validationPlan);
+		}
+	}
+
+	@Override
+	public void publishEvent(ApplicationEvent event) {
+		publishEvent((Object) event);
+	}
+
+	@Override
+	public void publishEvent(Object event) {
+		if (event instanceof LineSplitEvent) {
+			if (!pendingValidatedLines.isEmpty()) {
+				flush();
+			}
+			LineSplitEvent lineSplitEvent = (LineSplitEvent) event;
+			pendingSplitLines.add(lineSplitEvent);
+			pendingBytes += sizeOf(lineSplitEvent.getSplitLine().orElse(null));
+			flushIfFull(pendingSplitLines.size());
+		}
+		else if (event instanceof LineValidatedEvent && columnarSchema != null) {
+			if (!pendingSplitLines.isEmpty()) {
+				flush();
+			}
+			if (pendingColumns == null) {
+				pendingColumns = columnarSchema.newBatch(Math.min(maxRecords, INITIAL_COLUMNAR_ROWS));
+			}
+			LineValidatedEvent lineValidatedEvent = (LineValidatedEvent) event;
+			if (pendingColumns.append(lineValidatedEvent.getValidatedLine())) {
+				pendingBytes += sizeOf(lineValidatedEvent);
+				flushIfFull(pendingColumns.getRowCount());
+			}
+			else {
+				flush();
+				target.publishEvent(event);
+			}
+		}
+		else if (event instanceof LineValidatedEvent) {
+			if (!pendingSplitLines.isEmpty()) {
+				flush();
+			}
+			LineValidatedEvent lineValidatedEvent = (LineValidatedEvent) event;
+			pendingValidatedLines.add(lineValidatedEvent);
+			pendingBytes += sizeOf(lineValidatedEvent);
+			flushIfFull(pendingValidatedLines.size());
+		}
+		else {
+			flush();
+			target.publishEvent(event);
+		}
+	}
+
+	/**
+	 * Publishes any partially filled batch.
+	 */
+	public void flush() {
+		if (!pendingSplitLines.isEmpty()) {
+			target.publishEvent(new LineBatchSplitEvent(inputFile, pendingSplitLines));
+			pendingSplitLines = new ArrayList<>();
+		}
+		if (!pendingValidatedLines.isEmpty()) {
+			target.publishEvent(new ValidatedBatchEvent(pendingValidatedLines));
+			pendingValidatedLines = new ArrayList<>();
+		}
+		if (pendingColumns != null) {
+			if (pendingColumns.getRowCount() > 0) {
+				target.publishEvent(new ColumnarBatchEvent(inputFile, pendingColumns));
+			}
+			pendingColumns = null;
+		}
+		pendingBytes = 0;
+	}
+
+	private void flushIfFull(int pendingRecords) {
+		if (pendingRecords >= maxRecords || pendingBytes >= maxBytes) {
+			flush();
+		}
+	}
+
+	private static long sizeOf(LineValidatedEvent lineValidatedEvent) {
+		return lineValidatedEvent.getOriginalLine() != null ? lineValidatedEvent.getOriginalLine().length() : sizeOf(lineValidatedEvent.getValidatedLine());
+	}
+
+	private static long sizeOf(String[] fields) {
+		long size = 0;
+		if (fields != null) {
+			for (String field : fields) {
+				size += field == null ? 0 : field.length() + 1;
+			}
+		}
+		return size;
+	}
+}
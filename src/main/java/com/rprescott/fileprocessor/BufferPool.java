@@ -0,0 +1,199 @@
+package com.rprescott.fileprocessor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * A pool of direct {@link ByteBuffer}s shared by every file being read, so that reading a file does not allocate a new buffer
+ * (and growing one for a long record does not allocate a series of ever larger ones) only for the garbage collector to reclaim
+ * it once the file is done.
+ *
+ * <br><br>
+ *
+ * Buffers come in size classes of a power of two bytes, and a request is served from the smallest class that holds it. A buffer
+ * that is released goes back to its class, unless it is larger than {@link #setMaxPooledBufferSize(int)} or the pool already
+ * holds {@link #setMaxIdleBytes(long)} bytes of free buffers, in which case it is left to the garbage collector. Buffers must not
+ * be used once they have been released.
+ *
+ * <br><br>
+ *
+ * This class is thread safe.
+ *
+ * @author rprescott
+ */
+@Component
+public class BufferPool {
+
+	private static final int SIZE_CLASSES = 31;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private final Deque<ByteBuffer>[] free = new Deque[SIZE_CLASSES];
+	private volatile int maxPooledBufferSize = 33554432;
+	private volatile long maxIdleBytes = 268435456;
+	private final AtomicLong idleBytes = new AtomicLong();
+	private final AtomicLong bytesInUse = new AtomicLong();
+	private final AtomicLong peakBytesInUse = new AtomicLong();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder discards = new LongAdder();
+
+	public BufferPool() {
+		for (int i = 0; i < SIZE_CLASSES; i++) {
+			free[i] = new ConcurrentLinkedDeque<>();
+		}
+	}
+
+	/**
+	 * Borrows a cleared buffer of at least the supplied capacity, which is rounded up to the next power of two.
+	 */
+	public ByteBuffer acquire(int capacity) {
+		int sizeClass = sizeClassOf(capacity);
+		ByteBuffer buffer = free[sizeClass].pollFirst();
+		if (buffer != null) {
+			hits.increment();
+			idleBytes.addAndGet(-buffer.capacity());
+		}
+		else {
+			misses.increment();
+			buffer = ByteBuffer.allocateDirect(1 << sizeClass);
+		}
+		long inUse = bytesInUse.addAndGet(buffer.capacity());
+		peakBytesInUse.accumulateAndGet(inUse, Math::max);
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer borrowed by {@link #acquire(int)} to the pool.
+	 */
+	public void release(ByteBuffer buffer) {
+		bytesInUse.addAndGet(-buffer.capacity());
+		// A buffer whose capacity is not a power of two was not borrowed from the pool, and would spoil the size class it went into.
+		if (buffer.capacity() > maxPooledBufferSize || Integer.bitCount(buffer.capacity()) != 1) {
+			discards.increment();
+			return;
+		}
+		if (idleBytes.addAndGet(buffer.capacity()) > maxIdleBytes) {
+			idleBytes.addAndGet(-buffer.capacity());
+			discards.increment();
+			return;
+		}
+		buffer.clear();
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		// The most recently released buffer is handed out first, while it is most likely still in cache.
+		free[sizeClassOf(buffer.capacity())].offerFirst(buffer);
+	}
+
+	/**
+	 * Swaps a full buffer for one twice its capacity, holding the same bytes at the same position. The full buffer is released.
+	 *
+	 * @param buffer
+	 * 		A buffer borrowed by {@link #acquire(int)}, whose position is the number of bytes it holds.
+	 */
+	public ByteBuffer grow(ByteBuffer buffer) {
+		ByteBuffer biggerBuffer = acquire(buffer.capacity() * 2);
+		buffer.flip();
+		biggerBuffer.put(buffer);
+		release(buffer);
+		return biggerBuffer;
+	}
+
+	private static int sizeClassOf(int capacity) {
+		if (capacity <= 1) {
+			return 0;
+		}
+		return 32 - Integer.numberOfLeadingZeros(capacity - 1);
+	}
+
+	/**
+	 * Returns the number of buffers that were served from the pool.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of buffers that had to be allocated because the pool had none of their size free.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of released buffers that were left to the garbage collector rather than pooled.
+	 */
+	public long getDiscards() {
+		return discards.sum();
+	}
+
+	/**
+	 * Returns the bytes of every buffer currently borrowed.
+	 */
+	public long getBytesInUse() {
+		return bytesInUse.get();
+	}
+
+	/**
+	 * Returns the most bytes borrowed at once since the pool was created or its statistics were last reset.
+	 */
+	public long getPeakBytesInUse() {
+		return peakBytesInUse.get();
+	}
+
+	/**
+	 * Returns the bytes of every free buffer held by the pool.
+	 */
+	public long getIdleBytes() {
+		return idleBytes.get();
+	}
+
+	/**
+	 * Resets the hit, miss and discard counts, and the peak bytes in use to the bytes currently in use.
+	 */
+	public void resetStatistics() {
+		hits.reset();
+		misses.reset();
+		discards.reset();
+		peakBytesInUse.set(bytesInUse.get());
+	}
+
+	/**
+	 * Frees every buffer held by the pool. Buffers currently borrowed are still pooled once they are released.
+	 */
+	public void clear() {
+		for (Deque<ByteBuffer> sizeClass : free) {
+			ByteBuffer buffer;
+			while ((buffer = sizeClass.pollFirst()) != null) {
+				idleBytes.addAndGet(-buffer.capacity());
+			}
+		}
+	}
+
+	public int getMaxPooledBufferSize() {
+		return maxPooledBufferSize;
+	}
+
+	/**
+	 * Sets the capacity of the largest buffer that is pooled once it is released. Defaults to 32MB, which holds the largest
+	 * buffer a file is read into.
+	 */
+	public void setMaxPooledBufferSize(int maxPooledBufferSize) {
+		this.maxPooledBufferSize = maxPooledBufferSize;
+	}
+
+	public long getMaxIdleBytes() {
+		return maxIdleBytes;
+	}
+
+	/**
+	 * Sets the most bytes of free buffers the pool holds on to. Defaults to 256MB.
+	 */
+	public void setMaxIdleBytes(long maxIdleBytes) {
+		this.maxIdleBytes = maxIdleBytes;
+	}
+}
@@ -0,0 +1,47 @@
+package com.rprescott.fileprocessor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * An {@link ApplicationEventPublisher} that holds on to every event it is given instead of broadcasting it. The held events
+ * can later be handed to a real publisher, in the order they were received, with {@link #replay(ApplicationEventPublisher)}.
+ *
+ * <br><br>
+ *
+ * This is used when a file is processed on several threads but listeners still expect to see the events in file order.
+ * Instances are not thread safe; each worker should use its own.
+ *
+ * @author rprescott
+ */
+class BufferedEventPublisher implements ApplicationEventPublisher {
+
+	private List<Object> events = new ArrayList<>();
+
+	@Override
+	public void publishEvent(ApplicationEvent event) {
+		events.add(event);
+	}
+
+	@Override
+	public void publishEvent(Object event) {
+		events.add(event);
+	}
+
+	/**
+	 * Publishes all of the held events to the supplied publisher and then forgets about them.
+	 */
+	public void replay(ApplicationEventPublisher target) {
+		for (Object event : events) {
+			target.publishEvent(event);
+		}
+		events.clear();
+	}
+
+	public int size() {
+		return events.size();
+	}
+}
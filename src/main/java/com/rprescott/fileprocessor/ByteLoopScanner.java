@@ -0,0 +1,44 @@
+package com.rprescott.fileprocessor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link ByteScanner} that compares one byte at a time. This is how every search was done before {@link SwarByteScanner},
+ * and it remains the simplest reference for what a scanner must return.
+ *
+ * @author rprescott
+ */
+public class ByteLoopScanner implements ByteScanner {
+
+	@Override
+	public int indexOf(ByteBuffer buf, int from, int to, byte target) {
+		for (int i = from; i < to; i++) {
+			if (buf.get(i) == target) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int indexesOf(ByteBuffer buf, int from, int to, byte target, int[] indexes) {
+		int found = 0;
+		for (int i = from; i < to && found < indexes.length; i++) {
+			if (buf.get(i) == target) {
+				indexes[found++] = i;
+			}
+		}
+		return found;
+	}
+
+	@Override
+	public int count(ByteBuffer buf, int from, int to, byte target) {
+		int occurrences = 0;
+		for (int i = from; i < to; i++) {
+			if (buf.get(i) == target) {
+				occurrences++;
+			}
+		}
+		return occurrences;
+	}
+}
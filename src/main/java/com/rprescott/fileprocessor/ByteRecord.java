@@ -0,0 +1,250 @@
+package com.rprescott.fileprocessor;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.google.common.base.Charsets;
+
+/**
+ * A flyweight view of a single split record. Rather than holding a String for every field, it holds the start and end
+ * offset of each field within the undecoded buffer the line was read into. No String is created until a field (or the
+ * whole line) is asked for.
+ *
+ * <br><br>
+ *
+ * A record is only valid until the buffer it points into is reused, which is normally as soon as the next line is split
+ * into it. Callers that need to hold on to the values must copy them out with {@link #getField(int)} or {@link #toArray()}.
+ * Each field is decoded at most once per record, the first time it is asked for. Instances are not thread safe; each reading
+ * thread should use its own.
+ *
+ * <br><br>
+ *
+ * A record may be given a projection: the fields that are actually needed. Fields outside of it are never decoded and are
+ * null in {@link #toArray()}, and the splitter does not record the offsets of any field after the last one in it, only counts them.
+ *
+ * @author rprescott
+ */
+public class ByteRecord {
+
+	private ByteBuffer buffer;
+	private int lineStart;
+	private int lineEnd;
+	private int[] fieldStarts = new int[16];
+	private int[] fieldEnds = new int[16];
+	/** Whether each field is a quoted field holding doubled quotes, in which case its bytes are not exactly its value. */
+	private boolean[] fieldEscaped = new boolean[16];
+	private int fieldCount;
+	/** The decoded value of each field, filled in as each is first asked for. */
+	private String[] values = new String[16];
+	/** Whether each field is needed, or null if every field is. */
+	private boolean[] projection;
+	/** The number of leading fields whose offsets must be recorded. */
+	private int projectedFieldLimit = Integer.MAX_VALUE;
+	private byte quote;
+	/** Scratch space used to copy bytes out of buffers that are not backed by an array. */
+	private byte[] scratch = new byte[256];
+	/** A view of the last buffer not backed by an array, such as a pooled direct buffer, that bytes are bulk copied out of. */
+	private ByteBuffer copyView;
+	private ByteBuffer copySource;
+	/** Scratch space the splitter records the index of each delimiter of the line in. */
+	private int[] delimiterIndexes = new int[0];
+
+	/**
+	 * Points this record at a new line, forgetting any fields of the previous one.
+	 */
+	void reset(ByteBuffer buffer, int lineStart, int lineEnd) {
+		this.buffer = buffer;
+		this.lineStart = lineStart;
+		this.lineEnd = lineEnd;
+		Arrays.fill(values, 0, fieldCount, null);
+		this.fieldCount = 0;
+	}
+
+	/**
+	 * Limits the fields that are decoded to those that are true in the supplied array, which is indexed by field. Null (the
+	 * default) decodes every field.
+	 */
+	public void setProjection(boolean[] projection) {
+		this.projection = projection;
+		this.projectedFieldLimit = Integer.MAX_VALUE;
+		if (projection != null) {
+			projectedFieldLimit = 0;
+			for (int i = 0; i < projection.length; i++) {
+				if (projection[i]) {
+					projectedFieldLimit = i + 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of leading fields that include every projected field. The offsets of the fields after these are not
+	 * needed, so the splitter may count them with {@link #addSkippedFields(int)} instead.
+	 */
+	int getProjectedFieldLimit() {
+		return projectedFieldLimit;
+	}
+
+	void addField(int start, int end) {
+		addField(start, end, false);
+	}
+
+	/**
+	 * Adds a field whose offsets exclude any enclosing quotes. An escaped field holds doubled quotes that are each decoded as a
+	 * single quote.
+	 */
+	void addField(int start, int end, boolean escaped) {
+		if (fieldCount == fieldStarts.length) {
+			fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+			fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+			fieldEscaped = Arrays.copyOf(fieldEscaped, fieldCount * 2);
+			values = Arrays.copyOf(values, fieldCount * 2);
+		}
+		fieldStarts[fieldCount] = start;
+		fieldEnds[fieldCount] = end;
+		fieldEscaped[fieldCount] = escaped;
+		fieldCount++;
+	}
+
+	/**
+	 * Adds fields outside of the projection whose offsets were never found. Their start and end are -1.
+	 */
+	void addSkippedFields(int count) {
+		for (int i = 0; i < count; i++) {
+			addField(-1, -1, false);
+		}
+	}
+
+	/**
+	 * Sets the quote character that is doubled within escaped fields.
+	 */
+	void setQuote(byte quote) {
+		this.quote = quote;
+	}
+
+	/**
+	 * Returns an array of exactly the requested length to record delimiter indexes in. The same array is returned for as long
+	 * as the requested length stays the same, which it does for every line of a file.
+	 */
+	int[] getDelimiterIndexes(int length) {
+		if (delimiterIndexes.length != length) {
+			delimiterIndexes = new int[length];
+		}
+		return delimiterIndexes;
+	}
+
+	public int getFieldCount() {
+		return fieldCount;
+	}
+
+	/**
+	 * Returns the absolute index within {@link #getBuffer()} of the first byte of the field, or -1 if it was skipped.
+	 */
+	public int getFieldStart(int field) {
+		return fieldStarts[field];
+	}
+
+	/**
+	 * Returns the absolute index within {@link #getBuffer()} just past the last byte of the field, or -1 if it was skipped.
+	 */
+	public int getFieldEnd(int field) {
+		return fieldEnds[field];
+	}
+
+	public int getFieldLength(int field) {
+		return fieldEnds[field] - fieldStarts[field];
+	}
+
+	/**
+	 * Returns true if the field was quoted and holds doubled quotes. The bytes between its start and end are then not exactly
+	 * its value, as each doubled quote stands for a single one; {@link #getField(int)} accounts for this.
+	 */
+	public boolean isFieldEscaped(int field) {
+		return fieldEscaped[field];
+	}
+
+	/**
+	 * Returns the buffer the line was read into. Field offsets are absolute indexes into this buffer.
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Returns true unless the record has a projection that leaves the field out.
+	 */
+	public boolean isFieldProjected(int field) {
+		return projection == null || (field < projection.length && projection[field]);
+	}
+
+	/**
+	 * Returns the value of the field, decoding it the first time it is asked for, or null if it is not projected.
+	 */
+	public String getField(int field) {
+		String value = values[field];
+		if (value == null && isFieldProjected(field)) {
+			value = fieldEscaped[field] ? decodeEscaped(fieldStarts[field], fieldEnds[field]) : decode(fieldStarts[field], fieldEnds[field]);
+			values[field] = value;
+		}
+		return value;
+	}
+
+	/**
+	 * Decodes the whole line (without its EOR marker) into a new String.
+	 */
+	public String getLine() {
+		return decode(lineStart, lineEnd);
+	}
+
+	/**
+	 * Returns the value of every field in a new array, in which the fields that are not projected are null.
+	 */
+	public String[] toArray() {
+		String[] fields = new String[fieldCount];
+		for (int i = 0; i < fieldCount; i++) {
+			fields[i] = getField(i);
+		}
+		return fields;
+	}
+
+	private String decode(int start, int end) {
+		int length = end - start;
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + start, length, Charsets.US_ASCII);
+		}
+		if (scratch.length < length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		if (copySource != buffer) {
+			copySource = buffer;
+			copyView = buffer.duplicate();
+		}
+		copyView.limit(end).position(start);
+		copyView.get(scratch, 0, length);
+		return new String(scratch, 0, length, Charsets.US_ASCII);
+	}
+
+	/**
+	 * Decodes a quoted field, dropping the second quote of each doubled pair.
+	 */
+	private String decodeEscaped(int start, int end) {
+		int length = end - start;
+		if (scratch.length < length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		int decoded = 0;
+		for (int i = start; i < end; i++) {
+			byte b = buffer.get(i);
+			scratch[decoded++] = b;
+			if (b == quote) {
+				i++;
+			}
+		}
+		return new String(scratch, 0, decoded, Charsets.US_ASCII);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+}
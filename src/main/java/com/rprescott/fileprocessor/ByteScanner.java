@@ -0,0 +1,37 @@
+package com.rprescott.fileprocessor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Searches the undecoded bytes of a buffer for a single byte value, such as the LF that ends a record or the delimiter
+ * that ends a field. The reader and the {@link LineSplitter} both find their bytes through a scanner, so the way the
+ * bytes are searched can be changed in one place.
+ *
+ * <br><br>
+ *
+ * Indexes are absolute indexes into the buffer; its position, limit and byte order are never changed. Implementations
+ * must work on heap, direct and memory mapped buffers alike and must be thread safe.
+ *
+ * @author rprescott
+ */
+public interface ByteScanner {
+
+	/**
+	 * Returns the index of the first occurrence of the target byte at or after from and before to, or -1 if there is none.
+	 */
+	int indexOf(ByteBuffer buf, int from, int to, byte target);
+
+	/**
+	 * Records, in order, the indexes of the occurrences of the target byte at or after from and before to, stopping once the
+	 * array is full. Finding every delimiter of a line in one call lets a scanner report all the matches within each block of
+	 * bytes it reads instead of starting a new search for every field.
+	 *
+	 * @return The number of indexes recorded. If this is the length of the array there may be more occurrences.
+	 */
+	int indexesOf(ByteBuffer buf, int from, int to, byte target, int[] indexes);
+
+	/**
+	 * Returns the number of occurrences of the target byte at or after from and before to.
+	 */
+	int count(ByteBuffer buf, int from, int to, byte target);
+}
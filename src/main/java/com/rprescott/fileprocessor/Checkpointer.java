@@ -0,0 +1,138 @@
+package com.rprescott.fileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Records how far through a file the {@link FileProcessor} has got in a small sidecar file, so that processing can be
+ * resumed from that point if the JVM dies part way through the file.
+ * 
+ * <br><br>
+ * 
+ * A checkpoint is only written once every event for the lines before its offset has been broadcasted, so resuming from it
+ * never skips a line, and only repeats the lines broadcasted after it was written. Each checkpoint is written to a temporary file which is then atomically renamed over the
+ * previous one, so the sidecar file always holds a complete checkpoint.
+ * 
+ * @author rprescott
+ */
+class Checkpointer {
+
+	static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+	private static final String OFFSET = "offset";
+	private static final String LINES_READ = "linesRead";
+	private static final String CRLF = "crlf";
+
+	private final File checkpointFile;
+	private final long everyRecords;
+	private final long everyNanos;
+	private long recordsSinceCheckpoint;
+	private long lastCheckpointNanos = System.nanoTime();
+
+	/**
+	 * The position of a checkpoint within its file.
+	 */
+	static class Checkpoint {
+		/** The offset of the first byte not yet processed. Always the start of a line. */
+		final long offset;
+		/** The number of lines processed before the offset, including any header line. */
+		final long linesRead;
+		/** True while every line processed so far has ended in a CRLF. */
+		final boolean crlf;
+
+		Checkpoint(long offset, long linesRead, boolean crlf) {
+			this.offset = offset;
+			this.linesRead = linesRead;
+			this.crlf = crlf;
+		}
+	}
+
+	/**
+	 * @param checkpointFile
+	 * 		The sidecar file to write checkpoints to.
+	 * @param everyRecords
+	 * 		The number of records between checkpoints, or 0 to only checkpoint by time.
+	 * @param everyMillis
+	 * 		The most milliseconds between checkpoints, or 0 to only checkpoint by records.
+	 */
+	Checkpointer(File checkpointFile, long everyRecords, long everyMillis) {
+		this.checkpointFile = checkpointFile;
+		this.everyRecords = everyRecords;
+		this.everyNanos = everyMillis * 1000000;
+	}
+
+	/**
+	 * Returns the sidecar file for the input file: the checkpoint file of the options if one is set, otherwise the input file
+	 * with {@value #CHECKPOINT_SUFFIX} appended.
+	 */
+	static File checkpointFileFor(File inputFile, ProcessingOptions options) {
+		return options.getCheckpointFile() != null ? options.getCheckpointFile() : new File(inputFile.getPath() + CHECKPOINT_SUFFIX);
+	}
+
+	/**
+	 * Reads the checkpoint in the sidecar file, or returns null if there is none.
+	 */
+	static Checkpoint read(File checkpointFile) throws IOException {
+		if (!checkpointFile.exists()) {
+			return null;
+		}
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(checkpointFile.toPath())) {
+			properties.load(in);
+		}
+		try {
+			return new Checkpoint(
+				Long.parseLong(properties.getProperty(OFFSET)),
+				Long.parseLong(properties.getProperty(LINES_READ)),
+				Boolean.parseBoolean(properties.getProperty(CRLF)));
+		}
+		catch (NumberFormatException ex) {
+			throw new IOException("Malformed checkpoint file: " + checkpointFile.getAbsolutePath(), ex);
+		}
+	}
+
+	/**
+	 * Counts a record and returns true if it is time to write another checkpoint.
+	 */
+	boolean isDue() {
+		recordsSinceCheckpoint++;
+		if (everyRecords > 0 && recordsSinceCheckpoint >= everyRecords) {
+			return true;
+		}
+		return everyNanos > 0 && System.nanoTime() - lastCheckpointNanos >= everyNanos;
+	}
+
+	void write(long offset, long linesRead, boolean crlf) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(OFFSET, Long.toString(offset));
+		properties.setProperty(LINES_READ, Long.toString(linesRead));
+		properties.setProperty(CRLF, Boolean.toString(crlf));
+		Path target = checkpointFile.toPath();
+		Path temp = target.resolveSibling(checkpointFile.getName() + ".tmp");
+		try (OutputStream out = Files.newOutputStream(temp)) {
+			properties.store(out, null);
+		}
+		try {
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException ex) {
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+		recordsSinceCheckpoint = 0;
+		lastCheckpointNanos = System.nanoTime();
+	}
+
+	/**
+	 * Removes the sidecar file once the whole file has been processed.
+	 */
+	void delete() throws IOException {
+		Files.deleteIfExists(checkpointFile.toPath());
+	}
+}
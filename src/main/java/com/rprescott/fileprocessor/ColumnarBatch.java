@@ -0,0 +1,318 @@
+package com.rprescott.fileprocessor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+import com.rprescott.fileprocessor.validation.ValidationPlan;
+import com.rprescott.fileprocessor.validation.rules.AbstractInputValidationRule;
+import com.rprescott.fileprocessor.validation.rules.DateFormatValidationRule;
+import com.rprescott.fileprocessor.validation.rules.NumericValidationRule;
+
+/**
+ * A batch of validated records held by column rather than by record, with each column parsed into the type its validation rules
+ * describe so that consumers do not have to parse the values again.
+ *
+ * <br><br>
+ *
+ * A field validated as numeric (rule 5) is a {@link ColumnType#LONG} column of longs. A field validated as a date (rule 4) whose
+ * format describes a whole date is an {@link ColumnType#EPOCH_DAY} column of the {@link LocalDate#toEpochDay()} of each value.
+ * Every other field is a {@link ColumnType#TEXT} column, whose values are held one after the other in a single byte arena shared
+ * by every text column of the batch and found by their start and length. Each column has a bitmap of the rows whose value is
+ * null: a typed value that is empty or blank, or any value left out by the projection of the file.
+ *
+ * <br><br>
+ *
+ * The arrays returned by this class are the batch's own and are larger than the batch; only the first {@link #getRowCount()}
+ * entries are values. Batches are not modified once they have been published.
+ *
+ * @author rprescott
+ */
+public class ColumnarBatch {
+
+	public enum ColumnType {
+		LONG, EPOCH_DAY, TEXT
+	}
+
+	private final ColumnType[] types;
+	private final DateFormatValidationRule[] dateRules;
+	private final long[][] longs;
+	private final int[][] epochDays;
+	private final int[][] textStarts;
+	private final int[][] textLengths;
+	private final long[][] nulls;
+	private byte[] arena = new byte[1024];
+	private int arenaSize;
+	private int rowCount;
+	private int capacity;
+
+	private ColumnarBatch(ColumnType[] types, DateFormatValidationRule[] dateRules, int capacity) {
+		this.types = types;
+		this.dateRules = dateRules;
+		this.capacity = Math.max(capacity, 1);
+		this.longs = new long[types.length][];
+		this.epochDays = new int[types.length][];
+		this.textStarts = new int[types.length][];
+		this.textLengths = new int[types.length][];
+		this.nulls = new long[types.length][];
+		for (int column = 0; column < types.length; column++) {
+			switch (types[column]) {
+				case LONG:
+					longs[column] = new long[this.capacity];
+					break;
+				case EPOCH_DAY:
+					epochDays[column] = new int[this.capacity];
+					break;
+				default:
+					textStarts[column] = new int[this.capacity];
+					textLengths[column] = new int[this.capacity];
+					break;
+			}
+			nulls[column] = new long[(this.capacity + 63) / 64];
+		}
+	}
+
+	/**
+	 * Returns the type of each column of a file validated by the supplied plan, along with the rule of each date column.
+	 */
+	static Schema schemaOf(ValidationPlan validationPlan) {
+		ColumnType[] types = new ColumnType[validationPlan.getNumberOfFields()];
+		DateFormatValidationRule[] dateRules = new DateFormatValidationRule[types.length];
+		for (int column = 0; column < types.length; column++) {
+			types[column] = ColumnType.TEXT;
+			for (AbstractInputValidationRule rule : validationPlan.getRules(column)) {
+				if (rule instanceof NumericValidationRule) {
+					types[column] = ColumnType.LONG;
+					break;
+				}
+				if (rule instanceof DateFormatValidationRule && describesWholeDate(((DateFormatValidationRule) rule).getExpectedFormat())) {
+					types[column] = ColumnType.EPOCH_DAY;
+					dateRules[column] = (DateFormatValidationRule) rule;
+					break;
+				}
+			}
+		}
+		return new Schema(types, dateRules);
+	}
+
+	/**
+	 * Returns true if every value of the format resolves to a {@link LocalDate}, which a format without a day, say, does not.
+	 */
+	private static boolean describesWholeDate(DateTimeFormatter format) {
+		if (format == null) {
+			return false;
+		}
+		try {
+			LocalDate.from(format.parse(format.format(LocalDate.of(2000, 1, 1))));
+			return true;
+		}
+		catch (DateTimeException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Appends a validated record, parsing each of its typed fields. Returns false, leaving the batch as it was, if a typed field
+	 * cannot be held by its column: a number too large for a long, or a date outside the range of an int epoch day.
+	 */
+	boolean append(String[] fields) {
+		if (rowCount == capacity) {
+			grow();
+		}
+		int row = rowCount;
+		int arenaStart = arenaSize;
+		for (int column = 0; column < types.length; column++) {
+			String value = column < fields.length ? fields[column] : null;
+			boolean isNull;
+			switch (types[column]) {
+				case LONG:
+					isNull = value == null || value.trim().isEmpty();
+					if (!isNull && !parseLong(value.trim(), column, row)) {
+						arenaSize = arenaStart;
+						return false;
+					}
+					break;
+				case EPOCH_DAY:
+					isNull = value == null || value.isEmpty();
+					if (!isNull && !parseDate(value, column, row)) {
+						arenaSize = arenaStart;
+						return false;
+					}
+					break;
+				default:
+					isNull = value == null;
+					if (!isNull) {
+						appendText(value, column, row);
+					}
+					break;
+			}
+			if (isNull) {
+				nulls[column][row >>> 6] |= 1L << row;
+			}
+			else {
+				nulls[column][row >>> 6] &= ~(1L << row);
+			}
+		}
+		rowCount++;
+		return true;
+	}
+
+	private boolean parseLong(String value, int column, int row) {
+		long parsed = 0;
+		for (int i = 0; i < value.length(); i++) {
+			int digit = value.charAt(i) - '0';
+			if (digit < 0 || digit > 9 || parsed > (Long.MAX_VALUE - digit) / 10) {
+				return false;
+			}
+			parsed = parsed * 10 + digit;
+		}
+		longs[column][row] = parsed;
+		return true;
+	}
+
+	private boolean parseDate(String value, int column, int row) {
+		long epochDay;
+		try {
+			epochDay = dateRules[column].toEpochDay(value);
+		}
+		catch (DateTimeException ex) {
+			return false;
+		}
+		if (epochDay < Integer.MIN_VALUE || epochDay > Integer.MAX_VALUE) {
+			return false;
+		}
+		epochDays[column][row] = (int) epochDay;
+		return true;
+	}
+
+	private void appendText(String value, int column, int row) {
+		if (arena.length - arenaSize < value.length()) {
+			arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + value.length()));
+		}
+		// Records are decoded as US-ASCII, so every character is a single byte; anything else was already a replacement.
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			arena[arenaSize + i] = c < 0x80 ? (byte) c : (byte) '?';
+		}
+		textStarts[column][row] = arenaSize;
+		textLengths[column][row] = value.length();
+		arenaSize += value.length();
+	}
+
+	private void grow() {
+		capacity *= 2;
+		for (int column = 0; column < types.length; column++) {
+			if (longs[column] != null) {
+				longs[column] = Arrays.copyOf(longs[column], capacity);
+			}
+			if (epochDays[column] != null) {
+				epochDays[column] = Arrays.copyOf(epochDays[column], capacity);
+			}
+			if (textStarts[column] != null) {
+				textStarts[column] = Arrays.copyOf(textStarts[column], capacity);
+				textLengths[column] = Arrays.copyOf(textLengths[column], capacity);
+			}
+			nulls[column] = Arrays.copyOf(nulls[column], (capacity + 63) / 64);
+		}
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public int getColumnCount() {
+		return types.length;
+	}
+
+	public ColumnType getColumnType(int column) {
+		return types[column];
+	}
+
+	public boolean isNull(int column, int row) {
+		return (nulls[column][row >>> 6] & (1L << row)) != 0;
+	}
+
+	/**
+	 * Returns the null bitmap of the column: bit (row % 64) of word (row / 64) is set if the value of the row is null.
+	 */
+	public long[] getNulls(int column) {
+		return nulls[column];
+	}
+
+	/**
+	 * Returns the values of a {@link ColumnType#LONG} column. The value of a null row is undefined.
+	 */
+	public long[] getLongs(int column) {
+		return column(longs, column, ColumnType.LONG);
+	}
+
+	public long getLong(int column, int row) {
+		return getLongs(column)[row];
+	}
+
+	/**
+	 * Returns the values of an {@link ColumnType#EPOCH_DAY} column. The value of a null row is undefined.
+	 */
+	public int[] getEpochDays(int column) {
+		return column(epochDays, column, ColumnType.EPOCH_DAY);
+	}
+
+	/**
+	 * Returns the value of an {@link ColumnType#EPOCH_DAY} column as a date, or null if it is null.
+	 */
+	public LocalDate getDate(int column, int row) {
+		return isNull(column, row) ? null : LocalDate.ofEpochDay(getEpochDays(column)[row]);
+	}
+
+	/**
+	 * Returns the arena holding the values of every {@link ColumnType#TEXT} column of the batch.
+	 */
+	public byte[] getArena() {
+		return arena;
+	}
+
+	/**
+	 * Returns the index within {@link #getArena()} of the first byte of a value of a {@link ColumnType#TEXT} column.
+	 */
+	public int getTextStart(int column, int row) {
+		return column(textStarts, column, ColumnType.TEXT)[row];
+	}
+
+	public int getTextLength(int column, int row) {
+		return column(textLengths, column, ColumnType.TEXT)[row];
+	}
+
+	/**
+	 * Decodes the value of a {@link ColumnType#TEXT} column into a new String, or returns null if it is null.
+	 */
+	public String getText(int column, int row) {
+		return isNull(column, row) ? null : new String(arena, getTextStart(column, row), getTextLength(column, row), StandardCharsets.US_ASCII);
+	}
+
+	private <T> T column(T[] columns, int column, ColumnType type) {
+		if (types[column] != type) {
+			throw new IllegalArgumentException("Column " + column + " is " + types[column] + ", not " + type + ".");
+		}
+		return columns[column];
+	}
+
+	/**
+	 * The column types of a file, from which each of its batches is created.
+	 */
+	static final class Schema {
+
+		private final ColumnType[] types;
+		private final DateFormatValidationRule[] dateRules;
+
+		private Schema(ColumnType[] types, DateFormatValidationRule[] dateRules) {
+			this.types = types;
+			this.dateRules = dateRules;
+		}
+
+		ColumnarBatch newBatch(int capacity) {
+			return new ColumnarBatch(types, dateRules, capacity);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.rprescott.fileprocessor;
+
+import com.rprescott.fileprocessor.validation.FileConfiguration;
+
+/**
+ * Counts the malformed and invalid records of a file against the limits of its {@link FileConfiguration}, so that a file that
+ * does not match its configuration at all (one delimited by commas read with a configuration for pipes, say) is abandoned after
+ * a handful of records rather than read to the end.
+ *
+ * @author rprescott
+ */
+class ErrorBudget {
+
+	/** The outcome of a record that was well formed, and valid if it was validated. */
+	static final int GOOD = 0;
+	static final int MALFORMED = 1;
+	static final int INVALID = 2;
+
+	private final long maxBadRecords;
+	private final double maxBadRecordRatio;
+	private final long warmupRecords;
+	private long records;
+	private long malformedRecords;
+	private long invalidRecords;
+
+	private ErrorBudget(FileConfiguration fileConfiguration) {
+		this.maxBadRecords = fileConfiguration.getMaxBadRecords();
+		this.maxBadRecordRatio = fileConfiguration.getMaxBadRecordRatio();
+		this.warmupRecords = fileConfiguration.getErrorBudgetWarmupRecords();
+	}
+
+	/**
+	 * Returns the budget of a file, or null if its configuration has none.
+	 */
+	static ErrorBudget of(FileConfiguration fileConfiguration) {
+		return fileConfiguration.hasErrorBudget() ? new ErrorBudget(fileConfiguration) : null;
+	}
+
+	/**
+	 * Counts the outcome of a record, returning true if the budget has now been exceeded.
+	 */
+	boolean record(int outcome) {
+		records++;
+		if (outcome == MALFORMED) {
+			malformedRecords++;
+		}
+		else if (outcome == INVALID) {
+			invalidRecords++;
+		}
+		else {
+			return false;
+		}
+		long badRecords = malformedRecords + invalidRecords;
+		if (maxBadRecords > 0 && badRecords > maxBadRecords) {
+			return true;
+		}
+		return maxBadRecordRatio > 0 && records >= warmupRecords && badRecords > maxBadRecordRatio * records;
+	}
+
+	long getMalformedRecords() {
+		return malformedRecords;
+	}
+
+	long getInvalidRecords() {
+		return invalidRecords;
+	}
+}
@@ -0,0 +1,207 @@
+package com.rprescott.fileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.rprescott.fileprocessor.events.BatchCompletedProcessingEvent;
+import com.rprescott.fileprocessor.events.FileProcessingResult;
+import com.rprescott.fileprocessor.validation.FileConfiguration;
+import com.rprescott.fileprocessor.validation.FileConfigurationLoader;
+
+/**
+ * Reads and validates many files at once. Each file is processed exactly as {@link FileProcessor#readAndValidateFile(File, File)}
+ * would process it, but up to {@link #setMaxConcurrentFiles(int)} files are processed at the same time on a thread pool that
+ * only lives for the duration of the batch.
+ * 
+ * <br><br>
+ * 
+ * Files are started largest first so that a single huge file is not left running on its own at the end of the batch while the
+ * rest of the pool sits idle. A file that fails does not stop the rest of the batch; its failure is recorded in the
+ * {@link BatchCompletedProcessingEvent} that is broadcasted once every file has finished.
+ * 
+ * <br><br>
+ * 
+ * <b>The events of different files are broadcasted from different threads at the same time, so listeners must be thread safe.</b>
+ * The events of any one file are still broadcasted from a single thread, in file order.
+ * 
+ * @author rprescott
+ */
+@Component
+public class FileBatchProcessor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileBatchProcessor.class);
+
+	private int maxConcurrentFiles = Runtime.getRuntime().availableProcessors();
+	private FileProcessor fileProcessor;
+	private FileConfigurationLoader fileConfigurationLoader;
+	private ApplicationEventPublisher eventPublisher;
+
+	/**
+	 * Processes every regular file in the directory, other than the configuration file itself, using the one configuration file.
+	 * 
+	 * @param directory
+	 * 		The directory containing the files to process.
+	 * @param configurationFile
+	 * 		The configuration file describing every file in the directory.
+	 * @return The event broadcasted once the batch completed.
+	 * @throws IOException
+	 * 		If the directory cannot be listed, or the batch was interrupted.
+	 */
+	public BatchCompletedProcessingEvent processDirectory(File directory, File configurationFile) throws IOException {
+		File[] files = directory.listFiles(File::isFile);
+		if (files == null) {
+			throw new IOException("Unable to list the files in " + directory.getAbsolutePath());
+		}
+		Arrays.sort(files);
+		List<BatchFile> batch = new ArrayList<>();
+		for (File file : files) {
+			if (!file.getAbsoluteFile().equals(configurationFile.getAbsoluteFile())) {
+				batch.add(new BatchFile(file, configurationFile));
+			}
+		}
+		return processFiles(batch);
+	}
+
+	/**
+	 * Processes each data file against its own configuration file.
+	 * 
+	 * @param files
+	 * 		The data files to process, each with the configuration file describing it.
+	 * @return The event broadcasted once the batch completed.
+	 * @throws IOException
+	 * 		If the batch was interrupted.
+	 */
+	public BatchCompletedProcessingEvent processFiles(List<BatchFile> files) throws IOException {
+		return processFiles(files, new ProcessingOptions());
+	}
+
+	/**
+	 * Processes each data file against its own configuration file, using the supplied options for every file.
+	 */
+	public BatchCompletedProcessingEvent processFiles(List<BatchFile> files, ProcessingOptions options) throws IOException {
+		Stopwatch batchProcessingClock = Stopwatch.createStarted();
+		LOGGER.info("Started processing a batch of {} files.", files.size());
+		FileProcessingResult[] results = new FileProcessingResult[files.size()];
+
+		// Files in the same batch usually share a handful of configurations, so only load each of them once.
+		Map<File, FileConfiguration> configurations = new HashMap<>();
+		Map<File, Exception> configurationFailures = new HashMap<>();
+		for (BatchFile file : files) {
+			File configurationFile = file.getConfigurationFile().getAbsoluteFile();
+			if (!configurations.containsKey(configurationFile) && !configurationFailures.containsKey(configurationFile)) {
+				try {
+					configurations.put(configurationFile, fileConfigurationLoader.loadConfigurationFile(configurationFile));
+				}
+				catch (Exception ex) {
+					LOGGER.error("Unable to load the configuration file: " + configurationFile, ex);
+					configurationFailures.put(configurationFile, ex);
+				}
+			}
+		}
+
+		// Submit the largest files first. The pool takes work in submission order, so they are also started first.
+		List<Integer> order = new ArrayList<>();
+		for (int i = 0; i < files.size(); i++) {
+			order.add(i);
+		}
+		order.sort(Comparator.comparingLong((Integer i) -> files.get(i).getDataFile().length()).reversed());
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(maxConcurrentFiles, files.size())),
+			new ThreadFactoryBuilder().setNameFormat("file-batch-%d").setDaemon(true).build());
+		try {
+			List<Future<FileProcessingResult>> futures = new ArrayList<>();
+			for (int i : order) {
+				File dataFile = files.get(i).getDataFile();
+				File configurationFile = files.get(i).getConfigurationFile().getAbsoluteFile();
+				Exception configurationFailure = configurationFailures.get(configurationFile);
+				if (configurationFailure != null) {
+					results[i] = new FileProcessingResult(dataFile, 0, 0, configurationFailure);
+					futures.add(null);
+				}
+				else {
+					FileConfiguration configuration = configurations.get(configurationFile);
+					futures.add(executor.submit(() -> processFile(dataFile, configuration, options)));
+				}
+			}
+			for (int j = 0; j < order.size(); j++) {
+				if (futures.get(j) != null) {
+					results[order.get(j)] = futures.get(j).get();
+				}
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the batch to be processed.");
+		}
+		catch (ExecutionException ex) {
+			// processFile records every IOException and RuntimeException in its result, so this can only be an Error.
+			Throwables.throwIfUnchecked(ex.getCause());
+			throw new IOException(ex.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		batchProcessingClock.stop();
+		BatchCompletedProcessingEvent event = new BatchCompletedProcessingEvent(Arrays.asList(results), batchProcessingClock.elapsed(TimeUnit.MILLISECONDS));
+		LOGGER.info("Finished processing a batch of {} files in {}. Records Read: {}. Failures: {}.",
+			files.size(), batchProcessingClock, event.getTotalRecordsRead(), event.getNumberOfFailures());
+		eventPublisher.publishEvent(event);
+		return event;
+	}
+
+	private FileProcessingResult processFile(File dataFile, FileConfiguration configuration, ProcessingOptions options) {
+		Stopwatch fileProcessingClock = Stopwatch.createStarted();
+		try {
+			long recordsRead = fileProcessor.readFile(dataFile, configuration, true, options);
+			return new FileProcessingResult(dataFile, recordsRead, fileProcessingClock.elapsed(TimeUnit.MILLISECONDS), null);
+		}
+		catch (IOException | RuntimeException ex) {
+			LOGGER.error("Failed to process the file: " + dataFile.getAbsolutePath(), ex);
+			return new FileProcessingResult(dataFile, 0, fileProcessingClock.elapsed(TimeUnit.MILLISECONDS), ex);
+		}
+	}
+
+	/**
+	 * Sets the largest number of files processed at the same time. Defaults to the number of available processors.
+	 */
+	public void setMaxConcurrentFiles(int maxConcurrentFiles) {
+		this.maxConcurrentFiles = maxConcurrentFiles;
+	}
+
+	@Autowired
+	public void setFileProcessor(FileProcessor fileProcessor) {
+		this.fileProcessor = fileProcessor;
+	}
+
+	@Autowired
+	public void setFileConfigurationLoader(FileConfigurationLoader fileConfigurationLoader) {
+		this.fileConfigurationLoader = fileConfigurationLoader;
+	}
+
+	@Autowired
+	public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+		this.eventPublisher = eventPublisher;
+	}
+}
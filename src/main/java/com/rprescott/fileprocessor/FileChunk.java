@@ -0,0 +1,135 @@
+package com.rprescott.fileprocessor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.rprescott.fileprocessor.exceptions.BufferExceededException;
+
+/**
+ * A contiguous region of a file that starts at the beginning of a line and ends just after a LF (or at the end of the file),
+ * or for fixed length records, a whole number of records. Chunks can be processed independently of each other because no
+ * record ever spans two chunks.
+ *
+ * @author rprescott
+ */
+class FileChunk {
+
+	private static final int ALIGNMENT_READ_SIZE = 8192;
+
+	private final long start;
+	private final long end;
+	private final boolean lastChunk;
+	/** The number of LF terminated lines in this chunk. */
+	private int lineCount;
+	/** The line number of the first line in this chunk. */
+	private long firstLineNumber;
+
+	FileChunk(long start, long end, boolean lastChunk) {
+		this.start = start;
+		this.end = end;
+		this.lastChunk = lastChunk;
+	}
+
+	/**
+	 * Divides the file into chunks of roughly the target size. Each chunk boundary is moved forward to just past the next LF so
+	 * that a line is never divided between two chunks.
+	 *
+	 * @param channel
+	 * 		The channel of the file to divide.
+	 * @param targetChunkSize
+	 * 		The preferred size of each chunk, in bytes.
+	 * @param maxLineLength
+	 * 		The longest line we are willing to search through for a LF before giving up.
+	 * @throws BufferExceededException
+	 * 		If no LF is found within maxLineLength bytes of a tentative boundary.
+	 */
+	static List<FileChunk> split(FileChannel channel, long targetChunkSize, int maxLineLength) throws IOException {
+		long fileSize = channel.size();
+		List<FileChunk> chunks = new ArrayList<>();
+		long chunkStart = 0;
+		while (chunkStart < fileSize) {
+			long chunkEnd = chunkStart + targetChunkSize >= fileSize ? fileSize : alignToNextLine(channel, chunkStart + targetChunkSize, fileSize, maxLineLength);
+			chunks.add(new FileChunk(chunkStart, chunkEnd, chunkEnd == fileSize));
+			chunkStart = chunkEnd;
+		}
+		return chunks;
+	}
+
+	/**
+	 * Divides a file of fixed length records into chunks of roughly the target size, each of which holds a whole number of
+	 * records. Only the last chunk can end with a partial record.
+	 */
+	static List<FileChunk> split(long fileSize, long targetChunkSize, int recordLength) {
+		long chunkSize = Math.max(1, targetChunkSize / recordLength) * recordLength;
+		List<FileChunk> chunks = new ArrayList<>();
+		for (long chunkStart = 0; chunkStart < fileSize; chunkStart += chunkSize) {
+			long chunkEnd = Math.min(fileSize, chunkStart + chunkSize);
+			chunks.add(new FileChunk(chunkStart, chunkEnd, chunkEnd == fileSize));
+		}
+		return chunks;
+	}
+
+	/**
+	 * Returns the offset just past the first LF found at or after the supplied offset, or the limit if the end of the region is
+	 * reached first.
+	 */
+	static long alignToNextLine(FileChannel channel, long offset, long limit, int maxLineLength) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(ALIGNMENT_READ_SIZE);
+		long position = offset;
+		while (position < limit) {
+			buf.clear();
+			if (limit - position < buf.capacity()) {
+				buf.limit((int) (limit - position));
+			}
+			int bytesRead = channel.read(buf, position);
+			if (bytesRead == -1) {
+				return limit;
+			}
+			for (int i = 0; i < bytesRead; i++) {
+				if (buf.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += bytesRead;
+			if (position - offset > maxLineLength) {
+				throw new BufferExceededException();
+			}
+		}
+		return limit;
+	}
+
+	long getStart() {
+		return start;
+	}
+
+	long getEnd() {
+		return end;
+	}
+
+	long getSize() {
+		return end - start;
+	}
+
+	boolean isLastChunk() {
+		return lastChunk;
+	}
+
+	int getLineCount() {
+		return lineCount;
+	}
+
+	void setLineCount(int lineCount) {
+		this.lineCount = lineCount;
+	}
+
+	long getFirstLineNumber() {
+		return firstLineNumber;
+	}
+
+	void setFirstLineNumber(long firstLineNumber) {
+		this.firstLineNumber = firstLineNumber;
+	}
+}
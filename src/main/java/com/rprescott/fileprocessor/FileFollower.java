@@ -0,0 +1,94 @@
+package com.rprescott.fileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Decides when a file that is still being appended to has been completely written, and waits for it to grow until then.
+ *
+ * <br><br>
+ *
+ * A file is complete once any one of the configured end conditions is met: a trailer record has been read, a marker file
+ * exists and every byte written before it appeared has been read, or the file has not grown for the idle timeout. With no
+ * end condition the file is followed until the reading thread is interrupted. The file is polled rather than watched, as
+ * file system notifications are not delivered for files on network shares, which is where most of our feeds arrive.
+ *
+ * @author rprescott
+ */
+class FileFollower {
+
+	private final FileChannel channel;
+	private final File inputFile;
+	private final long pollMillis;
+	private final long idleTimeoutNanos;
+	private final File markerFile;
+	private final byte[] trailerPrefix;
+	private long lastSize = -1;
+	private long lastGrowthNanos = System.nanoTime();
+
+	FileFollower(FileChannel channel, File inputFile, ProcessingOptions options) {
+		this.channel = channel;
+		this.inputFile = inputFile;
+		this.pollMillis = options.getFollowPollMillis();
+		this.idleTimeoutNanos = options.getFollowIdleTimeoutMillis() * 1000000;
+		this.markerFile = options.getFollowMarkerFile();
+		this.trailerPrefix = options.getFollowTrailerPrefix() != null ? options.getFollowTrailerPrefix().getBytes(Charsets.US_ASCII) : null;
+	}
+
+	/**
+	 * Returns true if the line between the supplied indexes of the buffer is the trailer record.
+	 */
+	boolean isTrailer(ByteBuffer buf, int lineStart, int lineEnd) {
+		if (trailerPrefix == null || lineEnd - lineStart < trailerPrefix.length) {
+			return false;
+		}
+		for (int i = 0; i < trailerPrefix.length; i++) {
+			if (buf.get(lineStart + i) != trailerPrefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Called each time a read finds no more bytes in the file. Returns true if the file is complete. Otherwise waits for up to
+	 * the poll interval and returns false, after which the caller should try to read again.
+	 *
+	 * @throws IOException
+	 * 		If the file has been truncated below the bytes already read.
+	 * @throws InterruptedIOException
+	 * 		If the thread is interrupted while waiting.
+	 */
+	boolean awaitGrowth() throws IOException {
+		// Look for the marker before the size, as the writer appends its last bytes before it creates the marker.
+		boolean markerExists = markerFile != null && markerFile.exists();
+		long size = channel.size();
+		long now = System.nanoTime();
+		if (size != lastSize) {
+			lastSize = size;
+			lastGrowthNanos = now;
+		}
+		if (size < channel.position()) {
+			throw new IOException("File was truncated while being followed: " + inputFile.getAbsolutePath());
+		}
+		if (size > channel.position()) {
+			return false;
+		}
+		if (markerExists || (idleTimeoutNanos > 0 && now - lastGrowthNanos >= idleTimeoutNanos)) {
+			return true;
+		}
+		try {
+			Thread.sleep(pollMillis);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while following file: " + inputFile.getAbsolutePath());
+		}
+		return false;
+	}
+}
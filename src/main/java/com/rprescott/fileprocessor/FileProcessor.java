@@ -1,352 +1,1320 @@
-package com.rprescott.fileprocessor;
-
-import java.io.File;
-import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.channels.FileChannel;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Optional;
-
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.stereotype.Component;
-import org.xml.sax.SAXException;
-
-import com.google.common.base.Charsets;
-import com.google.common.base.Stopwatch;
-import com.rprescott.fileprocessor.events.FileCompletedProcessingEvent;
-import com.rprescott.fileprocessor.events.FileStartedProcessingEvent;
-import com.rprescott.fileprocessor.events.InvalidLineEvent;
-import com.rprescott.fileprocessor.events.LineSplitEvent;
-import com.rprescott.fileprocessor.events.LineValidatedEvent;
-import com.rprescott.fileprocessor.events.MalformedLineEvent;
-import com.rprescott.fileprocessor.exceptions.BufferExceededException;
-import com.rprescott.fileprocessor.validation.FileConfiguration;
-import com.rprescott.fileprocessor.validation.FileConfigurationLoader;
-import com.rprescott.fileprocessor.validation.FileField;
-import com.rprescott.fileprocessor.validation.RecordValidationResult;
-import com.rprescott.fileprocessor.validation.ValidationFailure;
-import com.rprescott.fileprocessor.validation.ValidationRule;
-import com.rprescott.fileprocessor.validation.rules.AbstractInputValidationRule;
-import com.rprescott.fileprocessor.validation.rules.ValidationRules;
-
-/**
- * 
- * @author rprescott
- *
- */
-@Component
-public class FileProcessor {
-	
-	private static final Logger LOGGER = LoggerFactory.getLogger(FileProcessor.class);
-	
-    private int bufferSize = 4096;
-    /** 25MB Max Buffer Capacity */
-    private int maxBufferCapacity = 26214400;
-    private String lineSeparator = "\n";
-	private ApplicationEventPublisher eventPublisher;
-	private LineSplitter lineSplitter;
-	private FileConfigurationLoader fileConfigurationLoader;
-	private ValidationRules validationRules;
-	
-	/**
-	 * Processes the specified file. For each line that is read, a {@link LineSplitEvent} is broadcasted. Any line
-	 * that does not meet the specified criteria (Delimiter and Expected Number of Fields) has a {@link MalformedLineEvent} broadcasted.
-	 * This method assumes there is no file header present.
-	 * 
-	 * <br><br> 
-	 * 
-	 * This method does not perform any sort of validation on any of the lines of the file.
-	 * 
-	 * <br><br>
-	 * 
-	 * This processor reads in data into a 4KB buffer. If no EOR marker ('\n') is detected in the buffer (i.e. A record is larger than 4096 bytes),
-	 * then the buffer size will automatically double recursively until an EOR marker is detected.
-	 * 
-	 * <br><br>
-	 * 
-	 * <b>This processor will throw a {@link BufferExceededException} if the buffer size exceeds 25MB, as this most likely indicates a malformed file.</b>
-	 * 
-	 * @param inputFile
-	 * 		The input file to process.
-	 * @param delimiter
-	 * 		The expected delimiter of the file.
-	 * @param expectedNumberOfFields
-	 * 		The expected number of fields for each record in the file.
-	 * @throws IOException
-	 */
-	public void readFile(File inputFile, String delimiter, int expectedNumberOfFields) throws IOException {
-		FileConfiguration configuration = new FileConfiguration();
-		configuration.setDelimiter(delimiter);
-		configuration.setExpectedNumberOfFields(expectedNumberOfFields);
-		configuration.setContainsHeader(false);
-		readFile(inputFile, configuration, false);
-	}
-	
-	/**
-	 * Processes the specified file. For each line that is read, a {@link LineSplitEvent} is broadcasted. Any line
-	 * that does not meet the specified criteria (Delimiter and Expected Number of Fields) has a {@link MalformedLineEvent} broadcasted.
-	 * This method assumes there is no file header present.
-	 * 
-	 * <br><br> 
-	 * 
-	 * This method does not perform any sort of validation on any of the lines of the file.
-	 * 
-	 * <br><br>
-	 * 
-	 * This processor reads in data into a 4KB buffer. If no EOR marker ('\n') is detected in the buffer (i.e. A record is larger than 4096 bytes),
-	 * then the buffer size will automatically double recursively until an EOR marker is detected.
-	 * 
-	 * <br><br>
-	 * 
-	 * <b>This processor will throw a {@link BufferExceededException} if the buffer size exceeds 25MB, as this most likely indicates a malformed file.</b>
-	 * 
-	 * @param inputFile
-	 * 		The input file to process.
-	 * @param delimiter
-	 * 		The expected delimiter of the file.
-	 * @param expectedNumberOfFields
-	 * 		The expected number of fields for each record in the file.
-	 * @throws IOException
-	 */
-	public void readFile(File inputFile, String delimiter, int expectedNumberOfFields, boolean containsHeader) throws IOException {
-		FileConfiguration configuration = new FileConfiguration();
-		configuration.setDelimiter(delimiter);
-		configuration.setExpectedNumberOfFields(expectedNumberOfFields);
-		configuration.setContainsHeader(containsHeader);
-		readFile(inputFile, configuration, false);
-	}
-	
-	/**
-	 * Processes the specified file. For each line that is read, a {@link LineSplitEvent} is broadcasted. Any line
-	 * that does not meet the specified criteria (Delimiter and Expected Number of Fields) has a {@link MalformedLineEvent} broadcasted.
-	 * 
-	 * <br><br>
-	 * 
-	 * This processor reads in data into a 4KB buffer. If no EOR marker ('\n') is detected in the buffer (i.e. A record is larger than 4096 bytes),
-	 * then the buffer size will automatically double recursively until an EOR marker is detected.
-	 * 
-	 * <br><br>
-	 * 
-	 * <b>This processor will throw a {@link BufferExceededException} if the buffer size exceeds 25MB, as this most likely indicates a malformed file.</b>
-	 * 
-	 * @param inputFile
-	 * 		The input file to process.
-	 * @param delimiter
-	 * 		The expected delimiter of the file.
-	 * @param expectedNumberOfFields
-	 * 		The expected number of fields for each record in the file.
-	 * @param containsHeader
-	 * 		True if the file contains a header line. False otherwise. 
-	 * @throws IOException
-	 */
-    public void readFile(File inputFile, FileConfiguration fileConfiguration, boolean performValidation) throws IOException {
-    	// We will skip line read events if we are performing validation.
-    	boolean skipLineReadEvents = performValidation;
-    	Stopwatch fileProcessingClock = Stopwatch.createStarted();
-    	LOGGER.info("Started reading file: " + inputFile.getAbsolutePath());
-    	char delimiterChar = fileConfiguration.getDelimiter().charAt(0);
-    	eventPublisher.publishEvent(new FileStartedProcessingEvent(inputFile));
-        ByteBuffer buf = ByteBuffer.allocate(bufferSize);
-        long recordsRead = 0;
-
-        try (FileChannel channel  = FileChannel.open(inputFile.toPath())) {
-            // Read in the first block of data into the buffer.
-            int bytesRead = channel.read(buf);
-            buf.flip();
-            String lineEnding = "\r\n";
-            // Continue while we have read some bytes in from the file.
-            while (bytesRead != -1) {
-                ByteBuffer workBuf = buf;
-                // While there are still bytes remaining in the work buffer...
-                while (workBuf.hasRemaining()) {
-                	// If we hit a new line character...
-                    if (workBuf.get() == '\n') {
-                    	// Create a new buffer with the same data backed array.
-                        ByteBuffer lineBuf = workBuf.duplicate();
-                        // If if the previous byte was a carriage return because we're on windows
-                        // Then set the line buffer's position to be two back. This will yield the entire entry
-                        // without the CRLF.
-                        if (workBuf.position() > 1 && '\r' == workBuf.get(workBuf.position() - 2)) {
-                            lineBuf.position(lineBuf.position() - lineSeparator.length() - 1).flip();
-                        }
-                        // Otherwise, just move the position back one to handle UNIX LF. This will yield the entire entry
-                        // without the LF.
-                        else {
-                        	lineEnding = "\n";
-                            lineBuf.position(lineBuf.position() - lineSeparator.length()).flip();
-                        }
-                        recordsRead++;
-                        // If the file contains a header and this is the first record we are reading, then skip it because we aren't concerned about headers.
-                        if (fileConfiguration.isContainsHeader() && recordsRead == 1) {
-                        	// Skip this line!
-                        }
-                        else {
-                        	CharBuffer decodedCurrentLineBuffer = Charsets.US_ASCII.decode(lineBuf);
-                        	String originalLine = decodedCurrentLineBuffer.toString();
-                        	Optional<String[]> splitLine = lineSplitter.splitLine(inputFile, decodedCurrentLineBuffer, delimiterChar, fileConfiguration.getExpectedNumberOfFields(), recordsRead, skipLineReadEvents);
-                        	if (performValidation) {
-                        		if (splitLine.isPresent()) {
-                            		if (validateLine(splitLine.get(), recordsRead, fileConfiguration.getFileFields())) {
-                            			// Let all listeners know of a successfully validated line.
-                            			eventPublisher.publishEvent(new LineValidatedEvent(originalLine + lineEnding, splitLine.get()));
-                            		}
-                        		}
-                        	}
-                        }
-                    	workBuf = workBuf.slice();
-                    }
-                }
-                buf.position(workBuf.arrayOffset());
-                buf.compact();
-                bytesRead = channel.read(buf);
-                if (bytesRead == 0) {
-                	LOGGER.warn("There are currently {} bytes in the allocated buffer and we have not hit an EOR marking.", buf.capacity());
-                	LOGGER.warn("Doubling buffer size and reading in to expand search. Typically, encountering this means you have a severely malformed file.");
-                	ByteBuffer bigBoyBuffer = ByteBuffer.allocate(buf.capacity() * 2);
-                	if (bigBoyBuffer.capacity() > maxBufferCapacity) {
-                		throw new BufferExceededException();
-                	}
-                	bigBoyBuffer.put(buf);
-                	bigBoyBuffer.position(buf.position());
-                	bytesRead = channel.read(bigBoyBuffer);
-                	buf = bigBoyBuffer;
-                }
-                buf.flip();
-            }
-            // If the file did not end in a LF or CRLF, then we would not have processed any bytes from the previously found LF until now.
-            // This info is **probably** a malformed record, but we'll go ahead and process it anyway.
-            if (buf.limit() != 0) {
-            	LOGGER.info("Detected EOF with an additional {} bytes left over. EOR marker not detected. Will attempt to process the unprocessed bytes, but this will most likely end up as a malformed line...", buf.limit());
-            	recordsRead++;
-            	lineSplitter.splitLine(inputFile, Charsets.US_ASCII.decode(buf), delimiterChar, fileConfiguration.getExpectedNumberOfFields(), recordsRead, skipLineReadEvents);
-            }
-            channel.close();
-        }
-        fileProcessingClock.stop();
-        // If the file contains a header, remove one of the records read so we don't keep it in our totals.
-        if (fileConfiguration.isContainsHeader()) {
-        	recordsRead--;
-        }
-        eventPublisher.publishEvent(new FileCompletedProcessingEvent(inputFile, recordsRead));
-    }
-    
-	/**
-	 * Processes the specified file. For each line that is read, validation is done according to the provided configuration file. Below is an example of a configuration file with 1 field. 
-	 * 
-	 * <br><br>
-	 * <pre>
-	 * {@code
-	 * <?xml version="1.0"?>
-	 * <ps>
-     *    <delimiter>,</delimiter>
-     *    <containsHeader>true</containsHeader>
-     *    <field>
-     *        <name>eDocJobID</name>
-     *        <description>Mail.dat Job ID of the eDoc that the mailpiece is associated to. Job IDs are user managed, but must remain unique within one User License Code. Mail.dat Field Code: SEG-1001</description>
-     *        <validationRule>
-     *            <id>3</id>
-     *            <metadata>8</metadata>
-     *        </validationRule>
-     *    </field>
-     * </ps>
-	 * }
-	 * </pre>
-	 * 
-	 * Any line that does not meet the specified criteria (Delimiter and Expected Number of Fields) has a {@link MalformedLineEvent} broadcasted. <br>
-	 * For each line that is read and successfully validated, a {@link LineValidatedEvent} is broadcasted. <br>
-	 * For each line that is read and fails validation, an {@link InvalidLineEvent} is broadcasted.
-	 * 
-	 * <br><br>
-	 * 
-	 * This processor reads in data into a 4KB buffer. If no EOR marker ('\n') is detected in the buffer (i.e. A record is larger than 4096 bytes),
-	 * then the buffer size will automatically double recursively until an EOR marker is detected.
-	 * 
-	 * <br><br>
-	 * 
-	 * <b>This processor will throw a {@link BufferExceededException} if the buffer size exceeds 25MB, as this most likely indicates a malformed file.</b>
-	 * 
-	 * @param inputFile
-	 * 		The input file to process.
-	 * @param configurationFile
-	 * 		The configuration file containing information about the file to process.
-	 * @throws IOException
-	 */
-    public void readAndValidateFile(File inputFile, File configurationFile) throws IOException, ParserConfigurationException, SAXException {
-    	FileConfiguration config = fileConfigurationLoader.loadConfigurationFile(configurationFile);
-    	readFile(inputFile, config, true);
-    }
-    
-	private boolean validateLine(String[] splitLine, long lineNumber, List<FileField> fileFields) {
-		boolean isLineValid = true;
-        RecordValidationResult recordValidationResult = performValidation(splitLine, lineNumber, fileFields);
-        if (!recordValidationResult.isValid()) {
-        	isLineValid = false;
-        	for (ValidationFailure validationFailure : recordValidationResult.getValidationErrors()) {
-        		if (LOGGER.isErrorEnabled()) {
-            		LOGGER.error("Field Position {} ({}) of Record {} failed validation on Rule ID: {} with supplied value \"{}\"",
-            			validationFailure.getField().getPosition(),
-            			validationFailure.getField().getName(),
-            			Arrays.toString(recordValidationResult.getValue()),
-        				validationFailure.getRule().getRuleId(),
-        				validationFailure.getFieldValue());
-        		}
-        	}
-        	eventPublisher.publishEvent(new InvalidLineEvent(recordValidationResult));
-        }
-        return isLineValid;
-	}
-    
-	protected RecordValidationResult performValidation(String[] input, long lineNumber, List<FileField> fileFields) {
-		RecordValidationResult validationResult = new RecordValidationResult(input);
-		for (int i = 0; i < input.length; i++) {
-			FileField field = fileFields.get(i);
-			for (ValidationRule validationRule : field.getValidationRules()) {
-				Class<? extends AbstractInputValidationRule> validationRuleClass = validationRules.get(validationRule.getRuleId());
-				if (validationRuleClass != null) {
-					LOGGER.trace("Validating field: {} against Validation Rule ID: {} with Metadata: {}",
-						input[i],
-						validationRule.getRuleId(),
-						validationRule.getMetadata());
-					AbstractInputValidationRule ruleToValidateAgainst = validationRules.getInstance(
-						validationRule.getRuleId(),
-						validationRule.getMetadata(),
-						validationRule.shouldNotifyImmediately());
-					if (!ruleToValidateAgainst.validate(input[i])) {
-						validationResult.addValidationError(new ValidationFailure(field, input[i], lineNumber, ruleToValidateAgainst));
-					}
-				}
-				else {
-					LOGGER.warn("Validation rule not found for ID: {}", validationRule.getRuleId());
-				}
-			}
-		}
-		return validationResult;
-	}
-    
-    @Autowired
-	public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
-		this.eventPublisher = eventPublisher;
-	}
-    
-    @Autowired
-    public void setLineSplitter(LineSplitter lineSplitter) {
-    	this.lineSplitter = lineSplitter;
-    }
-    
-    @Autowired
-    public void setFileConfigurationLoader(FileConfigurationLoader fileConfigurationLoader) {
-    	this.fileConfigurationLoader = fileConfigurationLoader;
-    }
-
-    @Autowired
-	public void setValidationRules(ValidationRules validationRules) {
-		this.validationRules = validationRules;
-	}
-}
+package com.rprescott.fileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.xml.sax.SAXException;
+
+import com.google.common.base.Stopwatch;
+import com.rprescott.fileprocessor.events.FileAbortedProcessingEvent;
+import com.rprescott.fileprocessor.events.FileCompletedProcessingEvent;
+import com.rprescott.fileprocessor.events.FileStartedProcessingEvent;
+import com.rprescott.fileprocessor.events.InvalidLineEvent;
+import com.rprescott.fileprocessor.events.LineBatchSplitEvent;
+import com.rprescott.fileprocessor.events.LineSplitEvent;
+import com.rprescott.fileprocessor.events.LineValidatedEvent;
+import com.rprescott.fileprocessor.events.MalformedLineEvent;
+import com.rprescott.fileprocessor.events.ValidatedBatchEvent;
+import com.rprescott.fileprocessor.exceptions.BufferExceededException;
+import com.rprescott.fileprocessor.metrics.FileMetrics;
+import com.rprescott.fileprocessor.metrics.ProcessingMetrics;
+import com.rprescott.fileprocessor.validation.FileConfiguration;
+import com.rprescott.fileprocessor.validation.FileConfigurationLoader;
+import com.rprescott.fileprocessor.validation.FileField;
+import com.rprescott.fileprocessor.validation.RecordValidationResult;
+import com.rprescott.fileprocessor.validation.RuleOrdering;
+import com.rprescott.fileprocessor.validation.ValidationFailure;
+import com.rprescott.fileprocessor.validation.ValidationFailureAggregator;
+import com.rprescott.fileprocessor.validation.ValidationFailureSummary;
+import com.rprescott.fileprocessor.validation.ValidationCache;
+import com.rprescott.fileprocessor.validation.ValidationPlan;
+import com.rprescott.fileprocessor.validation.rules.AbstractInputValidationRule;
+import com.rprescott.fileprocessor.validation.rules.UniqueValidationRule;
+import com.rprescott.fileprocessor.validation.rules.ValidationRules;
+
+/**
+ * 
+ * @author rprescott
+ *
+ */
+@Component
+public class FileProcessor {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileProcessor.class);
+	private static final byte LF = '\n';
+	
+    private int bufferSize = 4096;
+    /** 25MB Max Buffer Capacity */
+    private int maxBufferCapacity = 26214400;
+    /** 16MB Parallel Chunk Size */
+    private int parallelChunkSize = 16777216;
+    private ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+    // Defaults to 8 blocks of 1MB in flight between the reader, workers and publisher.
+    private int pipelineRingSize = 8;
+    private int pipelineBlockSize = 1048576;
+	private ApplicationEventPublisher eventPublisher;
+	private LineSplitter lineSplitter;
+	private FileConfigurationLoader fileConfigurationLoader;
+	private ValidationRules validationRules;
+	private ProcessingMetrics processingMetrics = new ProcessingMetrics();
+	private BufferPool bufferPool = new BufferPool();
+	private ByteScanner byteScanner = new SwarByteScanner();
+	
+	/**
+	 * Processes the specified file. For each line that is read, a {@link LineSplitEvent} is broadcasted. Any line
+	 * that does not meet the specified criteria (Delimiter and Expected Number of Fields) has a {@link MalformedLineEvent} broadcasted.
+	 * This method assumes there is no file header present.
+	 * 
+	 * <br><br> 
+	 * 
+	 * This method does not perform any sort of validation on any of the lines of the file.
+	 * 
+	 * <br><br>
+	 * 
+	 * This processor reads in data into a 4KB buffer. If no EOR marker ('\n') is detected in the buffer (i.e. A record is larger than 4096 bytes),
+	 * then the buffer size will automatically double recursively until an EOR marker is detected.
+	 * 
+	 * <br><br>
+	 * 
+	 * <b>This processor will throw a {@link BufferExceededException} if the buffer size exceeds 25MB, as this most likely indicates a malformed file.</b>
+	 * 
+	 * @param inputFile
+	 * 		The input file to process.
+	 * @param delimiter
+	 * 		The expected delimiter of the file.
+	 * @param expectedNumberOfFields
+	 * 		The expected number of fields for each record in the file.
+	 * @throws IOException
+	 */
+	public void readFile(File inputFile, String delimiter, int expectedNumberOfFields) throws IOException {
+		FileConfiguration configuration = new FileConfiguration();
+		configuration.setDelimiter(delimiter);
+		configuration.setExpectedNumberOfFields(expectedNumberOfFields);
+		configuration.setContainsHeader(false);
+		readFile(inputFile, configuration, false);
+	}
+	
+	/**
+	 * Processes the specified file. For each line that is read, a {@link LineSplitEvent} is broadcasted. Any line
+	 * that does not meet the specified criteria (Delimiter and Expected Number of Fields) has a {@link MalformedLineEvent} broadcasted.
+	 * This method assumes there is no file header present.
+	 * 
+	 * <br><br> 
+	 * 
+	 * This method does not perform any sort of validation on any of the lines of the file.
+	 * 
+	 * <br><br>
+	 * 
+	 * This processor reads in data into a 4KB buffer. If no EOR marker ('\n') is detected in the buffer (i.e. A record is larger than 4096 bytes),
+	 * then the buffer size will automatically double recursively until an EOR marker is detected.
+	 * 
+	 * <br><br>
+	 * 
+	 * <b>This processor will throw a {@link BufferExceededException} if the buffer size exceeds 25MB, as this most likely indicates a malformed file.</b>
+	 * 
+	 * @param inputFile
+	 * 		The input file to process.
+	 * @param delimiter
+	 * 		The expected delimiter of the file.
+	 * @param expectedNumberOfFields
+	 * 		The expected number of fields for each record in the file.
+	 * @throws IOException
+	 */
+	public void readFile(File inputFile, String delimiter, int expectedNumberOfFields, boolean containsHeader) throws IOException {
+		FileConfiguration configuration = new FileConfiguration();
+		configuration.setDelimiter(delimiter);
+		configuration.setExpectedNumberOfFields(expectedNumberOfFields);
+		configuration.setContainsHeader(containsHeader);
+		readFile(inputFile, configuration, false);
+	}
+	
+	/**
+	 * Processes the specified file. For each line that is read, a {@link LineSplitEvent} is broadcasted. Any line
+	 * that does not meet the specified criteria (Delimiter and Expected Number of Fields) has a {@link MalformedLineEvent} broadcasted.
+	 * 
+	 * <br><br>
+	 * 
+	 * This processor reads in data into a 4KB buffer. If no EOR marker ('\n') is detected in the buffer (i.e. A record is larger than 4096 bytes),
+	 * then the buffer size will automatically double recursively until an EOR marker is detected.
+	 * 
+	 * <br><br>
+	 * 
+	 * A gzip compressed file (recognised by its magic number, whatever its name) is decompressed as it is read, straight into the same
+	 * buffer, so it never needs to be decompressed to disk first. The members of a file written by bgzip are inflated on several threads
+	 * of the {@link ForkJoinPool} at once. Line numbers and the buffer limit apply to the decompressed bytes.
+	 * 
+	 * <br><br>
+	 * 
+	 * If the configuration is {@link FileConfiguration#isFixedWidth() fixed width}, each field is sliced out of the record at the offset and
+	 * length of its {@link FileField} instead of being found by a delimiter. If it also has a {@link FileConfiguration#getRecordLength() record length},
+	 * the records have no EOR marker and the file is read a whole number of records at a time.
+	 * 
+	 * <br><br>
+	 * 
+	 * <b>This processor will throw a {@link BufferExceededException} if the buffer size exceeds 25MB, as this most likely indicates a malformed file.</b>
+	 * 
+	 * @param inputFile
+	 * 		The input file to process.
+	 * @param delimiter
+	 * 		The expected delimiter of the file.
+	 * @param expectedNumberOfFields
+	 * 		The expected number of fields for each record in the file.
+	 * @param containsHeader
+	 * 		True if the file contains a header line. False otherwise. 
+	 * @throws IOException
+	 */
+    public void readFile(File inputFile, FileConfiguration fileConfiguration, boolean performValidation) throws IOException {
+    	readFile(inputFile, fileConfiguration, performValidation, new ProcessingOptions());
+    }
+
+	/**
+	 * Processes the specified file exactly as {@link #readFile(File, FileConfiguration, boolean)} does, using the supplied options for this call.
+	 * 
+	 * <br><br>
+	 * 
+	 * If {@link ProcessingOptions#isBatchingEvents()} is true, consecutive {@link LineSplitEvent}s are broadcasted together as a
+	 * {@link LineBatchSplitEvent} and consecutive {@link LineValidatedEvent}s as a {@link ValidatedBatchEvent}. Any partially filled batch is
+	 * broadcasted before any other event and at EOF, so it always arrives before the {@link FileCompletedProcessingEvent}.
+	 * 
+	 * <br><br>
+	 * 
+	 * If {@link ProcessingOptions#isCheckpointing()} is true, the progress through the file is written to a sidecar file as it is
+	 * processed, so that {@link #resume(File, FileConfiguration, boolean, ProcessingOptions)} can continue from the last
+	 * checkpoint if processing is interrupted. The sidecar file is removed once the file has been completely processed. Compressed files
+	 * cannot be checkpointed.
+	 * 
+	 * <br><br>
+	 * 
+	 * If {@link ProcessingOptions#isFollowing()} is true, the file is treated as still being written. Each complete line is processed
+	 * as soon as it has been read, and on reaching the end of the file the channel is kept open and polled for more data until a trailer
+	 * record is read, a marker file appears or the file has been idle for too long, whichever of these the options ask for. Only then is
+	 * any unterminated last line processed and the {@link FileCompletedProcessingEvent} broadcasted. Compressed files cannot be followed.
+	 * 
+	 * <br><br>
+	 * 
+	 * If the configuration {@link FileConfiguration#hasErrorBudget()}, reading stops as soon as more of the records read so far are
+	 * malformed or invalid than it allows, and a {@link FileAbortedProcessingEvent} with the counts so far is broadcasted instead of
+	 * the {@link FileCompletedProcessingEvent}. The unterminated last line counts towards the budget like any other, and any checkpoint
+	 * is deleted, so that the file is never resumed part way through with a fresh budget. Only this method and
+	 * {@link #resume(File, FileConfiguration, boolean, ProcessingOptions)} keep to the budget.
+	 * 
+	 * @param inputFile
+	 * 		The input file to process.
+	 * @param fileConfiguration
+	 * 		The configuration describing the file.
+	 * @param performValidation
+	 * 		True to validate each line against the configured fields. False to only split each line.
+	 * @param options
+	 * 		The options to use for this call.
+	 * @return The number of records read, not counting any header line.
+	 * @throws IOException
+	 */
+    public long readFile(File inputFile, FileConfiguration fileConfiguration, boolean performValidation, ProcessingOptions options) throws IOException {
+    	return readFile(inputFile, fileConfiguration, performValidation, options, null);
+    }
+
+    /**
+     * Continues processing the specified file from the last checkpoint written by
+     * {@link #readFile(File, FileConfiguration, boolean, ProcessingOptions)}. The channel is positioned just after the last line
+     * whose events had been broadcasted when the checkpoint was written, and the line counter is restored, so no line before the
+     * checkpoint is broadcasted again and every line keeps the line number it would have had. Lines broadcasted after the last
+     * checkpoint was written are broadcasted again; the closer together the checkpoints, the fewer these are, and a listener that
+     * must see each line exactly once can discard the line numbers it has already handled. If there is no checkpoint, the file is
+     * processed from the beginning.
+     * 
+     * <br><br>
+     * 
+     * A {@link FileStartedProcessingEvent} is broadcasted for the resumed call, and the {@link FileCompletedProcessingEvent} counts
+     * the records of both calls. Checkpoints continue to be written if the options ask for them.
+     * 
+     * @param inputFile
+     * 		The input file to process.
+     * @param fileConfiguration
+     * 		The configuration describing the file.
+     * @param performValidation
+     * 		True to validate each line against the configured fields. False to only split each line.
+     * @param options
+     * 		The options to use for this call. The checkpoint is read from {@link ProcessingOptions#getCheckpointFile()} if it is set.
+     * @return The number of records read by both calls, not counting any header line.
+     * @throws IOException
+     */
+    public long resume(File inputFile, FileConfiguration fileConfiguration, boolean performValidation, ProcessingOptions options) throws IOException {
+    	File checkpointFile = Checkpointer.checkpointFileFor(inputFile, options);
+    	Checkpointer.Checkpoint checkpoint = Checkpointer.read(checkpointFile);
+    	if (checkpoint == null) {
+    		LOGGER.info("No checkpoint found at {}. Processing from the beginning.", checkpointFile.getAbsolutePath());
+    	}
+    	else {
+    		LOGGER.info("Resuming file: {} after line {} at offset {}.", inputFile.getAbsolutePath(), checkpoint.linesRead, checkpoint.offset);
+    	}
+    	return readFile(inputFile, fileConfiguration, performValidation, options, checkpoint);
+    }
+
+    private long readFile(File inputFile, FileConfiguration fileConfiguration, boolean performValidation, ProcessingOptions options,
+    		Checkpointer.Checkpoint checkpoint) throws IOException {
+    	// We will skip line read events if we are performing validation.
+    	boolean skipLineReadEvents = performValidation;
+    	Stopwatch fileProcessingClock = Stopwatch.createStarted();
+    	LOGGER.info("Started reading file: " + inputFile.getAbsolutePath());
+    	char delimiterChar = delimiterOf(fileConfiguration);
+    	FixedWidthLayout layout = fileConfiguration.isFixedWidth() ? FixedWidthLayout.compile(fileConfiguration) : null;
+    	// Compile the rules once so they can be reused for every record of the file.
+    	ValidationPlan validationPlan = performValidation ? compileValidationPlan(fileConfiguration, options) : null;
+    	ValidationFailureAggregator failures = performValidation ? new ValidationFailureAggregator(options.getFailureExamples(), options.getFailureLogsPerSecond()) : null;
+    	eventPublisher.publishEvent(new FileStartedProcessingEvent(inputFile));
+    	BatchingEventPublisher batchingPublisher = options.isBatchingEvents() ? new BatchingEventPublisher(eventPublisher, inputFile, options, validationPlan) : null;
+    	ApplicationEventPublisher linePublisher = batchingPublisher != null ? batchingPublisher : eventPublisher;
+    	FileMetrics metrics = processingMetrics.newFileMetrics();
+    	Checkpointer checkpointer = options.isCheckpointing() ?
+    		new Checkpointer(Checkpointer.checkpointFileFor(inputFile, options), options.getCheckpointEveryRecords(), options.getCheckpointEveryMillis()) : null;
+    	ErrorBudget errorBudget = ErrorBudget.of(fileConfiguration);
+    	boolean aborted = false;
+        RecordFramer framer = new RecordFramer(byteScanner, fileConfiguration);
+        // The buffer is borrowed from the pool once the file is open, and returned to it once the file has been read.
+        ByteBuffer pooledBuffer = null;
+        ByteRecord record = new ByteRecord();
+        record.setProjection(projectionOf(fileConfiguration, validationPlan));
+        long recordsRead = checkpoint != null ? checkpoint.linesRead : 0;
+        // The offset within the file of the first byte in the buffer.
+        long bufferOffset = checkpoint != null ? checkpoint.offset : 0;
+
+        try (FileChannel channel  = FileChannel.open(inputFile.toPath());
+        		ReadableByteChannel input = openInput(channel, inputFile)) {
+        	// Fixed length records are read a whole number of records at a time, so no partial record is left over to move. The
+        	// buffer holds at least one record, however long the records are.
+        	pooledBuffer = bufferPool.acquire(framer.isFixedLength() ? Math.max(bufferSize, layout.getRecordLength()) : bufferSize);
+        	ByteBuffer buf = framer.isFixedLength() ? sliceWholeRecords(pooledBuffer, layout.getRecordLength()) : pooledBuffer;
+        	if (input != channel && (checkpointer != null || checkpoint != null || options.isFollowing())) {
+        		throw new IOException("Checkpointing and following are not supported for compressed file: " + inputFile.getAbsolutePath());
+        	}
+        	if (checkpoint != null) {
+        		if (bufferOffset > channel.size()) {
+        			throw new IOException("Checkpoint offset " + bufferOffset + " is beyond the end of file: " + inputFile.getAbsolutePath());
+        		}
+        		channel.position(bufferOffset);
+        	}
+        	FileFollower follower = options.isFollowing() ? new FileFollower(channel, inputFile, options) : null;
+            // Read in the first block of data into the buffer.
+            int bytesRead = read(input, buf, metrics, follower, batchingPublisher);
+            buf.flip();
+            String lineEnding = framer.isFixedLength() ? "" : checkpoint == null || checkpoint.crlf ? "\r\n" : "\n";
+            // The bytes before this index have already been searched for an EOR marker without finding one.
+            int searchStart = 0;
+            boolean trailerFound = false;
+            // Continue while we have read some bytes in from the file.
+            while (bytesRead != -1) {
+            	// A view of the buffer whose position and limit are moved to frame each line in turn.
+            	ByteBuffer lineBuf = buf.duplicate();
+            	int lineStart = 0;
+                for (int i = framer.nextRecordEnd(buf, 0, searchStart, buf.limit()); i != -1; i = framer.nextRecordEnd(buf, i + 1, i + 1, buf.limit())) {
+                	// We hit a new line character that is not within a quoted field...
+                	int lineEnd = i;
+                	// ...or the last byte of a fixed length record, which has no EOR marker to leave off.
+                	if (framer.isFixedLength()) {
+                		lineEnd++;
+                	}
+                    // If the previous byte was a carriage return because we're on windows, then leave it off as well.
+                    // This will yield the entire entry without the CRLF.
+                    else if (i > lineStart && '\r' == buf.get(i - 1)) {
+                    	lineEnd--;
+                    }
+                    // Otherwise, this is a UNIX LF. This will yield the entire entry without the LF.
+                    else {
+                    	lineEnding = "\n";
+                    }
+                    if (follower != null && follower.isTrailer(buf, lineStart, lineEnd)) {
+                    	trailerFound = true;
+                    	lineStart = i + 1;
+                    	break;
+                    }
+                    recordsRead++;
+                    // If the file contains a header and this is the first record we are reading, then skip it because we aren't concerned about headers.
+                    if (fileConfiguration.isContainsHeader() && recordsRead == 1) {
+                    	// Skip this line!
+                    }
+                    else {
+                    	lineBuf.limit(lineEnd).position(lineStart);
+                    	int outcome = processLine(inputFile, lineBuf, lineEnding, fileConfiguration, delimiterChar, layout, recordsRead, validationPlan, record, linePublisher, metrics, failures);
+                    	if (errorBudget != null && errorBudget.record(outcome)) {
+                    		aborted = true;
+                    		break;
+                    	}
+                    }
+                    lineStart = i + 1;
+                    if (checkpointer != null && checkpointer.isDue()) {
+                    	// Every event before the checkpoint must have been broadcasted, including any held back in a batch.
+                    	if (batchingPublisher != null) {
+                    		batchingPublisher.flush();
+                    	}
+                    	checkpointer.write(bufferOffset + lineStart, recordsRead, "\r\n".equals(lineEnding));
+                    }
+                }
+                if (aborted) {
+                	break;
+                }
+                if (trailerFound) {
+                	if (lineStart < buf.limit()) {
+                		LOGGER.warn("Ignoring {} bytes after the trailer record of file: {}", buf.limit() - lineStart, inputFile.getAbsolutePath());
+                	}
+                	LOGGER.info("Detected the trailer record after line {} of file: {}", recordsRead, inputFile.getAbsolutePath());
+                	bufferOffset += lineStart;
+                	buf.limit(0);
+                	break;
+                }
+                // Move the unprocessed bytes of the last (partial) line to the front of the buffer and read in more behind them.
+                buf.position(lineStart);
+                buf.compact();
+                bufferOffset += lineStart;
+                searchStart = buf.position();
+                bytesRead = read(input, buf, metrics, follower, batchingPublisher);
+                if (bytesRead == 0) {
+                	LOGGER.warn("There are currently {} bytes in the allocated buffer and we have not hit an EOR marking.", buf.capacity());
+                	LOGGER.warn("Doubling buffer size and reading in to expand search. Typically, encountering this means you have a severely malformed file.");
+                	if (buf.capacity() * 2 > maxBufferCapacity) {
+                		throw new BufferExceededException();
+                	}
+                	// The larger buffer comes from the pool as well, and the full one goes back to it.
+                	buf = pooledBuffer = bufferPool.grow(buf);
+                	if (metrics != null) {
+                		metrics.recordBufferGrowth();
+                	}
+                	bytesRead = read(input, buf, metrics, follower, batchingPublisher);
+                }
+                buf.flip();
+            }
+            // If the file did not end in a LF or CRLF, then we would not have processed any bytes from the previously found LF until now.
+            // This info is **probably** a malformed record, but we'll go ahead and process it anyway.
+            if (!aborted && buf.limit() != 0) {
+            	LOGGER.info("Detected EOF with an additional {} bytes left over. EOR marker not detected. Will attempt to process the unprocessed bytes, but this will most likely end up as a malformed line...", buf.limit());
+            	recordsRead++;
+            	int outcome = processTrailingRecord(inputFile, buf, fileConfiguration, delimiterChar, layout, recordsRead, skipLineReadEvents, record, linePublisher, metrics);
+            	if (errorBudget != null && errorBudget.record(outcome)) {
+            		aborted = true;
+            	}
+            }
+            // Publish any partially filled batch before the file is reported as complete.
+            if (batchingPublisher != null) {
+            	batchingPublisher.flush();
+            }
+            // Checkpoint the end of the file, so that resuming after a failure to report completion does not repeat any lines.
+            if (checkpointer != null && !aborted) {
+            	checkpointer.write(bufferOffset + buf.limit(), recordsRead, "\r\n".equals(lineEnding));
+            }
+            channel.close();
+        }
+        finally {
+        	if (pooledBuffer != null) {
+        		bufferPool.release(pooledBuffer);
+        	}
+        }
+        fileProcessingClock.stop();
+        // If the file contains a header, remove one of the records read so we don't keep it in our totals.
+        if (fileConfiguration.isContainsHeader()) {
+        	recordsRead--;
+        }
+        if (aborted) {
+        	LOGGER.error("Abandoned file: {} after {} records, of which {} were malformed and {} were invalid, in {}", inputFile.getAbsolutePath(), recordsRead,
+        		errorBudget.getMalformedRecords(), errorBudget.getInvalidRecords(), fileProcessingClock);
+        	if (metrics != null) {
+        		metrics.setRecordsRead(recordsRead);
+        		metrics.setElapsedNanos(fileProcessingClock.elapsed(TimeUnit.NANOSECONDS));
+        	}
+        	eventPublisher.publishEvent(new FileAbortedProcessingEvent(inputFile, recordsRead, errorBudget.getMalformedRecords(), errorBudget.getInvalidRecords(), metrics));
+        	if (checkpointer != null) {
+        		checkpointer.delete();
+        	}
+        	return recordsRead;
+        }
+        LOGGER.info("Finished reading file: {} in {}", inputFile.getAbsolutePath(), fileProcessingClock);
+        publishFileCompleted(inputFile, recordsRead, fileProcessingClock, metrics, failures);
+        if (checkpointer != null) {
+        	checkpointer.delete();
+        }
+        return recordsRead;
+    }
+    
+	/**
+	 * Processes the specified file. For each line that is read, validation is done according to the provided configuration file. Below is an example of a configuration file with 1 field. 
+	 * 
+	 * <br><br>
+	 * <pre>
+	 * {@code
+	 * <?xml version="1.0"?>
+	 * <ps>
+     *    <delimiter>,</delimiter>
+     *    <containsHeader>true</containsHeader>
+     *    <field>
+     *        <name>eDocJobID</name>
+     *        <description>Mail.dat Job ID of the eDoc that the mailpiece is associated to. Job IDs are user managed, but must remain unique within one User License Code. Mail.dat Field Code: SEG-1001</description>
+     *        <validationRule>
+     *            <id>3</id>
+     *            <metadata>8</metadata>
+     *        </validationRule>
+     *    </field>
+     * </ps>
+	 * }
+	 * </pre>
+	 * 
+	 * Any line that does not meet the specified criteria (Delimiter and Expected Number of Fields) has a {@link MalformedLineEvent} broadcasted. <br>
+	 * For each line that is read and successfully validated, a {@link LineValidatedEvent} is broadcasted. <br>
+	 * For each line that is read and fails validation, an {@link InvalidLineEvent} is broadcasted.
+	 * 
+	 * <br><br>
+	 * 
+	 * This processor reads in data into a 4KB buffer. If no EOR marker ('\n') is detected in the buffer (i.e. A record is larger than 4096 bytes),
+	 * then the buffer size will automatically double recursively until an EOR marker is detected.
+	 * 
+	 * <br><br>
+	 * 
+	 * <b>This processor will throw a {@link BufferExceededException} if the buffer size exceeds 25MB, as this most likely indicates a malformed file.</b>
+	 * 
+	 * @param inputFile
+	 * 		The input file to process.
+	 * @param configurationFile
+	 * 		The configuration file containing information about the file to process.
+	 * @throws IOException
+	 */
+    public void readAndValidateFile(File inputFile, File configurationFile) throws IOException, ParserConfigurationException, SAXException {
+    	FileConfiguration config = fileConfigurationLoader.loadConfigurationFile(configurationFile);
+    	readFile(inputFile, config, true);
+    }
+    
+    /**
+     * Processes the specified file on several threads. The file is memory mapped and divided into chunks of roughly
+     * {@link #setParallelChunkSize(int)} bytes, each of which ends just after a LF so that no record spans two chunks. The
+     * chunks are then split (and optionally validated) on the configured {@link ForkJoinPool}. A gzip compressed file cannot be
+     * divided into chunks, and nor can a file whose configuration has a quote, as a record may then span lines; either is
+     * processed by {@link #readFile(File, FileConfiguration, boolean, ProcessingOptions)} instead.
+     * 
+     * <br><br>
+     * 
+     * Lines are numbered exactly as they are by {@link #readFile(File, FileConfiguration, boolean)}, the header line is skipped
+     * when the configuration says one is present, and a final record without an EOR marker is split but not validated, just as
+     * it is on the single threaded path.
+     * 
+     * <br><br>
+     * 
+     * When preserveOrder is true, the {@link LineSplitEvent}, {@link MalformedLineEvent}, {@link LineValidatedEvent} and
+     * {@link InvalidLineEvent} broadcasts are held back per chunk and published from the calling thread in file order. When it
+     * is false, each worker publishes its events as soon as they happen, so listeners must be thread safe and must not rely on
+     * the order of the events.
+     * 
+     * <br><br>
+     * 
+     * <b>This processor will throw a {@link BufferExceededException} if a single record is larger than 25MB, as this most likely indicates a malformed file.</b>
+     * 
+     * @param inputFile
+     * 		The input file to process.
+     * @param fileConfiguration
+     * 		The configuration describing the file.
+     * @param performValidation
+     * 		True to validate each line against the configured fields. False to only split each line.
+     * @param preserveOrder
+     * 		True to publish all line events in file order. False to publish them as soon as they are produced.
+     * @throws IOException
+     */
+    public void readFileParallel(File inputFile, FileConfiguration fileConfiguration, boolean performValidation, boolean preserveOrder) throws IOException {
+    	readFileParallel(inputFile, fileConfiguration, performValidation, preserveOrder, new ProcessingOptions());
+    }
+
+    /**
+     * Processes the specified file exactly as {@link #readFileParallel(File, FileConfiguration, boolean, boolean)} does, using the supplied
+     * options for this call. When events are batched and preserveOrder is false, each chunk publishes its own batches, so a batch never
+     * holds lines from more than one chunk.
+     */
+    public void readFileParallel(File inputFile, FileConfiguration fileConfiguration, boolean performValidation, boolean preserveOrder,
+    		ProcessingOptions options) throws IOException {
+    	if (GzipChannel.isGzip(inputFile)) {
+    		LOGGER.info("File: {} is gzip compressed, so it cannot be divided into chunks. Reading it sequentially instead.", inputFile.getAbsolutePath());
+    		readFile(inputFile, fileConfiguration, performValidation, options);
+    		return;
+    	}
+    	if (fileConfiguration.isQuoted()) {
+    		// A chunk boundary could fall on a LF within a quoted field, and there is no telling without reading from the start.
+    		LOGGER.info("File: {} may have quoted fields spanning lines, so it cannot be divided into chunks. Reading it sequentially instead.", inputFile.getAbsolutePath());
+    		readFile(inputFile, fileConfiguration, performValidation, options);
+    		return;
+    	}
+    	Stopwatch fileProcessingClock = Stopwatch.createStarted();
+    	LOGGER.info("Started reading file in parallel: " + inputFile.getAbsolutePath());
+    	char delimiterChar = delimiterOf(fileConfiguration);
+    	FixedWidthLayout layout = fileConfiguration.isFixedWidth() ? FixedWidthLayout.compile(fileConfiguration) : null;
+    	ValidationPlan validationPlan = performValidation ? compileValidationPlan(fileConfiguration, options) : null;
+    	ValidationFailureAggregator failures = performValidation ? new ValidationFailureAggregator(options.getFailureExamples(), options.getFailureLogsPerSecond()) : null;
+    	eventPublisher.publishEvent(new FileStartedProcessingEvent(inputFile));
+    	BatchingEventPublisher batchingPublisher = options.isBatchingEvents() ? new BatchingEventPublisher(eventPublisher, inputFile, options, validationPlan) : null;
+    	ApplicationEventPublisher linePublisher = batchingPublisher != null ? batchingPublisher : eventPublisher;
+    	FileMetrics metrics = processingMetrics.newFileMetrics();
+    	long recordsRead = 0;
+
+    	try (FileChannel channel = FileChannel.open(inputFile.toPath())) {
+    		if (metrics != null) {
+    			metrics.setBytesRead(channel.size());
+    		}
+    		int recordLength = layout != null ? layout.getRecordLength() : 0;
+    		List<FileChunk> chunks = recordLength > 0 ?
+    			FileChunk.split(channel.size(), parallelChunkSize, recordLength) : FileChunk.split(channel, parallelChunkSize, maxBufferCapacity);
+
+    		// First pass: count the lines in every chunk so each chunk knows the line number it starts on.
+    		List<ForkJoinTask<Integer>> lineCounts = new ArrayList<>();
+    		for (FileChunk chunk : chunks) {
+    			lineCounts.add(forkJoinPool.submit(() -> countLineFeeds(channel, chunk, recordLength)));
+    		}
+    		long nextLineNumber = 1;
+    		for (int i = 0; i < chunks.size(); i++) {
+    			FileChunk chunk = chunks.get(i);
+    			chunk.setLineCount(awaitChunk(lineCounts.get(i)));
+    			chunk.setFirstLineNumber(nextLineNumber);
+    			nextLineNumber += chunk.getLineCount();
+    		}
+
+    		// Second pass: split and validate. Only a bounded number of chunks are in flight at once so that the events held
+    		// back for ordering never grow beyond a few chunks' worth.
+    		int maxChunksInFlight = forkJoinPool.getParallelism() * 2;
+    		Deque<ForkJoinTask<Long>> inFlight = new ArrayDeque<>();
+    		Deque<BufferedEventPublisher> inFlightEvents = new ArrayDeque<>();
+    		Deque<FileMetrics> inFlightMetrics = new ArrayDeque<>();
+    		Iterator<FileChunk> pendingChunks = chunks.iterator();
+    		try {
+    			while (pendingChunks.hasNext() || !inFlight.isEmpty()) {
+    				while (pendingChunks.hasNext() && inFlight.size() < maxChunksInFlight) {
+    					FileChunk chunk = pendingChunks.next();
+    					BufferedEventPublisher chunkEvents = new BufferedEventPublisher();
+    					BatchingEventPublisher chunkBatches = !preserveOrder && batchingPublisher != null ? new BatchingEventPublisher(eventPublisher, inputFile, options, validationPlan) : null;
+    					ApplicationEventPublisher chunkPublisher = preserveOrder ? chunkEvents : chunkBatches != null ? chunkBatches : eventPublisher;
+    					// Each chunk records into its own metrics, which are only merged once the chunk is done.
+    					FileMetrics chunkMetrics = metrics != null ? new FileMetrics() : null;
+    					inFlight.add(forkJoinPool.submit(() -> {
+    						long chunkRecords = processChunk(inputFile, channel, chunk, fileConfiguration, delimiterChar, layout, validationPlan, failures, chunkPublisher, chunkMetrics);
+    						if (chunkBatches != null) {
+    							chunkBatches.flush();
+    						}
+    						return chunkRecords;
+    					}));
+    					inFlightEvents.add(chunkEvents);
+    					inFlightMetrics.add(chunkMetrics);
+    				}
+    				recordsRead += awaitChunk(inFlight.poll());
+    				inFlightEvents.poll().replay(linePublisher);
+    				FileMetrics chunkMetrics = inFlightMetrics.poll();
+    				if (chunkMetrics != null) {
+    					metrics.merge(chunkMetrics);
+    				}
+    			}
+    		}
+    		finally {
+    			for (ForkJoinTask<Long> task : inFlight) {
+    				task.cancel(true);
+    			}
+    		}
+    	}
+    	// Publish any partially filled batch before the file is reported as complete.
+    	if (batchingPublisher != null) {
+    		batchingPublisher.flush();
+    	}
+    	fileProcessingClock.stop();
+    	// If the file contains a header, remove one of the records read so we don't keep it in our totals.
+    	if (fileConfiguration.isContainsHeader()) {
+    		recordsRead--;
+    	}
+    	LOGGER.info("Finished reading file in parallel: {} in {}", inputFile.getAbsolutePath(), fileProcessingClock);
+    	publishFileCompleted(inputFile, recordsRead, fileProcessingClock, metrics, failures);
+    }
+
+    /**
+     * Processes the specified file as a pipeline of three stages, so that waiting on one stage does not hold up the others: a
+     * single reader thread reads blocks of whole lines into a fixed ring of buffers, a pool of worker threads splits (and
+     * optionally validates) each block, and the calling thread publishes the events of each block in file order. A stall in I/O
+     * therefore no longer stops validation, and a slow listener only stops reading once every buffer in the ring is waiting to
+     * be published.
+     * 
+     * <br><br>
+     * 
+     * Events, line numbering, header skipping and the handling of a final record without an EOR marker are exactly the same as
+     * in {@link #readFile(File, FileConfiguration, boolean)}, and every event is published from the calling thread. The returned
+     * {@link PipelineStatistics} show how many blocks were waiting at each stage, which identifies the bottleneck for the file.
+     * 
+     * <br><br>
+     * 
+     * <b>This processor will throw a {@link BufferExceededException} if a single record is larger than 25MB, as this most likely indicates a malformed file.</b>
+     * 
+     * @param inputFile
+     * 		The input file to process.
+     * @param fileConfiguration
+     * 		The configuration describing the file.
+     * @param performValidation
+     * 		True to validate each line against the configured fields. False to only split each line.
+     * @param workerThreads
+     * 		The number of threads splitting and validating blocks.
+     * @return The occupancy of each stage of the pipeline while the file was processed.
+     * @throws IOException
+     */
+    public PipelineStatistics readFilePipelined(File inputFile, FileConfiguration fileConfiguration, boolean performValidation, int workerThreads) throws IOException {
+    	return readFilePipelined(inputFile, fileConfiguration, performValidation, workerThreads, new ProcessingOptions());
+    }
+
+    /**
+     * Processes the specified file exactly as {@link #readFilePipelined(File, FileConfiguration, boolean, int)} does, using the
+     * supplied options for this call.
+     */
+    public PipelineStatistics readFilePipelined(File inputFile, FileConfiguration fileConfiguration, boolean performValidation, int workerThreads,
+    		ProcessingOptions options) throws IOException {
+    	Stopwatch fileProcessingClock = Stopwatch.createStarted();
+    	LOGGER.info("Started reading file pipelined: " + inputFile.getAbsolutePath());
+    	char delimiterChar = delimiterOf(fileConfiguration);
+    	FixedWidthLayout layout = fileConfiguration.isFixedWidth() ? FixedWidthLayout.compile(fileConfiguration) : null;
+    	ValidationPlan validationPlan = performValidation ? compileValidationPlan(fileConfiguration, options) : null;
+    	ValidationFailureAggregator failures = performValidation ? new ValidationFailureAggregator(options.getFailureExamples(), options.getFailureLogsPerSecond()) : null;
+    	eventPublisher.publishEvent(new FileStartedProcessingEvent(inputFile));
+    	BatchingEventPublisher batchingPublisher = options.isBatchingEvents() ? new BatchingEventPublisher(eventPublisher, inputFile, options, validationPlan) : null;
+    	ApplicationEventPublisher linePublisher = batchingPublisher != null ? batchingPublisher : eventPublisher;
+    	FileMetrics metrics = processingMetrics.newFileMetrics();
+    	PipelinedFileReader pipeline = new PipelinedFileReader(pipelineRingSize, pipelineBlockSize, maxBufferCapacity, workerThreads,
+    		new RecordFramer(byteScanner, fileConfiguration), bufferPool);
+    	long recordsRead;
+
+    	try (FileChannel channel = FileChannel.open(inputFile.toPath());
+    			ReadableByteChannel input = openInput(channel, inputFile)) {
+    		recordsRead = pipeline.read(input, inputFile.getName(), (block, firstLineNumber, publisher, blockMetrics) ->
+    			processBlock(inputFile, block, firstLineNumber, fileConfiguration, delimiterChar, layout, validationPlan, failures, publisher, blockMetrics), linePublisher, metrics);
+    	}
+    	// Publish any partially filled batch before the file is reported as complete.
+    	if (batchingPublisher != null) {
+    		batchingPublisher.flush();
+    	}
+    	fileProcessingClock.stop();
+    	// If the file contains a header, remove one of the records read so we don't keep it in our totals.
+    	if (fileConfiguration.isContainsHeader()) {
+    		recordsRead--;
+    	}
+    	LOGGER.info("Finished reading file pipelined: {} in {}. {}", inputFile.getAbsolutePath(), fileProcessingClock, pipeline.getStatistics());
+    	publishFileCompleted(inputFile, recordsRead, fileProcessingClock, metrics, failures);
+    	return pipeline.getStatistics();
+    }
+
+    /**
+     * Returns the records of the specified file as a lazily read {@link Stream}. Nothing is broadcasted; malformed lines are
+     * returned as {@link FileRecord}s for which {@link FileRecord#isMalformed()} is true, and when validation is requested each
+     * well formed record carries its {@link RecordValidationResult}.
+     * 
+     * <br><br>
+     * 
+     * The file is only read as far as the stream is consumed, so short circuiting operations such as {@code limit(n)} or
+     * {@code findFirst()} stop reading early. Calling {@code parallel()} divides the file at LF aligned offsets so that each
+     * part can be read and validated on its own thread. Line numbering, header skipping and the handling of a final record
+     * without an EOR marker are the same as in {@link #readFile(File, FileConfiguration, boolean)}. Compressed files cannot be streamed,
+     * and nor can files whose configuration has a quote or fixed length records.
+     * 
+     * <br><br>
+     * 
+     * <b>The stream holds the file open until it is closed, so it should be used in a try-with-resources block.</b>
+     * 
+     * @param inputFile
+     * 		The input file to process.
+     * @param fileConfiguration
+     * 		The configuration describing the file.
+     * @param performValidation
+     * 		True to validate each record against the configured fields. False to only split each line.
+     * @throws IOException
+     */
+    public Stream<FileRecord> streamFile(File inputFile, FileConfiguration fileConfiguration, boolean performValidation) throws IOException {
+    	if (fileConfiguration.isQuoted()) {
+    		throw new IllegalArgumentException("Streaming is not supported for files with quoted fields: " + inputFile.getAbsolutePath());
+    	}
+    	if (fileConfiguration.isFixedWidth() && fileConfiguration.getRecordLength() > 0) {
+    		throw new IllegalArgumentException("Streaming is not supported for files of fixed length records: " + inputFile.getAbsolutePath());
+    	}
+    	return streamChannel(FileChannel.open(inputFile.toPath()), inputFile, fileConfiguration, performValidation);
+    }
+
+    /**
+     * Streams the records of a channel already opened on the input file, which the stream closes when it is closed, or straight
+     * away if the stream cannot be created.
+     */
+    Stream<FileRecord> streamChannel(FileChannel channel, File inputFile, FileConfiguration fileConfiguration, boolean performValidation) throws IOException {
+    	try {
+    		ValidationPlan validationPlan = performValidation ? ValidationPlan.compile(fileConfiguration, validationRules) : null;
+    		if (GzipChannel.isGzip(channel)) {
+    			throw new IOException("Streaming is not supported for compressed file: " + inputFile.getAbsolutePath());
+    		}
+    		RecordSpliterator spliterator = new RecordSpliterator(this, lineSplitter, channel, inputFile, fileConfiguration, validationPlan,
+    			bufferSize, maxBufferCapacity, 0, channel.size(), true, 1);
+    		return StreamSupport.stream(spliterator, false).onClose(() -> {
+    			try {
+    				channel.close();
+    			}
+    			catch (IOException ex) {
+    				throw new UncheckedIOException(ex);
+    			}
+    		});
+    	}
+    	catch (IOException | RuntimeException ex) {
+    		channel.close();
+    		throw ex;
+    	}
+    }
+
+    /**
+     * Compiles the plan a file is validated by, which is fail fast if the options ask for it.
+     */
+    private ValidationPlan compileValidationPlan(FileConfiguration fileConfiguration, ProcessingOptions options) {
+    	ValidationPlan validationPlan = ValidationPlan.compile(fileConfiguration, validationRules);
+    	return options.isFailFast() ? validationPlan.failFast(options.getRuleOrderingSampleRecords()) : validationPlan;
+    }
+
+    /**
+     * Returns which fields of each record must be decoded: those the configuration projects and, when validating, those with
+     * validation rules. Returns null if the configuration has no projection, in which case every field is decoded.
+     */
+    static boolean[] projectionOf(FileConfiguration fileConfiguration, ValidationPlan validationPlan) {
+    	if (fileConfiguration.getProjection() == null) {
+    		return null;
+    	}
+    	boolean[] projection = new boolean[Math.max(fileConfiguration.getExpectedNumberOfFields(), 0)];
+    	for (int position : fileConfiguration.getProjection()) {
+    		if (position >= 1 && position <= projection.length) {
+    			projection[position - 1] = true;
+    		}
+    	}
+    	if (validationPlan != null) {
+    		for (int i = 0; i < Math.min(projection.length, validationPlan.getNumberOfFields()); i++) {
+    			projection[i] |= validationPlan.getRules(i).length > 0;
+    		}
+    	}
+    	return projection;
+    }
+
+    /**
+     * Returns a view of the start of the buffer that holds as many whole records as fit in it. The buffer must hold at least one.
+     */
+    private static ByteBuffer sliceWholeRecords(ByteBuffer buffer, int recordLength) {
+    	ByteBuffer view = buffer.duplicate();
+    	view.limit(buffer.capacity() / recordLength * recordLength);
+    	return view.slice();
+    }
+
+    /**
+     * Returns the delimiter of the file, or 0 for a fixed width file, which has none.
+     */
+    private static char delimiterOf(FileConfiguration fileConfiguration) {
+    	return fileConfiguration.isFixedWidth() ? 0 : fileConfiguration.getDelimiter().charAt(0);
+    }
+
+    /**
+     * Returns the number of records in the chunk that end in an EOR marker, or the number of whole records for fixed length records.
+     */
+    private int countLineFeeds(FileChannel channel, FileChunk chunk, int recordLength) throws IOException {
+    	if (recordLength > 0) {
+    		return (int) (chunk.getSize() / recordLength);
+    	}
+    	ByteBuffer chunkBuf = channel.map(MapMode.READ_ONLY, chunk.getStart(), chunk.getSize());
+    	return byteScanner.count(chunkBuf, 0, chunkBuf.limit(), LF);
+    }
+
+    /**
+     * Splits (and optionally validates) every line of the chunk, publishing the resulting events to the supplied publisher.
+     * 
+     * @return The number of records read from the chunk, including any header line.
+     */
+    private long processChunk(File inputFile, FileChannel channel, FileChunk chunk, FileConfiguration fileConfiguration, char delimiterChar, FixedWidthLayout layout,
+    		ValidationPlan validationPlan, ValidationFailureAggregator failures, ApplicationEventPublisher publisher, FileMetrics metrics) throws IOException {
+    	ByteBuffer chunkBuf = channel.map(MapMode.READ_ONLY, chunk.getStart(), chunk.getSize());
+    	return processBlock(inputFile, chunkBuf, chunk.getFirstLineNumber(), fileConfiguration, delimiterChar, layout, validationPlan, failures, publisher, metrics);
+    }
+
+    /**
+     * Splits (and optionally validates) every line between the position and limit of the block, which must start at the
+     * beginning of a line. Any bytes after the last LF are treated as a final record without an EOR marker.
+     * 
+     * @return The number of records read from the block, including any header line.
+     */
+    private long processBlock(File inputFile, ByteBuffer chunkBuf, long firstLineNumber, FileConfiguration fileConfiguration, char delimiterChar, FixedWidthLayout layout,
+    		ValidationPlan validationPlan, ValidationFailureAggregator failures, ApplicationEventPublisher publisher, FileMetrics metrics) {
+    	ByteBuffer lineBuf = chunkBuf.duplicate();
+    	ByteRecord record = new ByteRecord();
+    	record.setProjection(projectionOf(fileConfiguration, validationPlan));
+    	long lineNumber = firstLineNumber;
+    	long recordsRead = 0;
+    	RecordFramer framer = new RecordFramer(byteScanner, fileConfiguration);
+    	int lineStart = chunkBuf.position();
+    	for (int i = framer.nextRecordEnd(chunkBuf, lineStart, lineStart, chunkBuf.limit()); i != -1; i = framer.nextRecordEnd(chunkBuf, i + 1, i + 1, chunkBuf.limit())) {
+    		String lineEnding = "\n";
+    		int lineEnd = i;
+    		// A fixed length record has no EOR marker, so its last byte is part of it.
+    		if (framer.isFixedLength()) {
+    			lineEnding = "";
+    			lineEnd++;
+    		}
+    		// Drop the CR of a CRLF so the record is the same as it would be on UNIX.
+    		else if (i > lineStart && chunkBuf.get(i - 1) == '\r') {
+    			lineEnding = "\r\n";
+    			lineEnd--;
+    		}
+    		lineBuf.limit(lineEnd).position(lineStart);
+    		// If the file contains a header, skip the first line because we aren't concerned about headers.
+    		if (!(fileConfiguration.isContainsHeader() && lineNumber == 1)) {
+    			processLine(inputFile, lineBuf, lineEnding, fileConfiguration, delimiterChar, layout, lineNumber, validationPlan, record, publisher, metrics, failures);
+    		}
+    		recordsRead++;
+    		lineNumber++;
+    		lineStart = i + 1;
+    	}
+    	// Only the last block of a file can end without an EOR marker. Treat the leftover bytes the same way readFile does.
+    	if (lineStart < chunkBuf.limit()) {
+    		LOGGER.info("Detected EOF with an additional {} bytes left over. EOR marker not detected. Will attempt to process the unprocessed bytes, but this will most likely end up as a malformed line...", chunkBuf.limit() - lineStart);
+    		chunkBuf.position(lineStart);
+    		processTrailingRecord(inputFile, chunkBuf, fileConfiguration, delimiterChar, layout, lineNumber, validationPlan != null, record, publisher, metrics);
+    		recordsRead++;
+    	}
+    	return recordsRead;
+    }
+
+    /**
+     * Returns the channel to read the contents of the file from: the file channel itself, or a channel of its decompressed bytes
+     * if the file is gzip compressed. The members of a BGZF file are inflated in parallel on the fork join pool.
+     */
+    private ReadableByteChannel openInput(FileChannel channel, File inputFile) throws IOException {
+    	if (!GzipChannel.isGzip(channel)) {
+    		return channel;
+    	}
+    	LOGGER.info("Detected gzip compressed file: {}", inputFile.getAbsolutePath());
+    	return GzipChannel.open(channel, forkJoinPool, forkJoinPool.getParallelism());
+    }
+
+    /**
+     * Reads from the channel into the buffer, recording the bytes read and the time spent waiting in the supplied metrics unless they are null.
+     */
+    private int read(ReadableByteChannel channel, ByteBuffer buf, FileMetrics metrics) throws IOException {
+    	if (metrics == null) {
+    		return channel.read(buf);
+    	}
+    	long readStarted = System.nanoTime();
+    	int bytesRead = channel.read(buf);
+    	metrics.recordRead(bytesRead, System.nanoTime() - readStarted);
+    	return bytesRead;
+    }
+
+    /**
+     * Reads from the channel as {@link #read(ReadableByteChannel, ByteBuffer, FileMetrics)} does, except that if a follower is supplied
+     * the end of the file is not reported until the follower says the file is complete. Any batch of events is broadcasted before waiting
+     * for more data, so the lines already read are not held back while the file is idle.
+     */
+    private int read(ReadableByteChannel channel, ByteBuffer buf, FileMetrics metrics, FileFollower follower,
+    		BatchingEventPublisher batchingPublisher) throws IOException {
+    	int bytesRead = read(channel, buf, metrics);
+    	if (bytesRead == -1 && follower != null) {
+    		if (batchingPublisher != null) {
+    			batchingPublisher.flush();
+    		}
+    		while (bytesRead == -1 && !follower.awaitGrowth()) {
+    			bytesRead = read(channel, buf, metrics);
+    		}
+    	}
+    	return bytesRead;
+    }
+
+    private void publishFileCompleted(File inputFile, long recordsRead, Stopwatch fileProcessingClock, FileMetrics metrics,
+    		ValidationFailureAggregator failures) {
+    	if (metrics != null) {
+    		metrics.setRecordsRead(recordsRead);
+    		metrics.setElapsedNanos(fileProcessingClock.elapsed(TimeUnit.NANOSECONDS));
+    		processingMetrics.fileCompleted(metrics);
+    		LOGGER.info("Metrics for file: {}. {}", inputFile.getAbsolutePath(), metrics);
+    	}
+    	FileCompletedProcessingEvent event = new FileCompletedProcessingEvent(inputFile, recordsRead, metrics);
+    	if (failures != null) {
+    		List<ValidationFailureSummary> summaries = failures.getSummaries();
+    		if (!summaries.isEmpty()) {
+    			StringBuilder summary = new StringBuilder();
+    			for (ValidationFailureSummary failureSummary : summaries) {
+    				summary.append(System.lineSeparator()).append(failureSummary);
+    			}
+    			LOGGER.error("{} of {} records in file: {} failed validation.{}", failures.getInvalidRecords(), recordsRead, inputFile.getAbsolutePath(), summary);
+    		}
+    		event.setValidationFailures(summaries);
+    	}
+    	eventPublisher.publishEvent(event);
+    }
+
+    private <T> T awaitChunk(ForkJoinTask<T> task) throws IOException {
+    	try {
+    		return task.get();
+    	}
+    	catch (InterruptedException ex) {
+    		Thread.currentThread().interrupt();
+    		throw new InterruptedIOException("Interrupted while waiting for a chunk to be processed.");
+    	}
+    	catch (ExecutionException ex) {
+    		Throwable cause = ex.getCause();
+    		if (cause instanceof IOException) {
+    			throw (IOException) cause;
+    		}
+    		if (cause instanceof RuntimeException) {
+    			throw (RuntimeException) cause;
+    		}
+    		if (cause instanceof Error) {
+    			throw (Error) cause;
+    		}
+    		throw new IOException(cause);
+    	}
+    }
+
+    /**
+     * Splits a single line (without its EOR marker) and, if a validation plan is supplied, validates it. All events are sent to the supplied publisher.
+     * The line is split straight out of the undecoded buffer; Strings are only created for records that are broadcasted or validated.
+     *
+     * @return
+     * 		The {@link ErrorBudget} outcome of the line: {@link ErrorBudget#GOOD}, {@link ErrorBudget#MALFORMED} or {@link ErrorBudget#INVALID}.
+     */
+    private int processLine(File inputFile, ByteBuffer lineBuf, String lineEnding, FileConfiguration fileConfiguration, char delimiterChar, FixedWidthLayout layout,
+    		long lineNumber, ValidationPlan validationPlan, ByteRecord record, ApplicationEventPublisher publisher, FileMetrics metrics,
+    		ValidationFailureAggregator failures) {
+    	boolean performValidation = validationPlan != null;
+    	long splitStarted = metrics != null ? System.nanoTime() : 0;
+    	// We will skip line read events if we are performing validation.
+    	boolean wellFormed = splitRecord(inputFile, lineBuf, fileConfiguration, delimiterChar, layout, lineNumber, performValidation, record, publisher);
+    	long splitEnded = 0;
+    	if (metrics != null) {
+    		splitEnded = System.nanoTime();
+    		metrics.recordSplit(splitEnded - splitStarted, !wellFormed);
+    	}
+    	if (!wellFormed) {
+    		return ErrorBudget.MALFORMED;
+    	}
+    	if (performValidation) {
+    		String[] splitLine = record.toArray();
+    		if (metrics != null) {
+    			metrics.recordDecode(System.nanoTime() - splitEnded);
+    		}
+    		if (!validateLine(splitLine, lineNumber, validationPlan, publisher, metrics, failures)) {
+    			return ErrorBudget.INVALID;
+    		}
+    		// Let all listeners know of a successfully validated line.
+    		publisher.publishEvent(new LineValidatedEvent(record.getLine() + lineEnding, splitLine));
+    	}
+    	return ErrorBudget.GOOD;
+    }
+
+    /**
+     * Splits the bytes left over at EOF that were not followed by an EOR marker. These are never validated, so the outcome is one of
+     * {@link ErrorBudget#GOOD} or {@link ErrorBudget#MALFORMED}.
+     */
+    private int processTrailingRecord(File inputFile, ByteBuffer remainingBuf, FileConfiguration fileConfiguration, char delimiterChar, FixedWidthLayout layout,
+    		long lineNumber, boolean skipLineReadEvents, ByteRecord record, ApplicationEventPublisher publisher, FileMetrics metrics) {
+    	long splitStarted = metrics != null ? System.nanoTime() : 0;
+    	boolean wellFormed = splitRecord(inputFile, remainingBuf, fileConfiguration, delimiterChar, layout, lineNumber, skipLineReadEvents, record, publisher);
+    	if (metrics != null) {
+    		metrics.recordSplit(System.nanoTime() - splitStarted, !wellFormed);
+    	}
+    	return wellFormed ? ErrorBudget.GOOD : ErrorBudget.MALFORMED;
+    }
+
+    /**
+     * Splits a record by the layout if the file is fixed width, with the quote aware splitter if the configuration has a quote,
+     * or with the plain splitter otherwise.
+     */
+    private boolean splitRecord(File inputFile, ByteBuffer lineBuf, FileConfiguration fileConfiguration, char delimiterChar, FixedWidthLayout layout, long lineNumber,
+    		boolean skipLineReadEvents, ByteRecord record, ApplicationEventPublisher publisher) {
+    	if (layout != null) {
+    		return lineSplitter.splitFixedWidthLine(inputFile, lineBuf, layout, lineNumber, skipLineReadEvents, record, publisher);
+    	}
+    	if (fileConfiguration.isQuoted()) {
+    		return lineSplitter.splitQuotedLine(inputFile, lineBuf, (byte) delimiterChar, (byte) fileConfiguration.getQuote().charAt(0),
+    			fileConfiguration.getExpectedNumberOfFields(), lineNumber, skipLineReadEvents, record, publisher);
+    	}
+    	return lineSplitter.splitLine(inputFile, lineBuf, (byte) delimiterChar, fileConfiguration.getExpectedNumberOfFields(), lineNumber, skipLineReadEvents, record, publisher);
+    }
+    
+	private boolean validateLine(String[] splitLine, long lineNumber, ValidationPlan validationPlan, ApplicationEventPublisher publisher, FileMetrics metrics,
+			ValidationFailureAggregator failures) {
+		boolean isLineValid = true;
+		long validationStarted = metrics != null ? System.nanoTime() : 0;
+        RecordValidationResult recordValidationResult = performValidation(splitLine, lineNumber, validationPlan, metrics);
+        if (metrics != null) {
+        	metrics.recordValidation(System.nanoTime() - validationStarted, !recordValidationResult.isValid());
+        }
+        if (!recordValidationResult.isValid()) {
+        	isLineValid = false;
+        	// Failures are counted rather than logged one by one; a summary is logged once the file is complete.
+        	failures.record(recordValidationResult);
+        	publisher.publishEvent(new InvalidLineEvent(recordValidationResult));
+        }
+        return isLineValid;
+	}
+    
+	/**
+	 * Validates the record against the supplied fields. This compiles a new {@link ValidationPlan} on every call, so callers
+	 * validating more than one record should compile a plan once and use {@link #performValidation(String[], long, ValidationPlan)}.
+	 * A {@link UniqueValidationRule} only compares values validated by the same plan, so it never fails a record validated here.
+	 */
+	protected RecordValidationResult performValidation(String[] input, long lineNumber, List<FileField> fileFields) {
+		return performValidation(input, lineNumber, ValidationPlan.compile(fileFields, validationRules));
+	}
+
+	protected RecordValidationResult performValidation(String[] input, long lineNumber, ValidationPlan validationPlan) {
+		return performValidation(input, lineNumber, validationPlan, null);
+	}
+
+	/**
+	 * Validates the record against the supplied plan, recording the time taken by each rule in the supplied metrics unless they are null.
+	 * The value of a field with a {@link ValidationCache} whose outcome is already known is not validated again.
+	 */
+	protected RecordValidationResult performValidation(String[] input, long lineNumber, ValidationPlan validationPlan, FileMetrics metrics) {
+		if (validationPlan.isFailFast()) {
+			return performFailFastValidation(input, lineNumber, validationPlan, metrics);
+		}
+		RecordValidationResult validationResult = new RecordValidationResult(input);
+		for (int i = 0; i < input.length; i++) {
+			FileField field = validationPlan.getField(i);
+			ValidationCache cache = validationPlan.getCache(i);
+			boolean caching = cache != null && cache.isEnabled() && input[i] != null;
+			if (caching) {
+				AbstractInputValidationRule[] cachedFailures = cache.get(input[i]);
+				if (metrics != null) {
+					metrics.recordValidationCacheLookup(cachedFailures != null);
+				}
+				if (cachedFailures != null) {
+					for (AbstractInputValidationRule failedRule : cachedFailures) {
+						validationResult.addValidationError(new ValidationFailure(field, input[i], lineNumber, failedRule));
+					}
+					continue;
+				}
+			}
+			List<AbstractInputValidationRule> failedRules = null;
+			for (AbstractInputValidationRule ruleToValidateAgainst : validationPlan.getRules(i)) {
+				LOGGER.trace("Validating field: {} against Validation Rule ID: {} with Metadata: {}",
+					input[i],
+					ruleToValidateAgainst.getRuleId(),
+					ruleToValidateAgainst.getMetadata());
+				long ruleStarted = metrics != null ? System.nanoTime() : 0;
+				boolean valid = ruleToValidateAgainst.validate(input[i], lineNumber);
+				if (metrics != null) {
+					metrics.recordRule(ruleToValidateAgainst.getRuleId(), System.nanoTime() - ruleStarted);
+				}
+				if (!valid) {
+					validationResult.addValidationError(failureOf(field, input[i], lineNumber, ruleToValidateAgainst));
+					if (caching) {
+						if (failedRules == null) {
+							failedRules = new ArrayList<>(2);
+						}
+						failedRules.add(ruleToValidateAgainst);
+					}
+				}
+			}
+			if (caching) {
+				cache.put(input[i], failedRules == null ? ValidationCache.PASSED : failedRules.toArray(new AbstractInputValidationRule[failedRules.size()]));
+			}
+		}
+		return validationResult;
+	}
+    
+	/**
+	 * Returns the failure of a value to pass a rule. A value that is not unique also records the line on which it first occurred.
+	 */
+	private static ValidationFailure failureOf(FileField field, String value, long lineNumber, AbstractInputValidationRule rule) {
+		if (rule instanceof UniqueValidationRule) {
+			return new ValidationFailure(field, value, lineNumber, rule, ((UniqueValidationRule) rule).getFirstOccurrence(value));
+		}
+		return new ValidationFailure(field, value, lineNumber, rule);
+	}
+
+	/**
+	 * Validates the record against the supplied fail fast plan, stopping at the first rule it fails so that an invalid record has
+	 * exactly one failure. While the {@link RuleOrdering} of the plan is sampling, every rule is applied (and timed) regardless,
+	 * and the failure reported is the first in declared order.
+	 */
+	private RecordValidationResult performFailFastValidation(String[] input, long lineNumber, ValidationPlan validationPlan, FileMetrics metrics) {
+		RecordValidationResult validationResult = new RecordValidationResult(input);
+		RuleOrdering ruleOrdering = validationPlan.getRuleOrdering();
+		boolean sampling = ruleOrdering.isSampling();
+		for (int i = 0; i < input.length; i++) {
+			FileField field = validationPlan.getField(i);
+			ValidationCache cache = validationPlan.getCache(i);
+			boolean caching = cache != null && cache.isEnabled() && input[i] != null;
+			if (caching) {
+				AbstractInputValidationRule[] cachedFailures = cache.get(input[i]);
+				if (metrics != null) {
+					metrics.recordValidationCacheLookup(cachedFailures != null);
+				}
+				if (cachedFailures != null) {
+					if (cachedFailures.length > 0 && validationResult.isValid()) {
+						validationResult.addValidationError(new ValidationFailure(field, input[i], lineNumber, cachedFailures[0]));
+						if (!sampling) {
+							showToStatefulRules(input, lineNumber, validationPlan, i, validationPlan.getRules(i), validationPlan.getRules(i).length);
+							return validationResult;
+						}
+					}
+					continue;
+				}
+			}
+			List<AbstractInputValidationRule> failedRules = null;
+			// While sampling the rules are indexed as declared, even if another thread fixes the order part way through this record.
+			AbstractInputValidationRule[] rules = sampling ? validationPlan.getRules(i) : ruleOrdering.getRules(i);
+			for (int j = 0; j < rules.length; j++) {
+				AbstractInputValidationRule ruleToValidateAgainst = rules[j];
+				long ruleStarted = metrics != null || sampling ? System.nanoTime() : 0;
+				boolean valid = ruleToValidateAgainst.validate(input[i], lineNumber);
+				if (metrics != null || sampling) {
+					long ruleNanos = System.nanoTime() - ruleStarted;
+					if (metrics != null) {
+						metrics.recordRule(ruleToValidateAgainst.getRuleId(), ruleNanos);
+					}
+					if (sampling) {
+						ruleOrdering.record(i, j, ruleNanos, !valid);
+					}
+				}
+				if (!valid) {
+					if (validationResult.isValid()) {
+						validationResult.addValidationError(failureOf(field, input[i], lineNumber, ruleToValidateAgainst));
+					}
+					if (!sampling) {
+						// The outcome of the value is not cached, as the rules after this one were never applied.
+						showToStatefulRules(input, lineNumber, validationPlan, i, rules, j + 1);
+						return validationResult;
+					}
+					if (caching) {
+						if (failedRules == null) {
+							failedRules = new ArrayList<>(2);
+						}
+						failedRules.add(ruleToValidateAgainst);
+					}
+				}
+			}
+			if (caching) {
+				cache.put(input[i], failedRules == null ? ValidationCache.PASSED : failedRules.toArray(new AbstractInputValidationRule[failedRules.size()]));
+			}
+		}
+		if (sampling) {
+			ruleOrdering.recordSampled();
+		}
+		return validationResult;
+	}
+
+	/**
+	 * Shows the values of a record that failed fail fast validation to the rules it did not reach that remember the values they are
+	 * shown, such as a {@link UniqueValidationRule}, so that a value first seen in an invalid record is still known when it occurs
+	 * again. Their outcome is not reported, as the record has already failed.
+	 *
+	 * @param rules
+	 * 		The rules of the column being validated when the record failed, in the order they were applied.
+	 * @param nextRule
+	 * 		The index within rules of the first rule not applied.
+	 */
+	private static void showToStatefulRules(String[] input, long lineNumber, ValidationPlan validationPlan, int column,
+			AbstractInputValidationRule[] rules, int nextRule) {
+		if (!validationPlan.hasStatefulRules()) {
+			return;
+		}
+		for (int j = nextRule; j < rules.length; j++) {
+			if (!rules[j].isCacheable()) {
+				rules[j].validate(input[column], lineNumber);
+			}
+		}
+		for (int i = column + 1; i < input.length; i++) {
+			for (AbstractInputValidationRule rule : validationPlan.getRules(i)) {
+				if (!rule.isCacheable()) {
+					rule.validate(input[i], lineNumber);
+				}
+			}
+		}
+	}
+    
+    /**
+     * Sets the approximate size, in bytes, of the chunks that {@link #readFileParallel(File, FileConfiguration, boolean, boolean)}
+     * divides a file into. Defaults to 16MB.
+     */
+    public void setParallelChunkSize(int parallelChunkSize) {
+    	this.parallelChunkSize = parallelChunkSize;
+    }
+
+    /**
+     * Sets the pool used by {@link #readFileParallel(File, FileConfiguration, boolean, boolean)}. Defaults to the common pool.
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+    	this.forkJoinPool = forkJoinPool;
+    }
+    
+    /**
+     * Sets the number of buffers in the ring used by {@link #readFilePipelined(File, FileConfiguration, boolean, int)}. This bounds
+     * the number of blocks read ahead of the slowest stage. Must be at least 2.
+     */
+    public void setPipelineRingSize(int pipelineRingSize) {
+    	this.pipelineRingSize = pipelineRingSize;
+    }
+
+    /**
+     * Sets the initial size, in bytes, of each buffer in the ring used by {@link #readFilePipelined(File, FileConfiguration, boolean, int)}.
+     * A buffer grows past this size only when a single record does not fit in it.
+     */
+    public void setPipelineBlockSize(int pipelineBlockSize) {
+    	this.pipelineBlockSize = pipelineBlockSize;
+    }
+
+    @Autowired
+	public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+		this.eventPublisher = eventPublisher;
+	}
+    
+    @Autowired
+    public void setLineSplitter(LineSplitter lineSplitter) {
+    	this.lineSplitter = lineSplitter;
+    }
+    
+    @Autowired
+    public void setFileConfigurationLoader(FileConfigurationLoader fileConfigurationLoader) {
+    	this.fileConfigurationLoader = fileConfigurationLoader;
+    }
+
+    @Autowired
+	public void setValidationRules(ValidationRules validationRules) {
+		this.validationRules = validationRules;
+	}
+
+    /**
+     * Sets the scanner used to find the LF at the end of each record. Defaults to a {@link SwarByteScanner}.
+     */
+    public void setByteScanner(ByteScanner byteScanner) {
+    	this.byteScanner = byteScanner;
+    }
+
+    ByteScanner getByteScanner() {
+    	return byteScanner;
+    }
+
+    @Autowired
+    public void setProcessingMetrics(ProcessingMetrics processingMetrics) {
+    	this.processingMetrics = processingMetrics;
+    }
+
+    /**
+     * Sets the pool the buffers files are read into are borrowed from. Defaults to a pool of this processor's own.
+     */
+    @Autowired
+    public void setBufferPool(BufferPool bufferPool) {
+    	this.bufferPool = bufferPool;
+    }
+}
@@ -0,0 +1,61 @@
+package com.rprescott.fileprocessor;
+
+import java.util.Arrays;
+
+import com.rprescott.fileprocessor.validation.RecordValidationResult;
+
+/**
+ * A single record of a file, as produced by {@link FileProcessor#streamFile(java.io.File, com.rprescott.fileprocessor.validation.FileConfiguration, boolean)}.
+ * Malformed lines are returned as records too, so that consumers can decide what to do with them.
+ * 
+ * @author rprescott
+ */
+public class FileRecord {
+
+	private long lineNumber;
+	private String[] fields;
+	private RecordValidationResult validationResult;
+
+	public FileRecord(long lineNumber, String[] fields, RecordValidationResult validationResult) {
+		this.lineNumber = lineNumber;
+		this.fields = fields;
+		this.validationResult = validationResult;
+	}
+
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Returns the split fields of the record, or null if the line was malformed.
+	 */
+	public String[] getFields() {
+		return fields;
+	}
+
+	/**
+	 * Returns true if the line did not contain the expected number of fields.
+	 */
+	public boolean isMalformed() {
+		return fields == null;
+	}
+
+	/**
+	 * Returns the result of validating the record, or null if the record is malformed or validation was not requested.
+	 */
+	public RecordValidationResult getValidationResult() {
+		return validationResult;
+	}
+
+	/**
+	 * Returns true if the record is well formed and either passed validation or was not validated.
+	 */
+	public boolean isValid() {
+		return !isMalformed() && (validationResult == null || validationResult.isValid());
+	}
+
+	@Override
+	public String toString() {
+		return "Line " + lineNumber + ": " + (isMalformed() ? "Malformed" : Arrays.toString(fields));
+	}
+}
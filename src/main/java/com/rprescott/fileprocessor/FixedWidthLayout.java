@@ -0,0 +1,107 @@
+package com.rprescott.fileprocessor;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.rprescott.fileprocessor.validation.FileConfiguration;
+import com.rprescott.fileprocessor.validation.FileField;
+
+/**
+ * The offset and length of every field of a fixed width file, compiled once from its {@link FileConfiguration} so that each
+ * record can be split by slicing it at those offsets, without looking at a single byte of it unless padding is trimmed.
+ *
+ * <br><br>
+ *
+ * A record must be at least as long as the end of its last field. Any bytes after that are filler and are ignored. Fields may
+ * overlap, for layouts that describe the same bytes in more than one way.
+ *
+ * @author rprescott
+ */
+public final class FixedWidthLayout {
+
+	private static final byte PAD = ' ';
+
+	private final int[] offsets;
+	private final int[] lengths;
+	private final int width;
+	private final int recordLength;
+	private final boolean trimPadding;
+
+	private FixedWidthLayout(int[] offsets, int[] lengths, int width, int recordLength, boolean trimPadding) {
+		this.offsets = offsets;
+		this.lengths = lengths;
+		this.width = width;
+		this.recordLength = recordLength;
+		this.trimPadding = trimPadding;
+	}
+
+	/**
+	 * Compiles the layout of a fixed width configuration.
+	 *
+	 * @throws IllegalArgumentException
+	 * 		If the configuration is not fixed width, a field has no offset or length, or a field ends past the record length.
+	 */
+	public static FixedWidthLayout compile(FileConfiguration fileConfiguration) {
+		if (!fileConfiguration.isFixedWidth()) {
+			throw new IllegalArgumentException("The configuration does not describe a fixed width file.");
+		}
+		List<FileField> fileFields = fileConfiguration.getFileFields();
+		int[] offsets = new int[fileFields.size()];
+		int[] lengths = new int[fileFields.size()];
+		int width = 0;
+		for (int i = 0; i < offsets.length; i++) {
+			FileField fileField = fileFields.get(i);
+			if (fileField.getOffset() < 0 || fileField.getLength() <= 0) {
+				throw new IllegalArgumentException("Field " + fileField.getPosition() + " of a fixed width file must have an offset and a length.");
+			}
+			offsets[i] = fileField.getOffset();
+			lengths[i] = fileField.getLength();
+			width = Math.max(width, offsets[i] + lengths[i]);
+		}
+		int recordLength = fileConfiguration.getRecordLength();
+		if (recordLength > 0 && width > recordLength) {
+			throw new IllegalArgumentException("The fields of a fixed width file end at " + width + ", past the record length of " + recordLength + ".");
+		}
+		return new FixedWidthLayout(offsets, lengths, width, recordLength, fileConfiguration.isTrimPadding());
+	}
+
+	/**
+	 * Returns the offset just past the end of the last field, which is the shortest a record may be.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the length of every record if records have no EOR marker, or 0 if each record is a line.
+	 */
+	public int getRecordLength() {
+		return recordLength;
+	}
+
+	/**
+	 * Splits the record between the supplied indexes of the buffer into the supplied {@link ByteRecord}.
+	 *
+	 * @return True if the record was split. False if it is shorter than {@link #getWidth()}.
+	 */
+	boolean split(ByteBuffer buf, int lineStart, int lineEnd, ByteRecord record) {
+		record.reset(buf, lineStart, lineEnd);
+		if (lineEnd - lineStart < width) {
+			return false;
+		}
+		for (int i = 0; i < offsets.length; i++) {
+			int start = lineStart + offsets[i];
+			int end = start + lengths[i];
+			if (trimPadding) {
+				while (start < end && buf.get(start) == PAD) {
+					start++;
+				}
+				while (end > start && buf.get(end - 1) == PAD) {
+					end--;
+				}
+			}
+			record.addField(start, end);
+		}
+		return true;
+	}
+}
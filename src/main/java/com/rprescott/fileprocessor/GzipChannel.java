@@ -0,0 +1,276 @@
+package com.rprescott.fileprocessor;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * A {@link ReadableByteChannel} of the decompressed bytes of a gzip file whose members are inflated in parallel.
+ *
+ * <br><br>
+ *
+ * Where a gzip file is made up of several members, the position of each member is normally only found by inflating the one
+ * before it, so the members can only be inflated one after the other. Files written by bgzip (the BGZF format) instead record
+ * the compressed size of each member in a "BC" extra field of its header. Walking those headers gives the position of every
+ * member without inflating anything, so a bounded number of members ahead of the reader are inflated at once on the supplied
+ * executor and handed out in file order.
+ *
+ * <br><br>
+ *
+ * {@link #open(FileChannel, ExecutorService, int)} returns one of these for BGZF files, and a plain streaming channel for any
+ * other gzip file. Either way the bytes read are exactly the decompressed contents of the file. Closing this channel does not
+ * close the file channel it reads from.
+ *
+ * @author rprescott
+ */
+class GzipChannel implements ReadableByteChannel {
+
+	private static final int GZIP_MAGIC = 0x8b1f;
+	private static final int FHCRC = 0x02;
+	private static final int FEXTRA = 0x04;
+	private static final int FNAME = 0x08;
+	private static final int FCOMMENT = 0x10;
+	/** The fixed part of a member header, up to and including XLEN. */
+	private static final int HEADER_SIZE = 12;
+	private static final int TRAILER_SIZE = 8;
+	/** BGZF members never hold more than 64KB of data. */
+	private static final int MAX_BGZF_DATA_SIZE = 65536;
+	private static final int STREAMING_BUFFER_SIZE = 65536;
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	private final FileChannel channel;
+	private final ExecutorService executor;
+	private final int maxMembersInFlight;
+	private final long size;
+	private final Deque<Future<ByteBuffer>> inFlight = new ArrayDeque<>();
+	private long nextMemberOffset;
+	private ByteBuffer current = EMPTY;
+	private boolean open = true;
+
+	private GzipChannel(FileChannel channel, ExecutorService executor, int maxMembersInFlight) throws IOException {
+		this.channel = channel;
+		this.executor = executor;
+		this.maxMembersInFlight = maxMembersInFlight;
+		this.size = channel.size();
+	}
+
+	/**
+	 * Returns true if the file starts with the gzip magic number.
+	 */
+	static boolean isGzip(FileChannel channel) throws IOException {
+		ByteBuffer magic = ByteBuffer.allocate(2);
+		while (magic.hasRemaining() && channel.read(magic, magic.position()) != -1) {
+		}
+		return !magic.hasRemaining() && (magic.get(0) & 0xff | (magic.get(1) & 0xff) << 8) == GZIP_MAGIC;
+	}
+
+	static boolean isGzip(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath())) {
+			return isGzip(channel);
+		}
+	}
+
+	/**
+	 * Opens a channel of the decompressed bytes of the gzip file, starting from its first member.
+	 *
+	 * @param channel
+	 * 		The channel of the compressed file.
+	 * @param executor
+	 * 		The executor to inflate BGZF members on.
+	 * @param parallelism
+	 * 		The number of members to inflate at once.
+	 */
+	static ReadableByteChannel open(FileChannel channel, ExecutorService executor, int parallelism) throws IOException {
+		if (bgzfMemberSize(channel, 0) > 0) {
+			// A few members per thread keep every thread busy while the reader works through the member at the head of the queue.
+			return new GzipChannel(channel, executor, parallelism * 4);
+		}
+		return Channels.newChannel(new GZIPInputStream(Channels.newInputStream(channel.position(0)), STREAMING_BUFFER_SIZE));
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if (!open) {
+			throw new ClosedChannelException();
+		}
+		int bytesRead = 0;
+		while (dst.hasRemaining()) {
+			if (!current.hasRemaining()) {
+				submitMembers();
+				if (inFlight.isEmpty()) {
+					break;
+				}
+				current = await(inFlight.poll());
+				continue;
+			}
+			int length = Math.min(current.remaining(), dst.remaining());
+			ByteBuffer slice = current.duplicate();
+			slice.limit(slice.position() + length);
+			dst.put(slice);
+			current.position(current.position() + length);
+			bytesRead += length;
+		}
+		return bytesRead == 0 && dst.hasRemaining() ? -1 : bytesRead;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public void close() {
+		open = false;
+		for (Future<ByteBuffer> member : inFlight) {
+			member.cancel(true);
+		}
+		inFlight.clear();
+	}
+
+	/**
+	 * Tops up the members being inflated until the limit is reached or every member has been submitted.
+	 */
+	private void submitMembers() throws IOException {
+		while (inFlight.size() < maxMembersInFlight && nextMemberOffset < size) {
+			long memberOffset = nextMemberOffset;
+			int memberSize = bgzfMemberSize(channel, memberOffset);
+			if (memberSize <= 0) {
+				throw new ZipException("Member at offset " + memberOffset + " of a BGZF file does not record its size.");
+			}
+			nextMemberOffset += memberSize;
+			inFlight.add(executor.submit(() -> inflate(memberOffset, memberSize)));
+		}
+	}
+
+	/**
+	 * Returns the total size of the member at the supplied offset from the BC extra field of its header, or 0 if it has none.
+	 */
+	private static int bgzfMemberSize(FileChannel channel, long offset) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		readFully(channel, header, offset);
+		if (header.position() < HEADER_SIZE || unsignedShort(header, 0) != GZIP_MAGIC || (header.get(3) & FEXTRA) == 0) {
+			return 0;
+		}
+		ByteBuffer extra = ByteBuffer.allocate(unsignedShort(header, 10));
+		readFully(channel, extra, offset + HEADER_SIZE);
+		// Each subfield is two identifier bytes and a two byte length, followed by its data.
+		for (int i = 0; i + 4 <= extra.position(); i += 4 + unsignedShort(extra, i + 2)) {
+			if (extra.get(i) == 'B' && extra.get(i + 1) == 'C' && unsignedShort(extra, i + 2) == 2 && i + 6 <= extra.position()) {
+				return unsignedShort(extra, i + 4) + 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Inflates a single member, checking its length and CRC against its trailer.
+	 */
+	private ByteBuffer inflate(long memberOffset, int memberSize) throws IOException {
+		ByteBuffer member = ByteBuffer.allocate(memberSize).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, member, memberOffset);
+		if (member.hasRemaining()) {
+			throw new EOFException("Member at offset " + memberOffset + " of a BGZF file is truncated.");
+		}
+		byte[] compressed = member.array();
+		int trailer = memberSize - TRAILER_SIZE;
+		int dataStart = HEADER_SIZE + unsignedShort(member, 10);
+		int flags = compressed[3];
+		if ((flags & FNAME) != 0) {
+			while (dataStart < trailer && compressed[dataStart++] != 0) {
+			}
+		}
+		if ((flags & FCOMMENT) != 0) {
+			while (dataStart < trailer && compressed[dataStart++] != 0) {
+			}
+		}
+		if ((flags & FHCRC) != 0) {
+			dataStart += 2;
+		}
+		long expectedCrc = dataStart <= trailer ? member.getInt(trailer) & 0xffffffffL : 0;
+		int dataSize = dataStart <= trailer ? member.getInt(trailer + 4) : -1;
+		if (dataSize < 0 || dataSize > MAX_BGZF_DATA_SIZE) {
+			throw new ZipException("Member at offset " + memberOffset + " of a BGZF file has a corrupt header or trailer.");
+		}
+		// One spare byte lets the inflater reach the end of the stream without running out of room.
+		byte[] data = new byte[dataSize + 1];
+		int inflated = 0;
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(compressed, dataStart, trailer - dataStart);
+			while (!inflater.finished()) {
+				int length = inflater.inflate(data, inflated, data.length - inflated);
+				if (length == 0 && (inflater.needsInput() || inflater.needsDictionary() || inflated == data.length)) {
+					break;
+				}
+				inflated += length;
+			}
+		}
+		catch (DataFormatException ex) {
+			throw new ZipException("Member at offset " + memberOffset + " of a BGZF file is corrupt: " + ex.getMessage());
+		}
+		finally {
+			inflater.end();
+		}
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, inflated);
+		if (inflated != dataSize || crc.getValue() != expectedCrc) {
+			throw new ZipException("Member at offset " + memberOffset + " of a BGZF file does not match its trailer.");
+		}
+		return ByteBuffer.wrap(data, 0, inflated);
+	}
+
+	private ByteBuffer await(Future<ByteBuffer> member) throws IOException {
+		try {
+			return member.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a member to be inflated.");
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Reads from the supplied offset until the buffer is full or the end of the file is reached.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buf, long offset) throws IOException {
+		while (buf.hasRemaining() && channel.read(buf, offset + buf.position()) != -1) {
+		}
+	}
+
+	/**
+	 * Reads a little endian unsigned short, as every multi-byte gzip field is little endian.
+	 */
+	private static int unsignedShort(ByteBuffer buf, int index) {
+		return buf.get(index) & 0xff | (buf.get(index + 1) & 0xff) << 8;
+	}
+}
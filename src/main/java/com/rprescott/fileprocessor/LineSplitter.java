@@ -1,86 +1,237 @@
-package com.rprescott.fileprocessor;
-
-import java.io.File;
-import java.nio.CharBuffer;
-import java.util.Optional;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.stereotype.Service;
-
-import com.rprescott.fileprocessor.events.LineSplitEvent;
-import com.rprescott.fileprocessor.events.MalformedLineEvent;
-
-@Service
-public class LineSplitter {
-	
-	private static final Logger LOGGER = LoggerFactory.getLogger(LineSplitter.class);
-	private ApplicationEventPublisher eventPublisher;
-
-	public Optional<String[]> splitLine(File inputFile, CharBuffer lineBuf, char delimiter, int expectedNumberOfFields, long lineNumber, boolean skipLineReadEvents) {
-        String[] record = new String[expectedNumberOfFields];
-        boolean lineEndsWithDelimiter = false;
-        int idx = 0;
-        while (lineBuf.hasRemaining()) {
-            if (idx >= expectedNumberOfFields) {
-            	LOGGER.error("Expected {} fields in record, we are currently attempting to process field number {}.", expectedNumberOfFields, idx);
-            	eventPublisher.publishEvent(new MalformedLineEvent(inputFile, lineNumber));
-                return Optional.empty();
-            }
-
-            // Skip the buffer forward until we hit our delimiter of interest.
-            while (lineBuf.get() != delimiter && lineBuf.hasRemaining()) {
-            	// Empty block here to appease SonarQube. lineBuf.get() advances the pointer one byte, so it IS doing work.
-            }
-        	if (!lineBuf.hasRemaining() && lineBuf.get(lineBuf.position() - 1) == delimiter) {
-        		lineEndsWithDelimiter = true;
-        	}
-            CharBuffer slice = lineBuf.duplicate();
-            slice.flip();
-            if (lineBuf.hasRemaining() || lineEndsWithDelimiter) {
-            	// Remove the delimiter.
-                slice.limit(slice.limit() - 1);
-            }
-            record[idx] = slice.toString();
-            idx++;
-
-            lineBuf = lineBuf.slice();
-        }
-        if (lineEndsWithDelimiter) {
-        	if (idx == expectedNumberOfFields) {
-        		eventPublisher.publishEvent(new MalformedLineEvent(inputFile, lineNumber));
-        		return Optional.empty();
-        	}
-        	else {
-        		record[idx] = "";
-        	}
-        }
-        int recordLength = getLength(record);
-        if (getLength(record) != expectedNumberOfFields) {
-        	LOGGER.error("Expected {} fields in record, but only {} were present.", expectedNumberOfFields, recordLength);
-        	eventPublisher.publishEvent(new MalformedLineEvent(inputFile, lineNumber));
-            return Optional.empty();
-        }
-        if (!skipLineReadEvents) {
-        	eventPublisher.publishEvent(new LineSplitEvent(inputFile, Optional.of(record), lineNumber));
-        }
-        return Optional.of(record);
-	}
-	
-	public <T> int getLength(T[] arr) {
-	    int count = 0;
-	    for (T el : arr) {
-	        if (el != null) {
-	            ++count;
-	        }
-	    }
-	    return count;
-	}
-	
-	@Autowired
-	public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
-		this.eventPublisher = eventPublisher;
-	}
-}
+package com.rprescott.fileprocessor;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import com.rprescott.fileprocessor.events.LineSplitEvent;
+import com.rprescott.fileprocessor.events.MalformedLineEvent;
+
+@Service
+public class LineSplitter {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(LineSplitter.class);
+	private ApplicationEventPublisher eventPublisher;
+	private ByteScanner byteScanner = new SwarByteScanner();
+
+	public Optional<String[]> splitLine(File inputFile, CharBuffer lineBuf, char delimiter, int expectedNumberOfFields, long lineNumber, boolean skipLineReadEvents) {
+		return splitLine(inputFile, lineBuf, delimiter, expectedNumberOfFields, lineNumber, skipLineReadEvents, eventPublisher);
+	}
+
+	/**
+	 * Splits the line exactly as {@link #splitLine(File, CharBuffer, char, int, long, boolean)} does, but broadcasts any
+	 * {@link LineSplitEvent} or {@link MalformedLineEvent} to the supplied publisher instead of the injected one. This allows
+	 * callers processing a file on several threads to collect the events of each chunk and publish them in file order.
+	 */
+	public Optional<String[]> splitLine(File inputFile, CharBuffer lineBuf, char delimiter, int expectedNumberOfFields, long lineNumber, boolean skipLineReadEvents,
+			ApplicationEventPublisher eventPublisher) {
+        String[] record = new String[expectedNumberOfFields];
+        boolean lineEndsWithDelimiter = false;
+        int idx = 0;
+        while (lineBuf.hasRemaining()) {
+            if (idx >= expectedNumberOfFields) {
+            	LOGGER.error("Expected {} fields in record, we are currently attempting to process field number {}.", expectedNumberOfFields, idx);
+            	eventPublisher.publishEvent(new MalformedLineEvent(inputFile, lineNumber));
+                return Optional.empty();
+            }
+
+            // Skip the buffer forward until we hit our delimiter of interest.
+            while (lineBuf.get() != delimiter && lineBuf.hasRemaining()) {
+            	// Empty block here to appease SonarQube. lineBuf.get() advances the pointer one byte, so it IS doing work.
+            }
+        	if (!lineBuf.hasRemaining() && lineBuf.get(lineBuf.position() - 1) == delimiter) {
+        		lineEndsWithDelimiter = true;
+        	}
+            CharBuffer slice = lineBuf.duplicate();
+            slice.flip();
+            if (lineBuf.hasRemaining() || lineEndsWithDelimiter) {
+            	// Remove the delimiter.
+                slice.limit(slice.limit() - 1);
+            }
+            record[idx] = slice.toString();
+            idx++;
+
+            lineBuf = lineBuf.slice();
+        }
+        if (lineEndsWithDelimiter) {
+        	if (idx == expectedNumberOfFields) {
+        		eventPublisher.publishEvent(new MalformedLineEvent(inputFile, lineNumber));
+        		return Optional.empty();
+        	}
+        	else {
+        		record[idx] = "";
+        	}
+        }
+        int recordLength = getLength(record);
+        if (getLength(record) != expectedNumberOfFields) {
+        	LOGGER.error("Expected {} fields in record, but only {} were present.", expectedNumberOfFields, recordLength);
+        	eventPublisher.publishEvent(new MalformedLineEvent(inputFile, lineNumber));
+            return Optional.empty();
+        }
+        if (!skipLineReadEvents) {
+        	eventPublisher.publishEvent(new LineSplitEvent(inputFile, Optional.of(record), lineNumber));
+        }
+        return Optional.of(record);
+	}
+	
+	/**
+	 * Splits the line held between the position and limit of the supplied buffer without decoding it. The line is scanned
+	 * exactly once and the offsets of each field are recorded in the supplied {@link ByteRecord}; no String is created unless a
+	 * {@link LineSplitEvent} needs to be broadcasted. The buffer's position and limit are left untouched.
+	 * 
+	 * <br><br>
+	 * 
+	 * A line is malformed under exactly the same conditions as {@link #splitLine(File, CharBuffer, char, int, long, boolean)}:
+	 * a non empty line must contain exactly expectedNumberOfFields - 1 delimiters, so a trailing delimiter denotes a final empty field.
+	 * 
+	 * <br><br>
+	 * 
+	 * If the record has a projection, the delimiters after its last projected field are counted but their offsets are not recorded.
+	 * 
+	 * @param record
+	 * 		The record to split the line into. Its previous contents are discarded.
+	 * @return
+	 * 		True if the line was split successfully. False if it was malformed, in which case a {@link MalformedLineEvent} has been broadcasted.
+	 */
+	public boolean splitLine(File inputFile, ByteBuffer lineBuf, byte delimiter, int expectedNumberOfFields, long lineNumber, boolean skipLineReadEvents,
+			ByteRecord record, ApplicationEventPublisher eventPublisher) {
+		int lineStart = lineBuf.position();
+		int lineEnd = lineBuf.limit();
+		record.reset(lineBuf, lineStart, lineEnd);
+		if (lineStart < lineEnd) {
+			// Find every delimiter in one pass. A delimiter means there is at least one more field after it, so finding
+			// expectedNumberOfFields of them is already too many and there is no need to look for any more. If the record
+			// has a projection, only the delimiters up to the end of its last projected field are needed.
+			int expectedDelimiters = Math.max(expectedNumberOfFields, 0);
+			int[] delimiters = record.getDelimiterIndexes(Math.min(expectedDelimiters, record.getProjectedFieldLimit()));
+			int delimiterCount = byteScanner.indexesOf(lineBuf, lineStart, lineEnd, delimiter, delimiters);
+			boolean skipRemainingFields = delimiterCount == delimiters.length && delimiters.length < expectedDelimiters;
+			if (skipRemainingFields) {
+				// The fields after the last projected one are only counted, for the field count check.
+				int searchFrom = delimiterCount == 0 ? lineStart : delimiters[delimiterCount - 1] + 1;
+				delimiterCount += byteScanner.count(lineBuf, searchFrom, lineEnd, delimiter);
+			}
+			if (delimiterCount >= expectedDelimiters) {
+				LOGGER.error("Expected {} fields in record, we are currently attempting to process field number {}.", expectedNumberOfFields, delimiterCount);
+				eventPublisher.publishEvent(new MalformedLineEvent(inputFile, lineNumber));
+				return false;
+			}
+			int fieldStart = lineStart;
+			for (int i = 0; i < Math.min(delimiterCount, delimiters.length); i++) {
+				record.addField(fieldStart, delimiters[i]);
+				fieldStart = delimiters[i] + 1;
+			}
+			if (skipRemainingFields) {
+				record.addSkippedFields(delimiterCount + 1 - delimiters.length);
+			}
+			else {
+				// Whatever follows the last delimiter is the final field, even if it is empty.
+				record.addField(fieldStart, lineEnd);
+			}
+		}
+		if (record.getFieldCount() != expectedNumberOfFields) {
+			LOGGER.error("Expected {} fields in record, but only {} were present.", expectedNumberOfFields, record.getFieldCount());
+			eventPublisher.publishEvent(new MalformedLineEvent(inputFile, lineNumber));
+			return false;
+		}
+		if (!skipLineReadEvents) {
+			eventPublisher.publishEvent(new LineSplitEvent(inputFile, Optional.of(record.toArray()), lineNumber));
+		}
+		return true;
+	}
+
+	/**
+	 * Splits a record whose fields may be quoted, as described by RFC 4180, into the supplied {@link ByteRecord}. A quoted field
+	 * may contain the delimiter, line breaks and doubled quotes; its offsets exclude the enclosing quotes.
+	 *
+	 * <br><br>
+	 *
+	 * A record without a quote in it is split by {@link #splitLine(File, ByteBuffer, byte, int, long, boolean, ByteRecord, ApplicationEventPublisher)},
+	 * so unquoted records cost no more than they do with quoting off. Otherwise the record is split by {@link QuotedFields},
+	 * and is also malformed if a quoted field is never closed or its closing quote is followed by anything but a delimiter.
+	 *
+	 * @param quote
+	 * 		The quote character.
+	 * @return
+	 * 		True if the record was split successfully. False if it was malformed, in which case a {@link MalformedLineEvent} has been broadcasted.
+	 */
+	public boolean splitQuotedLine(File inputFile, ByteBuffer lineBuf, byte delimiter, byte quote, int expectedNumberOfFields, long lineNumber,
+			boolean skipLineReadEvents, ByteRecord record, ApplicationEventPublisher eventPublisher) {
+		int lineStart = lineBuf.position();
+		int lineEnd = lineBuf.limit();
+		if (byteScanner.indexOf(lineBuf, lineStart, lineEnd, quote) == -1) {
+			return splitLine(inputFile, lineBuf, delimiter, expectedNumberOfFields, lineNumber, skipLineReadEvents, record, eventPublisher);
+		}
+		record.reset(lineBuf, lineStart, lineEnd);
+		record.setQuote(quote);
+		int result = QuotedFields.split(lineBuf, lineStart, lineEnd, delimiter, quote, record, Math.max(expectedNumberOfFields, 0));
+		if (result == QuotedFields.TOO_MANY_FIELDS) {
+			LOGGER.error("Expected {} fields in record, we are currently attempting to process field number {}.", expectedNumberOfFields, record.getFieldCount() + 1);
+			eventPublisher.publishEvent(new MalformedLineEvent(inputFile, lineNumber));
+			return false;
+		}
+		if (result == QuotedFields.BAD_QUOTES) {
+			LOGGER.error("Record has a quoted field that is not closed, or is followed by more than a delimiter.");
+			eventPublisher.publishEvent(new MalformedLineEvent(inputFile, lineNumber));
+			return false;
+		}
+		if (record.getFieldCount() != expectedNumberOfFields) {
+			LOGGER.error("Expected {} fields in record, but only {} were present.", expectedNumberOfFields, record.getFieldCount());
+			eventPublisher.publishEvent(new MalformedLineEvent(inputFile, lineNumber));
+			return false;
+		}
+		if (!skipLineReadEvents) {
+			eventPublisher.publishEvent(new LineSplitEvent(inputFile, Optional.of(record.toArray()), lineNumber));
+		}
+		return true;
+	}
+
+	/**
+	 * Splits a record of a fixed width file into the supplied {@link ByteRecord} by slicing it at the offsets of the layout.
+	 * The record is malformed if it is shorter than {@link FixedWidthLayout#getWidth()}.
+	 *
+	 * @return
+	 * 		True if the record was split successfully. False if it was malformed, in which case a {@link MalformedLineEvent} has been broadcasted.
+	 */
+	public boolean splitFixedWidthLine(File inputFile, ByteBuffer lineBuf, FixedWidthLayout layout, long lineNumber, boolean skipLineReadEvents,
+			ByteRecord record, ApplicationEventPublisher eventPublisher) {
+		if (!layout.split(lineBuf, lineBuf.position(), lineBuf.limit(), record)) {
+			LOGGER.error("Expected a record of at least {} bytes, but only {} were present.", layout.getWidth(), lineBuf.remaining());
+			eventPublisher.publishEvent(new MalformedLineEvent(inputFile, lineNumber));
+			return false;
+		}
+		if (!skipLineReadEvents) {
+			eventPublisher.publishEvent(new LineSplitEvent(inputFile, Optional.of(record.toArray()), lineNumber));
+		}
+		return true;
+	}
+
+	public <T> int getLength(T[] arr) {
+	    int count = 0;
+	    for (T el : arr) {
+	        if (el != null) {
+	            ++count;
+	        }
+	    }
+	    return count;
+	}
+	
+	@Autowired
+	public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+		this.eventPublisher = eventPublisher;
+	}
+
+	/**
+	 * Sets the scanner used to find the delimiters of a line split from a {@link ByteBuffer}. Defaults to a {@link SwarByteScanner}.
+	 */
+	public void setByteScanner(ByteScanner byteScanner) {
+		this.byteScanner = byteScanner;
+	}
+}
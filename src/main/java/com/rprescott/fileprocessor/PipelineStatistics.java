@@ -0,0 +1,102 @@
+package com.rprescott.fileprocessor;
+
+/**
+ * Describes how the stages of a pipelined read kept up with each other. Every time the reader hands a block to the workers,
+ * the ring buffer is sampled: the number of blocks waiting to be split and validated shows how far the workers are behind
+ * the reader, and the number of finished blocks waiting to be published shows how far the publisher (and therefore the
+ * listeners) are behind the workers. Time spent waiting by the reader and the publisher points at the slowest stage.
+ * 
+ * @author rprescott
+ */
+public class PipelineStatistics {
+
+	private int ringSize;
+	private int workerThreads;
+	private long blocks;
+	private long awaitingProcessingTotal;
+	private int awaitingProcessingMax;
+	private long awaitingPublishTotal;
+	private int awaitingPublishMax;
+	private long readerWaitNanos;
+	private long publisherWaitNanos;
+
+	PipelineStatistics(int ringSize, int workerThreads) {
+		this.ringSize = ringSize;
+		this.workerThreads = workerThreads;
+	}
+
+	void sample(int awaitingProcessing, int awaitingPublish) {
+		blocks++;
+		awaitingProcessingTotal += awaitingProcessing;
+		awaitingProcessingMax = Math.max(awaitingProcessingMax, awaitingProcessing);
+		awaitingPublishTotal += awaitingPublish;
+		awaitingPublishMax = Math.max(awaitingPublishMax, awaitingPublish);
+	}
+
+	void addReaderWait(long nanos) {
+		readerWaitNanos += nanos;
+	}
+
+	void addPublisherWait(long nanos) {
+		publisherWaitNanos += nanos;
+	}
+
+	public int getRingSize() {
+		return ringSize;
+	}
+
+	public int getWorkerThreads() {
+		return workerThreads;
+	}
+
+	/**
+	 * Returns the number of blocks the reader handed to the workers.
+	 */
+	public long getBlocks() {
+		return blocks;
+	}
+
+	/**
+	 * Returns the average number of blocks that were read but not yet split and validated.
+	 */
+	public double getAverageAwaitingProcessing() {
+		return blocks == 0 ? 0 : (double) awaitingProcessingTotal / blocks;
+	}
+
+	public int getMaxAwaitingProcessing() {
+		return awaitingProcessingMax;
+	}
+
+	/**
+	 * Returns the average number of blocks that were split and validated but not yet published.
+	 */
+	public double getAverageAwaitingPublish() {
+		return blocks == 0 ? 0 : (double) awaitingPublishTotal / blocks;
+	}
+
+	public int getMaxAwaitingPublish() {
+		return awaitingPublishMax;
+	}
+
+	/**
+	 * Returns the time the reader spent waiting for a free slot in the ring, i.e. the time it was held up by a later stage.
+	 */
+	public long getReaderWaitNanos() {
+		return readerWaitNanos;
+	}
+
+	/**
+	 * Returns the time the publisher spent waiting for the next block to be split and validated.
+	 */
+	public long getPublisherWaitNanos() {
+		return publisherWaitNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Blocks: %d. Ring Size: %d. Workers: %d. Awaiting Processing (avg/max): %.2f/%d. Awaiting Publish (avg/max): %.2f/%d. "
+			+ "Reader Waited: %dms. Publisher Waited: %dms.",
+			blocks, ringSize, workerThreads, getAverageAwaitingProcessing(), awaitingProcessingMax, getAverageAwaitingPublish(), awaitingPublishMax,
+			readerWaitNanos / 1000000, publisherWaitNanos / 1000000);
+	}
+}
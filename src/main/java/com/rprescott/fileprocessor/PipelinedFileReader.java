@@ -0,0 +1,396 @@
+package com.rprescott.fileprocessor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.rprescott.fileprocessor.exceptions.BufferExceededException;
+import com.rprescott.fileprocessor.metrics.FileMetrics;
+
+/**
+ * Reads a file as three stages connected by a fixed ring of buffers borrowed from a {@link BufferPool}:
+ * 
+ * <br><br>
+ * 
+ * <ol>
+ * <li>A single reader thread fills the next free slot of the ring with a block of whole lines, carrying any partial line at
+ * the end of the block over to the next slot, and numbers the block by counting the LFs that end its records.</li>
+ * <li>A pool of workers splits (and optionally validates) each block as soon as it has been read, holding the resulting
+ * events in the slot.</li>
+ * <li>The calling thread acts as the sequencer: it waits for the slots in the order they were read and publishes their
+ * events, so listeners see every event in file order and on one thread.</li>
+ * </ol>
+ * 
+ * A slot is only handed back to the reader once its events have been published, so the number of blocks (and events) held in
+ * memory never exceeds the size of the ring. Instances are not thread safe and may only be used for one file.
+ *
+ * @author rprescott
+ */
+class PipelinedFileReader {
+
+	/**
+	 * Splits (and optionally validates) the lines of a block, publishing the events to the supplied publisher.
+	 */
+	interface BlockProcessor {
+		/**
+		 * @return The number of records read from the block.
+		 */
+		long process(ByteBuffer block, long firstLineNumber, ApplicationEventPublisher publisher, FileMetrics metrics);
+	}
+
+	private enum SlotState {
+		FREE, FILLED, DONE
+	}
+
+	private static class Slot {
+		private ByteBuffer buffer;
+		private ByteBuffer block;
+		private long firstLineNumber;
+		private final BufferedEventPublisher events = new BufferedEventPublisher();
+		private long recordsRead;
+		private FileMetrics metrics;
+		private Throwable failure;
+		private SlotState state = SlotState.FREE;
+	}
+
+	/** How long to wait, after an abandoned read, for the reader and workers to stop before their buffers are pooled again. */
+	private static final long RELEASE_TIMEOUT_SECONDS = 5;
+
+	private final Slot[] ring;
+	private final int blockSize;
+	private final BufferPool bufferPool;
+	private final int maxBufferCapacity;
+	private final int workerThreads;
+	private final RecordFramer framer;
+	private final PipelineStatistics statistics;
+	/** Null if metrics are not being gathered. Only touched by the reader until it has finished. */
+	private FileMetrics readerMetrics;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition slotFreed = lock.newCondition();
+	private final Condition slotProcessed = lock.newCondition();
+	/** The number of blocks handed to the workers so far. Only written by the reader, under the lock. */
+	private long readSequence;
+	/** The number of blocks published so far. Only written by the sequencer, under the lock. */
+	private long publishSequence;
+	private int awaitingProcessing;
+	private int awaitingPublish;
+	private boolean readerFinished;
+	private Throwable readerFailure;
+	private boolean aborted;
+
+	/**
+	 * @param ringSize
+	 * 		The number of slots in the ring. Must be at least 2.
+	 * @param blockSize
+	 * 		The initial capacity of each slot, in bytes.
+	 * @param maxBufferCapacity
+	 * 		The largest a slot may grow to in order to hold a single line.
+	 * @param workerThreads
+	 * 		The number of threads splitting and validating blocks.
+	 * @param framer
+	 * 		Finds the LF at the end of each record.
+	 * @param bufferPool
+	 * 		The pool the buffer of each slot is borrowed from while the file is read.
+	 */
+	PipelinedFileReader(int ringSize, int blockSize, int maxBufferCapacity, int workerThreads, RecordFramer framer, BufferPool bufferPool) {
+		if (ringSize < 2) {
+			throw new IllegalArgumentException("The ring must have at least 2 slots: " + ringSize);
+		}
+		if (workerThreads < 1) {
+			throw new IllegalArgumentException("At least one worker thread is required: " + workerThreads);
+		}
+		this.ring = new Slot[ringSize];
+		for (int i = 0; i < ringSize; i++) {
+			ring[i] = new Slot();
+		}
+		this.blockSize = blockSize;
+		this.bufferPool = bufferPool;
+		this.maxBufferCapacity = maxBufferCapacity;
+		this.workerThreads = workerThreads;
+		this.framer = framer;
+		this.statistics = new PipelineStatistics(ringSize, workerThreads);
+	}
+
+	/**
+	 * Reads the channel from its current position to the end, processing each block with the supplied processor and
+	 * publishing the resulting events, in file order, to the supplied publisher from the calling thread. Unless the supplied
+	 * metrics are null, the metrics of every stage are merged into them.
+	 * 
+	 * @return The number of records read.
+	 * @throws BufferExceededException
+	 * 		If a single line does not fit in maxBufferCapacity bytes.
+	 */
+	long read(ReadableByteChannel channel, String name, BlockProcessor processor, ApplicationEventPublisher publisher, FileMetrics metrics) throws IOException {
+		readerMetrics = metrics != null ? new FileMetrics() : null;
+		for (Slot slot : ring) {
+			slot.buffer = bufferPool.acquire(blockSize);
+		}
+		ExecutorService workers = Executors.newFixedThreadPool(workerThreads,
+			new ThreadFactoryBuilder().setNameFormat("pipeline-worker-" + name + "-%d").setDaemon(true).build());
+		Thread reader = new Thread(() -> readBlocks(channel, processor, workers), "pipeline-reader-" + name);
+		reader.setDaemon(true);
+		reader.start();
+		long recordsRead = 0;
+		try {
+			Slot slot;
+			while ((slot = awaitNextProcessedSlot()) != null) {
+				if (slot.failure != null) {
+					throw rethrow(slot.failure);
+				}
+				slot.events.replay(publisher);
+				recordsRead += slot.recordsRead;
+				if (metrics != null) {
+					metrics.merge(slot.metrics);
+				}
+				releaseSlot(slot);
+			}
+			if (metrics != null) {
+				metrics.merge(readerMetrics);
+			}
+			return recordsRead;
+		}
+		finally {
+			abort();
+			workers.shutdownNow();
+			releaseBuffers(reader, workers);
+		}
+	}
+
+	/**
+	 * Returns the buffer of every slot to the pool once the reader and workers have stopped using them. If they do not stop,
+	 * the buffers are left to the garbage collector instead.
+	 */
+	private void releaseBuffers(Thread reader, ExecutorService workers) {
+		try {
+			reader.join(TimeUnit.SECONDS.toMillis(RELEASE_TIMEOUT_SECONDS));
+			if (reader.isAlive() || !workers.awaitTermination(RELEASE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				return;
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		for (Slot slot : ring) {
+			bufferPool.release(slot.buffer);
+			slot.buffer = null;
+		}
+	}
+
+	PipelineStatistics getStatistics() {
+		return statistics;
+	}
+
+	private void readBlocks(ReadableByteChannel channel, BlockProcessor processor, ExecutorService workers) {
+		try {
+			long lineNumber = 1;
+			ByteBuffer carry = null;
+			boolean endOfFile = false;
+			while (!endOfFile) {
+				Slot slot = awaitFreeSlot();
+				if (slot == null) {
+					return;
+				}
+				ByteBuffer buf = slot.buffer;
+				buf.clear();
+				if (carry != null) {
+					// The partial line left over from the previous block starts this one. It has already been searched for a LF.
+					if (buf.capacity() < carry.capacity()) {
+						bufferPool.release(buf);
+						buf = slot.buffer = bufferPool.acquire(carry.capacity());
+					}
+					buf.put(carry);
+				}
+				int scanned = buf.position();
+				int blockEnd = 0;
+				int lineFeeds = 0;
+				while (true) {
+					if (!buf.hasRemaining()) {
+						if (blockEnd > 0) {
+							break;
+						}
+						// Not a single whole line fits in the slot, so it has to grow.
+						if (buf.capacity() * 2 > maxBufferCapacity) {
+							throw new BufferExceededException();
+						}
+						buf = slot.buffer = bufferPool.grow(buf);
+						if (readerMetrics != null) {
+							readerMetrics.recordBufferGrowth();
+						}
+					}
+					long readStarted = readerMetrics != null ? System.nanoTime() : 0;
+					int bytesRead = channel.read(buf);
+					if (readerMetrics != null) {
+						readerMetrics.recordRead(bytesRead, System.nanoTime() - readStarted);
+					}
+					if (bytesRead == -1) {
+						endOfFile = true;
+						blockEnd = buf.position();
+						break;
+					}
+					for (int i = framer.nextRecordEnd(buf, blockEnd, scanned, buf.position()); i != -1; i = framer.nextRecordEnd(buf, i + 1, i + 1, buf.position())) {
+						lineFeeds++;
+						blockEnd = i + 1;
+					}
+					scanned = buf.position();
+				}
+				slot.block = buf.duplicate();
+				slot.block.limit(blockEnd).position(0);
+				slot.firstLineNumber = lineNumber;
+				slot.metrics = readerMetrics != null ? new FileMetrics() : null;
+				lineNumber += lineFeeds;
+				carry = buf.duplicate();
+				carry.limit(buf.position()).position(blockEnd);
+				submit(slot, processor, workers);
+			}
+		}
+		catch (Throwable ex) {
+			lock.lock();
+			try {
+				readerFailure = ex;
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+		finally {
+			lock.lock();
+			try {
+				readerFinished = true;
+				slotProcessed.signalAll();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Waits for the slot after the last one read to be published. Returns null if the read has been abandoned.
+	 */
+	private Slot awaitFreeSlot() throws InterruptedException {
+		lock.lock();
+		try {
+			Slot slot = ring[(int) (readSequence % ring.length)];
+			if (slot.state != SlotState.FREE && !aborted) {
+				long waitStarted = System.nanoTime();
+				while (slot.state != SlotState.FREE && !aborted) {
+					slotFreed.await();
+				}
+				statistics.addReaderWait(System.nanoTime() - waitStarted);
+			}
+			return aborted ? null : slot;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void submit(Slot slot, BlockProcessor processor, ExecutorService workers) {
+		lock.lock();
+		try {
+			slot.state = SlotState.FILLED;
+			readSequence++;
+			awaitingProcessing++;
+			statistics.sample(awaitingProcessing, awaitingPublish);
+		}
+		finally {
+			lock.unlock();
+		}
+		workers.execute(() -> {
+			try {
+				slot.recordsRead = processor.process(slot.block, slot.firstLineNumber, slot.events, slot.metrics);
+			}
+			catch (Throwable ex) {
+				slot.failure = ex;
+			}
+			lock.lock();
+			try {
+				slot.state = SlotState.DONE;
+				awaitingProcessing--;
+				awaitingPublish++;
+				slotProcessed.signalAll();
+			}
+			finally {
+				lock.unlock();
+			}
+		});
+	}
+
+	/**
+	 * Waits for the next slot, in the order they were read, to be processed. Returns null once every block has been published.
+	 */
+	private Slot awaitNextProcessedSlot() throws IOException {
+		lock.lock();
+		try {
+			Slot slot = ring[(int) (publishSequence % ring.length)];
+			long waitStarted = System.nanoTime();
+			while (readerFailure == null && !(readerFinished && publishSequence == readSequence)
+					&& !(publishSequence < readSequence && slot.state == SlotState.DONE)) {
+				slotProcessed.await();
+			}
+			statistics.addPublisherWait(System.nanoTime() - waitStarted);
+			if (readerFailure != null) {
+				throw rethrow(readerFailure);
+			}
+			return publishSequence == readSequence ? null : slot;
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a block to be processed.");
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void releaseSlot(Slot slot) {
+		lock.lock();
+		try {
+			slot.state = SlotState.FREE;
+			publishSequence++;
+			awaitingPublish--;
+			slotFreed.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void abort() {
+		lock.lock();
+		try {
+			aborted = true;
+			slotFreed.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private static IOException rethrow(Throwable failure) throws IOException {
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure instanceof InterruptedException) {
+			throw new InterruptedIOException("Interrupted while reading a block.");
+		}
+		throw new IOException(failure);
+	}
+}
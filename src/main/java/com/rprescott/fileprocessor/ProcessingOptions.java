@@ -0,0 +1,225 @@
+package com.rprescott.fileprocessor;
+
+import java.io.File;
+
+/**
+ * Options that control how a single call to the {@link FileProcessor} behaves, as opposed to the
+ * {@link com.rprescott.fileprocessor.validation.FileConfiguration} which describes the file itself.
+ * The defaults reproduce the behavior of the methods that do not take any options.
+ * 
+ * @author rprescott
+ */
+public class ProcessingOptions {
+
+	private int eventBatchSize;
+	private long eventBatchBytes;
+	private boolean columnarBatches;
+	private int failureExamples = 10;
+	private double failureLogsPerSecond;
+	private boolean failFast;
+	private long ruleOrderingSampleRecords = 1000;
+	private long checkpointEveryRecords;
+	private long checkpointEveryMillis;
+	private File checkpointFile;
+	private boolean following;
+	private long followPollMillis = 1000;
+	private long followIdleTimeoutMillis;
+	private File followMarkerFile;
+	private String followTrailerPrefix;
+
+	/**
+	 * Returns true if line events should be published in batches rather than one at a time.
+	 */
+	public boolean isBatchingEvents() {
+		return eventBatchSize > 1 || eventBatchBytes > 0;
+	}
+
+	public int getEventBatchSize() {
+		return eventBatchSize;
+	}
+
+	/**
+	 * Sets the maximum number of records to publish in a single {@link com.rprescott.fileprocessor.events.LineBatchSplitEvent} or
+	 * {@link com.rprescott.fileprocessor.events.ValidatedBatchEvent}. A value of 0 or 1 publishes every line on its own
+	 * unless {@link #setEventBatchBytes(long)} is also set.
+	 */
+	public void setEventBatchSize(int eventBatchSize) {
+		this.eventBatchSize = eventBatchSize;
+	}
+
+	public long getEventBatchBytes() {
+		return eventBatchBytes;
+	}
+
+	/**
+	 * Sets the approximate number of bytes of record data after which a batch is published, whether or not it holds
+	 * {@link #setEventBatchSize(int)} records yet. A value of 0 means batches are only limited by their number of records.
+	 */
+	public void setEventBatchBytes(long eventBatchBytes) {
+		this.eventBatchBytes = eventBatchBytes;
+	}
+
+	public boolean isColumnarBatches() {
+		return columnarBatches;
+	}
+
+	/**
+	 * Sets whether validated lines should be published in {@link com.rprescott.fileprocessor.events.ColumnarBatchEvent}s, with numeric
+	 * and date fields already parsed, rather than in {@link com.rprescott.fileprocessor.events.ValidatedBatchEvent}s. Only applies
+	 * when events are batched by {@link #setEventBatchSize(int)} or {@link #setEventBatchBytes(long)}.
+	 */
+	public void setColumnarBatches(boolean columnarBatches) {
+		this.columnarBatches = columnarBatches;
+	}
+
+	public int getFailureExamples() {
+		return failureExamples;
+	}
+
+	/**
+	 * Sets the number of failing values (and their line numbers) kept as examples for each field and rule in the summary of
+	 * validation failures. Defaults to 10.
+	 */
+	public void setFailureExamples(int failureExamples) {
+		this.failureExamples = failureExamples;
+	}
+
+	public double getFailureLogsPerSecond() {
+		return failureLogsPerSecond;
+	}
+
+	/**
+	 * Sets the most validation failures per second to log individually at DEBUG, in addition to the summary logged once the file
+	 * is complete. Defaults to 0, which never logs individual failures.
+	 */
+	public void setFailureLogsPerSecond(double failureLogsPerSecond) {
+		this.failureLogsPerSecond = failureLogsPerSecond;
+	}
+
+	public boolean isFailFast() {
+		return failFast;
+	}
+
+	/**
+	 * Sets whether the validation of a record stops at the first rule it fails, so that an invalid record reports that one failure
+	 * rather than every one. The rules of each field are applied in the order they were declared for the first
+	 * {@link #setRuleOrderingSampleRecords(long)} records, and from then on in order of the time each takes per failure it found,
+	 * so that cheap rules that often fail are applied first. Defaults to false, which applies every rule and reports every failure.
+	 */
+	public void setFailFast(boolean failFast) {
+		this.failFast = failFast;
+	}
+
+	public long getRuleOrderingSampleRecords() {
+		return ruleOrderingSampleRecords;
+	}
+
+	/**
+	 * Sets the number of records whose every rule is applied, and timed, to order the rules of a file validated fail fast.
+	 * Defaults to 1000.
+	 */
+	public void setRuleOrderingSampleRecords(long ruleOrderingSampleRecords) {
+		this.ruleOrderingSampleRecords = ruleOrderingSampleRecords;
+	}
+
+	/**
+	 * Returns true if {@link FileProcessor#readFile(File, com.rprescott.fileprocessor.validation.FileConfiguration, boolean, ProcessingOptions)}
+	 * should record its progress so that it can be resumed.
+	 */
+	public boolean isCheckpointing() {
+		return checkpointEveryRecords > 0 || checkpointEveryMillis > 0;
+	}
+
+	public long getCheckpointEveryRecords() {
+		return checkpointEveryRecords;
+	}
+
+	/**
+	 * Sets the number of records between checkpoints. A value of 0 means checkpoints are only written by time.
+	 */
+	public void setCheckpointEveryRecords(long checkpointEveryRecords) {
+		this.checkpointEveryRecords = checkpointEveryRecords;
+	}
+
+	public long getCheckpointEveryMillis() {
+		return checkpointEveryMillis;
+	}
+
+	/**
+	 * Sets the most time, in milliseconds, between checkpoints. A value of 0 means checkpoints are only written by records.
+	 */
+	public void setCheckpointEveryMillis(long checkpointEveryMillis) {
+		this.checkpointEveryMillis = checkpointEveryMillis;
+	}
+
+	public File getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	/**
+	 * Sets the sidecar file checkpoints are written to. Defaults to the input file with ".checkpoint" appended.
+	 */
+	public void setCheckpointFile(File checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	public boolean isFollowing() {
+		return following;
+	}
+
+	/**
+	 * Sets whether {@link FileProcessor#readFile(File, com.rprescott.fileprocessor.validation.FileConfiguration, boolean, ProcessingOptions)}
+	 * should keep reading a file that is still being written once it reaches the end of it, until one of the follow end conditions
+	 * is met. With no end condition, the file is followed until the thread is interrupted.
+	 */
+	public void setFollowing(boolean following) {
+		this.following = following;
+	}
+
+	public long getFollowPollMillis() {
+		return followPollMillis;
+	}
+
+	/**
+	 * Sets how long, in milliseconds, to wait between checks for new data once the end of a followed file is reached. Defaults to 1000.
+	 */
+	public void setFollowPollMillis(long followPollMillis) {
+		this.followPollMillis = followPollMillis;
+	}
+
+	public long getFollowIdleTimeoutMillis() {
+		return followIdleTimeoutMillis;
+	}
+
+	/**
+	 * Sets how long, in milliseconds, a followed file may go without growing before it is considered complete. A value of 0
+	 * never times out.
+	 */
+	public void setFollowIdleTimeoutMillis(long followIdleTimeoutMillis) {
+		this.followIdleTimeoutMillis = followIdleTimeoutMillis;
+	}
+
+	public File getFollowMarkerFile() {
+		return followMarkerFile;
+	}
+
+	/**
+	 * Sets a file whose existence means a followed file is complete. The followed file is read to its end once more after the
+	 * marker appears.
+	 */
+	public void setFollowMarkerFile(File followMarkerFile) {
+		this.followMarkerFile = followMarkerFile;
+	}
+
+	public String getFollowTrailerPrefix() {
+		return followTrailerPrefix;
+	}
+
+	/**
+	 * Sets the start of the trailer record that ends a followed file. The trailer record is neither broadcasted nor counted, and
+	 * anything after it is ignored.
+	 */
+	public void setFollowTrailerPrefix(String followTrailerPrefix) {
+		this.followTrailerPrefix = followTrailerPrefix;
+	}
+}
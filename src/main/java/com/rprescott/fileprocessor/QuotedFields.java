@@ -0,0 +1,129 @@
+package com.rprescott.fileprocessor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A table driven state machine for records whose fields may be quoted as described by RFC 4180. A field that starts with the
+ * quote character runs until the next quote that is not doubled, so it may contain the delimiter, CRs and LFs, and a doubled
+ * quote within it stands for a single quote. A quote anywhere else in a field is an ordinary character.
+ *
+ * <br><br>
+ *
+ * Each byte is classed as a delimiter, a quote or anything else, and the class and the current state pick the next state and
+ * what to do with the field so far from {@link #TRANSITIONS}. This is only used for records that contain a quote; every other
+ * record is found and split by the {@link ByteScanner} exactly as it is when quoting is off.
+ *
+ * @author rprescott
+ */
+final class QuotedFields {
+
+	/** The record was split into fields. */
+	static final int SPLIT = 0;
+	/** The record has more fields than the maximum. */
+	static final int TOO_MANY_FIELDS = 1;
+	/** The record has a quoted field that is never closed, or that is followed by anything but a delimiter. */
+	static final int BAD_QUOTES = 2;
+
+	private static final byte LF = '\n';
+
+	// Byte classes.
+	private static final int OTHER = 0;
+	private static final int DELIMITER = 1;
+	private static final int QUOTE = 2;
+
+	// States.
+	private static final int FIELD_START = 0;
+	private static final int UNQUOTED = 1;
+	private static final int QUOTED = 2;
+	/** A quote has been read inside a quoted field. It either closes the field or, if another quote follows, is escaped. */
+	private static final int CLOSING_QUOTE = 3;
+	private static final int ERROR = 4;
+	private static final int STATE_MASK = 0x7;
+
+	// Actions, combined with the next state in each transition.
+	/** The field ending at this delimiter is unquoted. */
+	private static final int END_FIELD = 0x8;
+	/** The field ending at this delimiter is quoted; its value excludes the quotes. */
+	private static final int END_QUOTED_FIELD = 0x10;
+	/** The quote just read is the second of a doubled quote. */
+	private static final int ESCAPED_QUOTE = 0x20;
+
+	private static final int[][] TRANSITIONS = {
+		//                  OTHER      DELIMITER                         QUOTE
+		/* FIELD_START */   { UNQUOTED, FIELD_START | END_FIELD,          QUOTED },
+		/* UNQUOTED */      { UNQUOTED, FIELD_START | END_FIELD,          UNQUOTED },
+		/* QUOTED */        { QUOTED,   QUOTED,                           CLOSING_QUOTE },
+		/* CLOSING_QUOTE */ { ERROR,    FIELD_START | END_QUOTED_FIELD,   QUOTED | ESCAPED_QUOTE },
+		/* ERROR */         { ERROR,    ERROR,                            ERROR },
+	};
+
+	private QuotedFields() {
+	}
+
+	/**
+	 * Returns the index of the LF that ends the record starting at from, skipping any LF within a quoted field, or -1 if the
+	 * record does not end before to.
+	 */
+	static int findRecordEnd(ByteBuffer buf, int from, int to, byte delimiter, byte quote) {
+		int state = FIELD_START;
+		for (int i = from; i < to; i++) {
+			byte b = buf.get(i);
+			if (b == LF && state != QUOTED) {
+				return i;
+			}
+			state = TRANSITIONS[state][classOf(b, delimiter, quote)] & STATE_MASK;
+		}
+		return -1;
+	}
+
+	/**
+	 * Splits the record between from and to (without its EOR marker) into the fields of the supplied record, which must already
+	 * have been reset to the record.
+	 *
+	 * @param maxFields
+	 * 		The most fields the record may have.
+	 * @return {@link #SPLIT}, {@link #TOO_MANY_FIELDS} or {@link #BAD_QUOTES}.
+	 */
+	static int split(ByteBuffer buf, int from, int to, byte delimiter, byte quote, ByteRecord record, int maxFields) {
+		int state = FIELD_START;
+		int fieldStart = from;
+		boolean escaped = false;
+		for (int i = from; i < to; i++) {
+			int transition = TRANSITIONS[state][classOf(buf.get(i), delimiter, quote)];
+			state = transition & STATE_MASK;
+			if ((transition & (END_FIELD | END_QUOTED_FIELD)) != 0) {
+				// A delimiter means there is at least one more field after this one.
+				if (record.getFieldCount() + 1 >= maxFields) {
+					return TOO_MANY_FIELDS;
+				}
+				if ((transition & END_FIELD) != 0) {
+					record.addField(fieldStart, i, false);
+				}
+				else {
+					record.addField(fieldStart + 1, i - 1, escaped);
+				}
+				fieldStart = i + 1;
+				escaped = false;
+			}
+			else if ((transition & ESCAPED_QUOTE) != 0) {
+				escaped = true;
+			}
+		}
+		// Whatever follows the last delimiter is the final field, even if it is empty.
+		switch (state) {
+			case FIELD_START:
+			case UNQUOTED:
+				record.addField(fieldStart, to, false);
+				return SPLIT;
+			case CLOSING_QUOTE:
+				record.addField(fieldStart + 1, to - 1, escaped);
+				return SPLIT;
+			default:
+				return BAD_QUOTES;
+		}
+	}
+
+	private static int classOf(byte b, byte delimiter, byte quote) {
+		return b == delimiter ? DELIMITER : b == quote ? QUOTE : OTHER;
+	}
+}
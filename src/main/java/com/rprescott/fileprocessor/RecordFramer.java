@@ -0,0 +1,58 @@
+package com.rprescott.fileprocessor;
+
+import java.nio.ByteBuffer;
+
+import com.rprescott.fileprocessor.validation.FileConfiguration;
+
+/**
+ * Finds the LF that ends each record of a file. Without quoting that is simply the next LF. With quoting an LF may be inside
+ * a quoted field, so when the bytes up to the next LF contain a quote the record is walked by {@link QuotedFields} to find the
+ * first LF outside of any quotes. Records without a quote are found with a single {@link ByteScanner} search either way.
+ * Fixed length records have no EOR marker at all, and simply end every record length bytes.
+ *
+ * @author rprescott
+ */
+class RecordFramer {
+
+	private static final byte LF = '\n';
+
+	private final ByteScanner byteScanner;
+	private final int recordLength;
+	private final boolean quoted;
+	private final byte delimiter;
+	private final byte quote;
+
+	RecordFramer(ByteScanner byteScanner, FileConfiguration fileConfiguration) {
+		this.byteScanner = byteScanner;
+		this.recordLength = fileConfiguration.isFixedWidth() ? fileConfiguration.getRecordLength() : 0;
+		this.quoted = fileConfiguration.isQuoted();
+		this.delimiter = quoted ? (byte) fileConfiguration.getDelimiter().charAt(0) : 0;
+		this.quote = quoted ? (byte) fileConfiguration.getQuote().charAt(0) : 0;
+	}
+
+	/**
+	 * Returns true if records are a fixed number of bytes with no EOR marker, in which case {@link #nextRecordEnd(ByteBuffer, int, int, int)}
+	 * returns the last byte of each record rather than a LF.
+	 */
+	boolean isFixedLength() {
+		return recordLength > 0;
+	}
+
+	/**
+	 * Returns the index of the LF that ends the record starting at recordStart, or -1 if the record does not end before limit.
+	 * The record after it starts at the next index.
+	 *
+	 * @param searchFrom
+	 * 		The index to search for the LF from. Every byte of the record before it must already be known not to be its end.
+	 */
+	int nextRecordEnd(ByteBuffer buf, int recordStart, int searchFrom, int limit) {
+		if (recordLength > 0) {
+			return limit - recordStart >= recordLength ? recordStart + recordLength - 1 : -1;
+		}
+		int lf = byteScanner.indexOf(buf, searchFrom, limit, LF);
+		if (!quoted || lf == -1 || byteScanner.indexOf(buf, recordStart, lf, quote) == -1) {
+			return lf;
+		}
+		return QuotedFields.findRecordEnd(buf, recordStart, limit, delimiter, quote);
+	}
+}
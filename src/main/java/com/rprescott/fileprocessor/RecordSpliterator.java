@@ -0,0 +1,228 @@
+package com.rprescott.fileprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.rprescott.fileprocessor.exceptions.BufferExceededException;
+import com.rprescott.fileprocessor.validation.FileConfiguration;
+import com.rprescott.fileprocessor.validation.RecordValidationResult;
+import com.rprescott.fileprocessor.validation.ValidationPlan;
+
+/**
+ * A {@link Spliterator} over the records of a region of a file. Records are read lazily with positional reads, so nothing
+ * beyond the block holding the next line is read until it is asked for. {@link #trySplit()} divides the remaining region at
+ * the first LF after its midpoint, so a parallel stream can process both halves independently.
+ * 
+ * <br><br>
+ * 
+ * The lines of the region are numbered, the header is skipped and a trailing record without an EOR marker is split but not
+ * validated, all exactly as {@link FileProcessor#readFile(File, FileConfiguration, boolean)} does.
+ * 
+ * @author rprescott
+ */
+class RecordSpliterator implements Spliterator<FileRecord> {
+
+	/** Regions smaller than this are not worth splitting any further. */
+	private static final long MIN_SPLIT_SIZE = 1048576;
+	private static final byte LF = '\n';
+	private static final ApplicationEventPublisher NO_EVENTS = new ApplicationEventPublisher() {
+		@Override
+		public void publishEvent(ApplicationEvent event) {
+			// Malformed lines are reported as records instead.
+		}
+
+		@Override
+		public void publishEvent(Object event) {
+			// Malformed lines are reported as records instead.
+		}
+	};
+
+	private final FileProcessor fileProcessor;
+	private final LineSplitter lineSplitter;
+	private final ByteScanner byteScanner;
+	private final FileChannel channel;
+	private final File inputFile;
+	private final FileConfiguration fileConfiguration;
+	/** Null unless the file is fixed width. */
+	private final FixedWidthLayout layout;
+	private final ValidationPlan validationPlan;
+	private final int maxBufferCapacity;
+	private final long end;
+	private final boolean endsAtEof;
+	private final ByteRecord record = new ByteRecord();
+	private ByteBuffer buf;
+	/** The file offset of the next byte to read into the buffer. */
+	private long readPosition;
+	/** The file offset of the first byte of the next line that has not been returned yet. */
+	private long lineStartPosition;
+	private long lineNumber;
+	private boolean finished;
+
+	RecordSpliterator(FileProcessor fileProcessor, LineSplitter lineSplitter, FileChannel channel, File inputFile, FileConfiguration fileConfiguration,
+			ValidationPlan validationPlan, int bufferSize, int maxBufferCapacity, long start, long end, boolean endsAtEof, long firstLineNumber) {
+		this.fileProcessor = fileProcessor;
+		this.lineSplitter = lineSplitter;
+		this.byteScanner = fileProcessor.getByteScanner();
+		this.channel = channel;
+		this.inputFile = inputFile;
+		this.fileConfiguration = fileConfiguration;
+		this.layout = fileConfiguration.isFixedWidth() ? FixedWidthLayout.compile(fileConfiguration) : null;
+		this.validationPlan = validationPlan;
+		this.record.setProjection(FileProcessor.projectionOf(fileConfiguration, validationPlan));
+		this.maxBufferCapacity = maxBufferCapacity;
+		this.end = end;
+		this.endsAtEof = endsAtEof;
+		this.buf = ByteBuffer.allocate(bufferSize);
+		this.buf.flip();
+		this.readPosition = start;
+		this.lineStartPosition = start;
+		this.lineNumber = firstLineNumber;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super FileRecord> action) {
+		try {
+			FileRecord next = nextRecord();
+			if (next == null) {
+				return false;
+			}
+			action.accept(next);
+			return true;
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private FileRecord nextRecord() throws IOException {
+		while (!finished) {
+			for (int i = byteScanner.indexOf(buf, buf.position(), buf.limit(), LF); i != -1; i = byteScanner.indexOf(buf, i + 1, buf.limit(), LF)) {
+				int lineStart = buf.position();
+				int lineEnd = i > lineStart && buf.get(i - 1) == '\r' ? i - 1 : i;
+				buf.position(i + 1);
+				lineStartPosition += i + 1 - lineStart;
+				long currentLineNumber = lineNumber++;
+				// If the file contains a header, skip the first line because we aren't concerned about headers.
+				if (!(fileConfiguration.isContainsHeader() && currentLineNumber == 1)) {
+					return toRecord(lineStart, lineEnd, currentLineNumber, validationPlan);
+				}
+			}
+			if (!fill()) {
+				finished = true;
+				// Only the region that ends at EOF can end without an EOR marker. Treat the leftover bytes the same way readFile does.
+				if (endsAtEof && buf.hasRemaining()) {
+					return toRecord(buf.position(), buf.limit(), lineNumber++, null);
+				}
+			}
+		}
+		return null;
+	}
+
+	private FileRecord toRecord(int lineStart, int lineEnd, long recordLineNumber, ValidationPlan plan) {
+		ByteBuffer lineBuf = buf.duplicate();
+		lineBuf.limit(lineEnd).position(lineStart);
+		boolean wellFormed = layout != null ? lineSplitter.splitFixedWidthLine(inputFile, lineBuf, layout, recordLineNumber, true, record, NO_EVENTS)
+			: lineSplitter.splitLine(inputFile, lineBuf, (byte) fileConfiguration.getDelimiter().charAt(0), fileConfiguration.getExpectedNumberOfFields(),
+				recordLineNumber, true, record, NO_EVENTS);
+		if (!wellFormed) {
+			return new FileRecord(recordLineNumber, null, null);
+		}
+		String[] fields = record.toArray();
+		RecordValidationResult validationResult = plan != null ? fileProcessor.performValidation(fields, recordLineNumber, plan) : null;
+		return new FileRecord(recordLineNumber, fields, validationResult);
+	}
+
+	/**
+	 * Moves the unread bytes to the front of the buffer and reads more of the region in behind them, doubling the buffer if a
+	 * single line fills it.
+	 * 
+	 * @return False if the end of the region has been reached.
+	 */
+	private boolean fill() throws IOException {
+		if (readPosition >= end) {
+			return false;
+		}
+		buf.compact();
+		if (!buf.hasRemaining()) {
+			if (buf.capacity() * 2 > maxBufferCapacity) {
+				throw new BufferExceededException();
+			}
+			ByteBuffer bigBoyBuffer = ByteBuffer.allocate(buf.capacity() * 2);
+			buf.flip();
+			bigBoyBuffer.put(buf);
+			buf = bigBoyBuffer;
+		}
+		if (buf.remaining() > end - readPosition) {
+			buf.limit(buf.position() + (int) (end - readPosition));
+		}
+		int bytesRead = channel.read(buf, readPosition);
+		buf.flip();
+		if (bytesRead == -1) {
+			return false;
+		}
+		readPosition += bytesRead;
+		return true;
+	}
+
+	@Override
+	public Spliterator<FileRecord> trySplit() {
+		try {
+			if (end - lineStartPosition < MIN_SPLIT_SIZE * 2) {
+				return null;
+			}
+			long splitPosition = FileChunk.alignToNextLine(channel, lineStartPosition + (end - lineStartPosition) / 2, end, maxBufferCapacity);
+			if (splitPosition >= end) {
+				return null;
+			}
+			// The prefix takes over from where this spliterator has got to; this spliterator continues from the split position.
+			RecordSpliterator prefix = new RecordSpliterator(fileProcessor, lineSplitter, channel, inputFile, fileConfiguration, validationPlan,
+				buf.capacity(), maxBufferCapacity, lineStartPosition, splitPosition, false, lineNumber);
+			lineNumber += countLineFeeds(lineStartPosition, splitPosition);
+			lineStartPosition = splitPosition;
+			readPosition = splitPosition;
+			buf.clear().flip();
+			return prefix;
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private long countLineFeeds(long from, long to) throws IOException {
+		ByteBuffer countBuf = ByteBuffer.allocate(65536);
+		long lineFeeds = 0;
+		long position = from;
+		while (position < to) {
+			countBuf.clear();
+			if (to - position < countBuf.capacity()) {
+				countBuf.limit((int) (to - position));
+			}
+			int bytesRead = channel.read(countBuf, position);
+			if (bytesRead == -1) {
+				break;
+			}
+			lineFeeds += byteScanner.count(countBuf, 0, bytesRead, LF);
+			position += bytesRead;
+		}
+		return lineFeeds;
+	}
+
+	@Override
+	public long estimateSize() {
+		// The number of records is not known without reading the region, but it can never exceed the number of bytes left.
+		return finished ? 0 : end - lineStartPosition;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL | IMMUTABLE;
+	}
+}
@@ -0,0 +1,100 @@
+package com.rprescott.fileprocessor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A {@link ByteScanner} that compares eight bytes at a time (SIMD within a register). Each step reads a long from the buffer,
+ * XORs it with the target repeated in every byte, so that matching bytes become zero, and then finds the zero bytes with a
+ * few arithmetic operations instead of eight separate comparisons and bounds checks. The bytes left over at the end of the
+ * range are compared one at a time.
+ *
+ * <br><br>
+ *
+ * The zero byte test used here is exact, never flagging a byte because of a borrow from its neighbour, so the first flagged
+ * byte is the first match whichever order the buffer reads its longs in.
+ *
+ * @author rprescott
+ */
+public class SwarByteScanner implements ByteScanner {
+
+	private static final long ONES = 0x0101010101010101L;
+	private static final long LOW_BITS = 0x7f7f7f7f7f7f7f7fL;
+
+	@Override
+	public int indexOf(ByteBuffer buf, int from, int to, byte target) {
+		long pattern = (target & 0xffL) * ONES;
+		boolean bigEndian = buf.order() == ByteOrder.BIG_ENDIAN;
+		int i = from;
+		for (; i <= to - Long.BYTES; i += Long.BYTES) {
+			long matches = zeroBytes(buf.getLong(i) ^ pattern);
+			if (matches != 0) {
+				// The first byte in the buffer is the most significant byte of a big endian long and the least significant of a little endian one.
+				return i + ((bigEndian ? Long.numberOfLeadingZeros(matches) : Long.numberOfTrailingZeros(matches)) >>> 3);
+			}
+		}
+		for (; i < to; i++) {
+			if (buf.get(i) == target) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int indexesOf(ByteBuffer buf, int from, int to, byte target, int[] indexes) {
+		long pattern = (target & 0xffL) * ONES;
+		boolean bigEndian = buf.order() == ByteOrder.BIG_ENDIAN;
+		int found = 0;
+		int i = from;
+		for (; i <= to - Long.BYTES; i += Long.BYTES) {
+			long matches = zeroBytes(buf.getLong(i) ^ pattern);
+			// Take the matches of the word in buffer order, clearing each one once it is recorded.
+			while (matches != 0) {
+				if (found == indexes.length) {
+					return found;
+				}
+				if (bigEndian) {
+					int bit = Long.numberOfLeadingZeros(matches);
+					indexes[found++] = i + (bit >>> 3);
+					matches &= ~(Long.MIN_VALUE >>> bit);
+				}
+				else {
+					indexes[found++] = i + (Long.numberOfTrailingZeros(matches) >>> 3);
+					matches &= matches - 1;
+				}
+			}
+		}
+		for (; i < to && found < indexes.length; i++) {
+			if (buf.get(i) == target) {
+				indexes[found++] = i;
+			}
+		}
+		return found;
+	}
+
+	@Override
+	public int count(ByteBuffer buf, int from, int to, byte target) {
+		long pattern = (target & 0xffL) * ONES;
+		int occurrences = 0;
+		int i = from;
+		for (; i <= to - Long.BYTES; i += Long.BYTES) {
+			occurrences += Long.bitCount(zeroBytes(buf.getLong(i) ^ pattern));
+		}
+		for (; i < to; i++) {
+			if (buf.get(i) == target) {
+				occurrences++;
+			}
+		}
+		return occurrences;
+	}
+
+	/**
+	 * Returns a long with the high bit of each byte set where that byte of the word is zero, and every other bit clear.
+	 */
+	private static long zeroBytes(long word) {
+		// Adding 0x7f to the low seven bits of a byte carries into its high bit unless they are all zero; OR-ing in the word
+		// itself catches bytes whose high bit is already set. Only a zero byte is left with its high bit clear.
+		return ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+	}
+}
@@ -0,0 +1,49 @@
+package com.rprescott.fileprocessor.events;
+
+import java.util.List;
+
+/**
+ * Broadcasted once every file of a batch has been processed (or has failed). The results are held in the order the files
+ * were given, not the order they were processed in.
+ * 
+ * @author rprescott
+ */
+public class BatchCompletedProcessingEvent {
+
+	private List<FileProcessingResult> results;
+	private long elapsedMillis;
+
+	public BatchCompletedProcessingEvent(List<FileProcessingResult> results, long elapsedMillis) {
+		this.results = results;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public List<FileProcessingResult> getResults() {
+		return results;
+	}
+
+	/**
+	 * Returns the wall clock time taken by the whole batch.
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public long getTotalRecordsRead() {
+		long totalRecordsRead = 0;
+		for (FileProcessingResult result : results) {
+			totalRecordsRead += result.getRecordsRead();
+		}
+		return totalRecordsRead;
+	}
+
+	public int getNumberOfFailures() {
+		int failures = 0;
+		for (FileProcessingResult result : results) {
+			if (!result.isSuccessful()) {
+				failures++;
+			}
+		}
+		return failures;
+	}
+}
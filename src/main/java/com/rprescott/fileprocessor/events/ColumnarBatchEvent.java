@@ -0,0 +1,34 @@
+package com.rprescott.fileprocessor.events;
+
+import java.io.File;
+
+import com.rprescott.fileprocessor.ColumnarBatch;
+
+/**
+ * Broadcasted in place of several consecutive {@link LineValidatedEvent}s when columnar batches are requested. The records
+ * are held in file order, with each field already parsed into the type of its column.
+ * 
+ * @author rprescott
+ */
+public class ColumnarBatchEvent {
+
+	private File fileBeingProcessed;
+	private ColumnarBatch batch;
+
+	public ColumnarBatchEvent(File fileBeingProcessed, ColumnarBatch batch) {
+		this.fileBeingProcessed = fileBeingProcessed;
+		this.batch = batch;
+	}
+
+	public File getFileBeingProcessed() {
+		return fileBeingProcessed;
+	}
+
+	public ColumnarBatch getBatch() {
+		return batch;
+	}
+
+	public int size() {
+		return batch.getRowCount();
+	}
+}
@@ -0,0 +1,111 @@
+package com.rprescott.fileprocessor.events;
+
+import java.io.File;
+
+import com.rprescott.fileprocessor.metrics.FileMetrics;
+
+/**
+ * Broadcasted instead of a {@link FileCompletedProcessingEvent} when processing of a file is abandoned because more of its
+ * records were malformed or invalid than its configuration allows. The counts are of the records read before it was abandoned.
+ */
+public class FileAbortedProcessingEvent {
+
+    private File file;
+    private long recordsRead;
+    private long malformedRecords;
+    private long invalidRecords;
+    private FileMetrics metrics;
+
+    public FileAbortedProcessingEvent(File inputFile, long recordsRead, long malformedRecords, long invalidRecords) {
+        this.file = inputFile;
+        this.recordsRead = recordsRead;
+        this.malformedRecords = malformedRecords;
+        this.invalidRecords = invalidRecords;
+    }
+
+    public FileAbortedProcessingEvent(File inputFile, long recordsRead, long malformedRecords, long invalidRecords, FileMetrics metrics) {
+        this(inputFile, recordsRead, malformedRecords, invalidRecords);
+        this.metrics = metrics;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the number of records read before processing was abandoned, not counting any header line.
+     */
+    public long getRecordsRead() {
+        return recordsRead;
+    }
+
+    public void setRecordsRead(long recordsRead) {
+        this.recordsRead = recordsRead;
+    }
+
+    public long getMalformedRecords() {
+        return malformedRecords;
+    }
+
+    public void setMalformedRecords(long malformedRecords) {
+        this.malformedRecords = malformedRecords;
+    }
+
+    public long getInvalidRecords() {
+        return invalidRecords;
+    }
+
+    public void setInvalidRecords(long invalidRecords) {
+        this.invalidRecords = invalidRecords;
+    }
+
+    /**
+     * Returns the metrics gathered before processing was abandoned, or null if metrics were disabled. Not part of equality.
+     */
+    public FileMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(FileMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((file == null) ? 0 : file.hashCode());
+        result = prime * result + (int) (recordsRead ^ (recordsRead >>> 32));
+        result = prime * result + (int) (malformedRecords ^ (malformedRecords >>> 32));
+        result = prime * result + (int) (invalidRecords ^ (invalidRecords >>> 32));
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        FileAbortedProcessingEvent other = (FileAbortedProcessingEvent) obj;
+        if (file == null) {
+            if (other.file != null)
+                return false;
+        } else if (!file.equals(other.file))
+            return false;
+        if (recordsRead != other.recordsRead)
+            return false;
+        if (malformedRecords != other.malformedRecords)
+            return false;
+        if (invalidRecords != other.invalidRecords)
+            return false;
+        return true;
+    }
+
+}
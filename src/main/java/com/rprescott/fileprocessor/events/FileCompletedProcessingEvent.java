@@ -1,59 +1,94 @@
-package com.rprescott.fileprocessor.events;
-
-import java.io.File;
-
-public class FileCompletedProcessingEvent {
-
-    private File file;
-    private long recordsRead;
-
-    public FileCompletedProcessingEvent(File inputFile, long recordsRead) {
-        this.file = inputFile;
-        this.recordsRead = recordsRead;
-    }
-
-    public File getFile() {
-        return file;
-    }
-
-    public void setFile(File file) {
-        this.file = file;
-    }
-
-    public long getRecordsRead() {
-        return recordsRead;
-    }
-
-    public void setRecordsRead(long recordsRead) {
-        this.recordsRead = recordsRead;
-    }
-
-    @Override
-    public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((file == null) ? 0 : file.hashCode());
-        result = prime * result + (int) (recordsRead ^ (recordsRead >>> 32));
-        return result;
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (this == obj)
-            return true;
-        if (obj == null)
-            return false;
-        if (getClass() != obj.getClass())
-            return false;
-        FileCompletedProcessingEvent other = (FileCompletedProcessingEvent) obj;
-        if (file == null) {
-            if (other.file != null)
-                return false;
-        } else if (!file.equals(other.file))
-            return false;
-        if (recordsRead != other.recordsRead)
-            return false;
-        return true;
-    }
-
-}
+package com.rprescott.fileprocessor.events;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import com.rprescott.fileprocessor.metrics.FileMetrics;
+import com.rprescott.fileprocessor.validation.ValidationFailureSummary;
+
+public class FileCompletedProcessingEvent {
+
+    private File file;
+    private long recordsRead;
+    private FileMetrics metrics;
+    private List<ValidationFailureSummary> validationFailures = Collections.emptyList();
+
+    public FileCompletedProcessingEvent(File inputFile, long recordsRead) {
+        this.file = inputFile;
+        this.recordsRead = recordsRead;
+    }
+
+    public FileCompletedProcessingEvent(File inputFile, long recordsRead, FileMetrics metrics) {
+        this(inputFile, recordsRead);
+        this.metrics = metrics;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    public long getRecordsRead() {
+        return recordsRead;
+    }
+
+    public void setRecordsRead(long recordsRead) {
+        this.recordsRead = recordsRead;
+    }
+
+    /**
+     * Returns the metrics gathered while processing the file, or null if metrics were disabled. Not part of equality.
+     */
+    public FileMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(FileMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns a summary of each field and rule that failed validation in the file. Empty if the file was not validated or
+     * every record was valid. Not part of equality.
+     */
+    public List<ValidationFailureSummary> getValidationFailures() {
+        return validationFailures;
+    }
+
+    public void setValidationFailures(List<ValidationFailureSummary> validationFailures) {
+        this.validationFailures = validationFailures;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((file == null) ? 0 : file.hashCode());
+        result = prime * result + (int) (recordsRead ^ (recordsRead >>> 32));
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        FileCompletedProcessingEvent other = (FileCompletedProcessingEvent) obj;
+        if (file == null) {
+            if (other.file != null)
+                return false;
+        } else if (!file.equals(other.file))
+            return false;
+        if (recordsRead != other.recordsRead)
+            return false;
+        return true;
+    }
+
+}
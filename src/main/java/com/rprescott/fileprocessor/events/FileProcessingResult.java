@@ -0,0 +1,57 @@
+package com.rprescott.fileprocessor.events;
+
+import java.io.File;
+
+/**
+ * The outcome of processing a single file as part of a batch. Carried by a {@link BatchCompletedProcessingEvent}.
+ * 
+ * @author rprescott
+ */
+public class FileProcessingResult {
+
+	private File file;
+	private long recordsRead;
+	private long elapsedMillis;
+	private Throwable failure;
+
+	public FileProcessingResult(File file, long recordsRead, long elapsedMillis, Throwable failure) {
+		this.file = file;
+		this.recordsRead = recordsRead;
+		this.elapsedMillis = elapsedMillis;
+		this.failure = failure;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the number of records read from the file, not counting any header line. Zero if the file failed.
+	 */
+	public long getRecordsRead() {
+		return recordsRead;
+	}
+
+	/**
+	 * Returns the time spent processing the file, not counting the time it waited for a free thread.
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * Returns the exception that stopped the file from being processed, or null if it was processed to the end.
+	 */
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	public boolean isSuccessful() {
+		return failure == null;
+	}
+
+	@Override
+	public String toString() {
+		return file + ": " + (failure == null ? recordsRead + " records in " + elapsedMillis + "ms" : "failed after " + elapsedMillis + "ms (" + failure + ")");
+	}
+}
@@ -1,47 +1,47 @@
-package com.rprescott.fileprocessor.events;
-
-import java.io.File;
-
-public class FileStartedProcessingEvent {
-	
-	private File file;
-	
-	public FileStartedProcessingEvent(File file) {		
-		this.file = file;
-	}
-
-	public File getFile() {
-		return file;
-	}
-
-	public void setFile(File file) {
-		this.file = file;
-	}
-
-	@Override
-	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((file == null) ? 0 : file.hashCode());
-		return result;
-	}
-
-	@Override
-	public boolean equals(Object obj) {
-		if (this == obj)
-			return true;
-		if (obj == null)
-			return false;
-		if (getClass() != obj.getClass())
-			return false;
-		FileStartedProcessingEvent other = (FileStartedProcessingEvent) obj;
-		if (file == null) {
-			if (other.file != null)
-				return false;
-		} else if (!file.equals(other.file))
-			return false;
-		return true;
-	}
-
-
-}
+package com.rprescott.fileprocessor.events;
+
+import java.io.File;
+
+public class FileStartedProcessingEvent {
+	
+	private File file;
+	
+	public FileStartedProcessingEvent(File file) {		
+		this.file = file;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public void setFile(File file) {
+		this.file = file;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((file == null) ? 0 : file.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		FileStartedProcessingEvent other = (FileStartedProcessingEvent) obj;
+		if (file == null) {
+			if (other.file != null)
+				return false;
+		} else if (!file.equals(other.file))
+			return false;
+		return true;
+	}
+
+
+}
@@ -0,0 +1,33 @@
+package com.rprescott.fileprocessor.events;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Broadcasted in place of several consecutive {@link LineSplitEvent}s when batched event publishing is requested.
+ * The lines are held in file order.
+ * 
+ * @author rprescott
+ */
+public class LineBatchSplitEvent {
+
+	private File fileBeingProcessed;
+	private List<LineSplitEvent> lines;
+
+	public LineBatchSplitEvent(File fileBeingProcessed, List<LineSplitEvent> lines) {
+		this.fileBeingProcessed = fileBeingProcessed;
+		this.lines = lines;
+	}
+
+	public File getFileBeingProcessed() {
+		return fileBeingProcessed;
+	}
+
+	public List<LineSplitEvent> getLines() {
+		return lines;
+	}
+
+	public int size() {
+		return lines.size();
+	}
+}
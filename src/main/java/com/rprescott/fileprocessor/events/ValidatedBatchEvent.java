@@ -0,0 +1,26 @@
+package com.rprescott.fileprocessor.events;
+
+import java.util.List;
+
+/**
+ * Broadcasted in place of several consecutive {@link LineValidatedEvent}s when batched event publishing is requested.
+ * The lines are held in file order.
+ * 
+ * @author rprescott
+ */
+public class ValidatedBatchEvent {
+
+	private List<LineValidatedEvent> lines;
+
+	public ValidatedBatchEvent(List<LineValidatedEvent> lines) {
+		this.lines = lines;
+	}
+
+	public List<LineValidatedEvent> getLines() {
+		return lines;
+	}
+
+	public int size() {
+		return lines.size();
+	}
+}
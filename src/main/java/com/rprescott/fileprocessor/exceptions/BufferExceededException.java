@@ -1,7 +1,7 @@
-package com.rprescott.fileprocessor.exceptions;
-
-public class BufferExceededException extends RuntimeException {
-
-	private static final long serialVersionUID = 53570419228843732L;
-
-}
+package com.rprescott.fileprocessor.exceptions;
+
+public class BufferExceededException extends RuntimeException {
+
+	private static final long serialVersionUID = 53570419228843732L;
+
+}
@@ -0,0 +1,237 @@
+package com.rprescott.fileprocessor.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The metrics gathered while processing a file (or, when returned by {@link ProcessingMetrics#getTotals()}, every file
+ * processed so far). Counts are exact. The time spent splitting, decoding and validating each record, and applying each rule,
+ * is held in a {@link LatencyHistogram} per stage; the total time of a stage is {@link LatencyHistogram#getTotalNanos()}.
+ * 
+ * <br><br>
+ * 
+ * Instances are not thread safe. A file processed on several threads records into one instance per thread, and these are
+ * combined with {@link #merge(FileMetrics)} once each thread is done. A snapshot attached to an event is never changed again.
+ * 
+ * @author rprescott
+ */
+public class FileMetrics {
+
+	private long bytesRead;
+	private long recordsRead;
+	private long malformedRecords;
+	private long invalidRecords;
+	private long bufferGrowths;
+	private long validationCacheHits;
+	private long validationCacheMisses;
+	private long ioNanos;
+	private long elapsedNanos;
+	private final LatencyHistogram splitLatency = new LatencyHistogram();
+	private final LatencyHistogram decodeLatency = new LatencyHistogram();
+	private final LatencyHistogram validationLatency = new LatencyHistogram();
+	/** Indexed by rule ID. */
+	private LatencyHistogram[] ruleLatencies = new LatencyHistogram[8];
+
+	public void recordRead(int bytes, long nanos) {
+		if (bytes > 0) {
+			bytesRead += bytes;
+		}
+		ioNanos += nanos;
+	}
+
+	public void recordSplit(long nanos, boolean malformed) {
+		splitLatency.record(nanos);
+		if (malformed) {
+			malformedRecords++;
+		}
+	}
+
+	public void recordDecode(long nanos) {
+		decodeLatency.record(nanos);
+	}
+
+	public void recordValidation(long nanos, boolean invalid) {
+		validationLatency.record(nanos);
+		if (invalid) {
+			invalidRecords++;
+		}
+	}
+
+	public void recordRule(int ruleId, long nanos) {
+		if (ruleId >= ruleLatencies.length) {
+			ruleLatencies = Arrays.copyOf(ruleLatencies, Math.max(ruleId + 1, ruleLatencies.length * 2));
+		}
+		LatencyHistogram ruleLatency = ruleLatencies[ruleId];
+		if (ruleLatency == null) {
+			ruleLatency = ruleLatencies[ruleId] = new LatencyHistogram();
+		}
+		ruleLatency.record(nanos);
+	}
+
+	public void recordBufferGrowth() {
+		bufferGrowths++;
+	}
+
+	public void recordValidationCacheLookup(boolean hit) {
+		if (hit) {
+			validationCacheHits++;
+		}
+		else {
+			validationCacheMisses++;
+		}
+	}
+
+	public void setBytesRead(long bytesRead) {
+		this.bytesRead = bytesRead;
+	}
+
+	public void setRecordsRead(long recordsRead) {
+		this.recordsRead = recordsRead;
+	}
+
+	public void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Adds everything recorded by the other instance to this one. The elapsed time, bytes and records read are added too, so
+	 * the metrics of the threads working on one file should be merged before those are set for the file.
+	 */
+	public void merge(FileMetrics other) {
+		bytesRead += other.bytesRead;
+		recordsRead += other.recordsRead;
+		malformedRecords += other.malformedRecords;
+		invalidRecords += other.invalidRecords;
+		bufferGrowths += other.bufferGrowths;
+		validationCacheHits += other.validationCacheHits;
+		validationCacheMisses += other.validationCacheMisses;
+		ioNanos += other.ioNanos;
+		elapsedNanos += other.elapsedNanos;
+		splitLatency.merge(other.splitLatency);
+		decodeLatency.merge(other.decodeLatency);
+		validationLatency.merge(other.validationLatency);
+		for (int ruleId = 0; ruleId < other.ruleLatencies.length; ruleId++) {
+			if (other.ruleLatencies[ruleId] != null) {
+				if (ruleId >= ruleLatencies.length) {
+					ruleLatencies = Arrays.copyOf(ruleLatencies, other.ruleLatencies.length);
+				}
+				if (ruleLatencies[ruleId] == null) {
+					ruleLatencies[ruleId] = new LatencyHistogram();
+				}
+				ruleLatencies[ruleId].merge(other.ruleLatencies[ruleId]);
+			}
+		}
+	}
+
+	public FileMetrics copy() {
+		FileMetrics copy = new FileMetrics();
+		copy.merge(this);
+		return copy;
+	}
+
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * Returns the number of records read, not counting any header line.
+	 */
+	public long getRecordsRead() {
+		return recordsRead;
+	}
+
+	public long getMalformedRecords() {
+		return malformedRecords;
+	}
+
+	public long getInvalidRecords() {
+		return invalidRecords;
+	}
+
+	/**
+	 * Returns the number of times a buffer had to grow because a record did not fit in it.
+	 */
+	public long getBufferGrowths() {
+		return bufferGrowths;
+	}
+
+	public long getValidationCacheHits() {
+		return validationCacheHits;
+	}
+
+	/**
+	 * Returns the number of values of a cached field that had to be validated because their outcome was not in the cache. Values
+	 * looked up after the cache of their field disabled itself are not counted.
+	 */
+	public long getValidationCacheMisses() {
+		return validationCacheMisses;
+	}
+
+	/**
+	 * Returns the time spent waiting on reads from the file. Memory mapped reads fault their pages in while the lines are
+	 * split, so for these the time is counted as split time instead.
+	 */
+	public long getIoNanos() {
+		return ioNanos;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public double getRecordsPerSecond() {
+		return elapsedNanos == 0 ? 0 : recordsRead * 1e9 / elapsedNanos;
+	}
+
+	public double getBytesPerSecond() {
+		return elapsedNanos == 0 ? 0 : bytesRead * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Returns the time taken to find the fields of each record (and, when a record is not validated, to decode and broadcast it).
+	 */
+	public LatencyHistogram getSplitLatency() {
+		return splitLatency;
+	}
+
+	/**
+	 * Returns the time taken to decode the fields of each record that is validated.
+	 */
+	public LatencyHistogram getDecodeLatency() {
+		return decodeLatency;
+	}
+
+	/**
+	 * Returns the time taken to validate each record against every rule of every field.
+	 */
+	public LatencyHistogram getValidationLatency() {
+		return validationLatency;
+	}
+
+	/**
+	 * Returns the time taken by each application of the given rule, or null if the rule was never applied.
+	 */
+	public LatencyHistogram getRuleLatency(int ruleId) {
+		return ruleId < ruleLatencies.length ? ruleLatencies[ruleId] : null;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Records: %d (%.0f/s). Bytes: %d (%.2fMB/s). Malformed: %d. Invalid: %d. Buffer Growths: %d. I/O: %dms. ",
+			recordsRead, getRecordsPerSecond(), bytesRead, getBytesPerSecond() / (1024 * 1024), malformedRecords, invalidRecords, bufferGrowths,
+			TimeUnit.NANOSECONDS.toMillis(ioNanos)));
+		if (validationCacheHits + validationCacheMisses > 0) {
+			sb.append(String.format("Validation Cache Hits: %d. Misses: %d. ", validationCacheHits, validationCacheMisses));
+		}
+		sb.append("Split: [").append(splitLatency).append("]. ");
+		sb.append("Decode: [").append(decodeLatency).append("]. ");
+		sb.append("Validation: [").append(validationLatency).append("].");
+		for (int ruleId = 0; ruleId < ruleLatencies.length; ruleId++) {
+			if (ruleLatencies[ruleId] != null) {
+				sb.append(" Rule ").append(ruleId).append(": [").append(ruleLatencies[ruleId]).append("].");
+			}
+		}
+		return sb.toString();
+	}
+}
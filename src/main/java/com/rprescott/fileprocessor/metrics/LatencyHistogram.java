@@ -0,0 +1,104 @@
+package com.rprescott.fileprocessor.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed size histogram of latencies in nanoseconds. Each bucket covers a power of two (bucket n holds values from 2^n up to
+ * 2^(n+1) - 1), so recording a value is a couple of arithmetic operations and an array increment, and the histogram never
+ * grows. Percentiles are therefore only accurate to within a factor of two, which is enough to spot a regression.
+ * 
+ * <br><br>
+ * 
+ * Instances are not thread safe. Each thread should record into its own histogram, and histograms can then be combined
+ * with {@link #merge(LatencyHistogram)}.
+ * 
+ * @author rprescott
+ */
+public class LatencyHistogram {
+
+	private static final int BUCKETS = 64;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long totalNanos;
+	private long maxNanos;
+
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		counts[63 - Long.numberOfLeadingZeros(nanos | 1)]++;
+		count++;
+		totalNanos += nanos;
+		if (nanos > maxNanos) {
+			maxNanos = nanos;
+		}
+	}
+
+	/**
+	 * Adds every value recorded by the other histogram to this one.
+	 */
+	public void merge(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		totalNanos += other.totalNanos;
+		maxNanos = Math.max(maxNanos, other.maxNanos);
+	}
+
+	public LatencyHistogram copy() {
+		LatencyHistogram copy = new LatencyHistogram();
+		copy.merge(this);
+		return copy;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	public long getMeanNanos() {
+		return count == 0 ? 0 : totalNanos / count;
+	}
+
+	/**
+	 * Returns the upper bound of the bucket holding the given percentile (0 to 100) of the recorded values, capped at the
+	 * largest value recorded.
+	 */
+	public long getPercentileNanos(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return i == 63 ? maxNanos : Math.min((2L << i) - 1, maxNanos);
+			}
+		}
+		return maxNanos;
+	}
+
+	/**
+	 * Returns the number of values recorded in the given bucket, which holds values from 2^bucket up to 2^(bucket+1) - 1
+	 * nanoseconds (bucket 0 also holds 0).
+	 */
+	public long getBucketCount(int bucket) {
+		return counts[bucket];
+	}
+
+	@Override
+	public String toString() {
+		return String.format("total %dms, mean %dns, p50 %dns, p99 %dns, max %dns",
+			TimeUnit.NANOSECONDS.toMillis(totalNanos), getMeanNanos(), getPercentileNanos(50), getPercentileNanos(99), maxNanos);
+	}
+}
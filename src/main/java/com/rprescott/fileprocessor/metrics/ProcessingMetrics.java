@@ -0,0 +1,62 @@
+package com.rprescott.fileprocessor.metrics;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Collects the {@link FileMetrics} of every file processed, so that throughput and the time spent in each stage can be read
+ * programmatically without attaching a profiler. The metrics of each file are also attached to its
+ * {@link com.rprescott.fileprocessor.events.FileCompletedProcessingEvent}.
+ * 
+ * <br><br>
+ * 
+ * Gathering the metrics costs a few clock reads per record and per rule. When that matters more than the metrics, call
+ * {@link #setEnabled(boolean)} with false and nothing is recorded at all.
+ * 
+ * @author rprescott
+ */
+@Component
+public class ProcessingMetrics {
+
+	private volatile boolean enabled = true;
+	private FileMetrics totals = new FileMetrics();
+	private long filesProcessed;
+
+	/**
+	 * Returns a new instance to record the metrics of a file (or one thread's share of a file) into, or null if metrics are disabled.
+	 */
+	public FileMetrics newFileMetrics() {
+		return enabled ? new FileMetrics() : null;
+	}
+
+	/**
+	 * Adds the metrics of a file that has been completely processed to the totals.
+	 */
+	public synchronized void fileCompleted(FileMetrics fileMetrics) {
+		totals.merge(fileMetrics);
+		filesProcessed++;
+	}
+
+	/**
+	 * Returns a copy of the metrics of every file completed so far.
+	 */
+	public synchronized FileMetrics getTotals() {
+		return totals.copy();
+	}
+
+	public synchronized long getFilesProcessed() {
+		return filesProcessed;
+	}
+
+	public synchronized void reset() {
+		totals = new FileMetrics();
+		filesProcessed = 0;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+}
@@ -1,57 +1,208 @@
-package com.rprescott.fileprocessor.validation;
-
-import java.util.List;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.util.CollectionUtils;
-
-public class FileConfiguration {
-
-	private static final Logger LOGGER = LoggerFactory.getLogger(FileConfiguration.class);
-	private String delimiter;
-	private boolean containsHeader;
-	private int expectedNumberOfFields;
-	private List<FileField> fileFields;
-	
-	public String getDelimiter() {
-		return delimiter;
-	}
-	
-	public void setDelimiter(String delimiter) {
-		this.delimiter = delimiter;
-	}
-	
-	public boolean isContainsHeader() {
-		return containsHeader;
-	}
-
-	public void setContainsHeader(boolean containsHeader) {
-		this.containsHeader = containsHeader;
-	}
-
-	public List<FileField> getFileFields() {
-		return fileFields;
-	}
-	
-	public void setFileFields(List<FileField> fileFields) {
-		this.fileFields = fileFields;
-	}
-	
-	public int getExpectedNumberOfFields() {
-		if (expectedNumberOfFields != 0) {
-			if (!CollectionUtils.isEmpty(fileFields)) {
-				LOGGER.warn("Both FileFields and expectedNumberOfFields are defined. Using expectedNumberOfFields as the expected value.");
-			}
-			return this.expectedNumberOfFields;
-		}
-		else {
-			return this.fileFields.size();
-		}
-		
-	}
-
-	public void setExpectedNumberOfFields(int expectedNumberOfFields) {
-		this.expectedNumberOfFields = expectedNumberOfFields;
-	}
-}
+package com.rprescott.fileprocessor.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.CollectionUtils;
+
+public class FileConfiguration {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileConfiguration.class);
+	private String delimiter;
+	private String quote;
+	private boolean fixedWidth;
+	private int recordLength;
+	private boolean trimPadding;
+	private boolean containsHeader;
+	private int expectedNumberOfFields;
+	private List<FileField> fileFields;
+	private List<Integer> projection;
+	private long maxBadRecords;
+	private double maxBadRecordRatio;
+	private long errorBudgetWarmupRecords = 1000;
+	
+	public String getDelimiter() {
+		return delimiter;
+	}
+	
+	public void setDelimiter(String delimiter) {
+		this.delimiter = delimiter;
+	}
+	
+	/**
+	 * Returns the character fields may be quoted with, as described by RFC 4180, or null if fields are never quoted.
+	 */
+	public String getQuote() {
+		return quote;
+	}
+
+	/**
+	 * Sets the character fields may be quoted with. A quoted field may contain the delimiter, line breaks and doubled quotes,
+	 * so a single record may span several lines of the file; the line number of each record is then its record number. Null
+	 * (the default) turns quoting off.
+	 */
+	public void setQuote(String quote) {
+		this.quote = quote;
+	}
+
+	public boolean isQuoted() {
+		return quote != null;
+	}
+
+	/**
+	 * Returns true if the fields of each record are found by the offset and length of each {@link FileField} rather than by a
+	 * delimiter, which is then ignored.
+	 */
+	public boolean isFixedWidth() {
+		return fixedWidth;
+	}
+
+	public void setFixedWidth(boolean fixedWidth) {
+		this.fixedWidth = fixedWidth;
+	}
+
+	/**
+	 * Returns the length of every record of a fixed width file whose records are not separated by line breaks, or 0 (the
+	 * default) if each record is a line.
+	 */
+	public int getRecordLength() {
+		return recordLength;
+	}
+
+	public void setRecordLength(int recordLength) {
+		this.recordLength = recordLength;
+	}
+
+	/**
+	 * Returns true if the spaces padding either end of each field of a fixed width file are left out of its value.
+	 */
+	public boolean isTrimPadding() {
+		return trimPadding;
+	}
+
+	public void setTrimPadding(boolean trimPadding) {
+		this.trimPadding = trimPadding;
+	}
+
+	public boolean isContainsHeader() {
+		return containsHeader;
+	}
+
+	public void setContainsHeader(boolean containsHeader) {
+		this.containsHeader = containsHeader;
+	}
+
+	public List<FileField> getFileFields() {
+		return fileFields;
+	}
+	
+	public void setFileFields(List<FileField> fileFields) {
+		this.fileFields = fileFields;
+	}
+	
+	public int getExpectedNumberOfFields() {
+		if (expectedNumberOfFields != 0) {
+			if (!CollectionUtils.isEmpty(fileFields)) {
+				LOGGER.warn("Both FileFields and expectedNumberOfFields are defined. Using expectedNumberOfFields as the expected value.");
+			}
+			return this.expectedNumberOfFields;
+		}
+		else {
+			return this.fileFields.size();
+		}
+		
+	}
+
+	public void setExpectedNumberOfFields(int expectedNumberOfFields) {
+		this.expectedNumberOfFields = expectedNumberOfFields;
+	}
+
+	/**
+	 * Returns the positions of the fields that listeners need, or null (the default) if they need every field. Fields with
+	 * validation rules are always decoded when validating, whether or not they are projected.
+	 */
+	public List<Integer> getProjection() {
+		return projection;
+	}
+
+	/**
+	 * Sets the positions of the fields that listeners need. The others are left null in every event, so no String is created
+	 * for them, and the fields after the last one needed are only counted rather than split.
+	 */
+	public void setProjection(List<Integer> projection) {
+		this.projection = projection;
+	}
+
+	/**
+	 * Returns the most records that may be malformed or invalid before processing of the file is abandoned, or 0 (the default)
+	 * if there is no limit.
+	 */
+	public long getMaxBadRecords() {
+		return maxBadRecords;
+	}
+
+	public void setMaxBadRecords(long maxBadRecords) {
+		this.maxBadRecords = maxBadRecords;
+	}
+
+	/**
+	 * Returns the largest share of the records read so far, from 0 to 1, that may be malformed or invalid before processing of
+	 * the file is abandoned, or 0 (the default) if there is no limit. The share is only checked once
+	 * {@link #getErrorBudgetWarmupRecords()} records have been read, so a few bad records at the start of a file do not abandon it.
+	 */
+	public double getMaxBadRecordRatio() {
+		return maxBadRecordRatio;
+	}
+
+	public void setMaxBadRecordRatio(double maxBadRecordRatio) {
+		this.maxBadRecordRatio = maxBadRecordRatio;
+	}
+
+	public long getErrorBudgetWarmupRecords() {
+		return errorBudgetWarmupRecords;
+	}
+
+	/**
+	 * Sets the number of records read before {@link #getMaxBadRecordRatio()} is checked. Defaults to 1000.
+	 */
+	public void setErrorBudgetWarmupRecords(long errorBudgetWarmupRecords) {
+		this.errorBudgetWarmupRecords = errorBudgetWarmupRecords;
+	}
+
+	/**
+	 * Returns true if processing of the file is abandoned once too many of its records are malformed or invalid.
+	 */
+	public boolean hasErrorBudget() {
+		return maxBadRecords > 0 || maxBadRecordRatio > 0;
+	}
+
+	/**
+	 * Returns a copy of this configuration, with copies of its fields, that can be changed without affecting this one.
+	 */
+	public FileConfiguration copy() {
+		FileConfiguration copy = new FileConfiguration();
+		copy.setDelimiter(delimiter);
+		copy.setQuote(quote);
+		copy.setFixedWidth(fixedWidth);
+		copy.setRecordLength(recordLength);
+		copy.setTrimPadding(trimPadding);
+		if (projection != null) {
+			copy.setProjection(new ArrayList<>(projection));
+		}
+		copy.setContainsHeader(containsHeader);
+		copy.setExpectedNumberOfFields(expectedNumberOfFields);
+		copy.setMaxBadRecords(maxBadRecords);
+		copy.setMaxBadRecordRatio(maxBadRecordRatio);
+		copy.setErrorBudgetWarmupRecords(errorBudgetWarmupRecords);
+		if (fileFields != null) {
+			List<FileField> fieldCopies = new ArrayList<>(fileFields.size());
+			for (FileField fileField : fileFields) {
+				fieldCopies.add(fileField.copy());
+			}
+			copy.setFileFields(fieldCopies);
+		}
+		return copy;
+	}
+}
@@ -1,99 +1,343 @@
-package com.rprescott.fileprocessor.validation;
-
-import java.io.File;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-@Component
-public class FileConfigurationLoader {
-	
-	private static final Logger LOGGER = LoggerFactory.getLogger(FileConfigurationLoader.class);
-	private XMLPrinter xmlPrinter;
-	
-	public FileConfiguration loadConfigurationFile(File configFile) throws ParserConfigurationException, SAXException, IOException {
-		FileConfiguration config = new FileConfiguration();
-		List<FileField> fileFields = new ArrayList<>();
-		DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-		documentBuilderFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-		DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
-		Document document = documentBuilder.parse(configFile);
-		document.getDocumentElement().normalize();
-		if (LOGGER.isTraceEnabled()) {
-			LOGGER.trace(xmlPrinter.toPrettyString(document, 4));
-		}
-		config.setDelimiter(document.getElementsByTagName("delimiter").item(0).getTextContent());
-		config.setContainsHeader(Boolean.valueOf(document.getElementsByTagName("containsHeader").item(0).getTextContent()));
-		NodeList fields = document.getElementsByTagName("field");
-		for (int i = 0; i < fields.getLength(); i++) {
-			FileField fileField = new FileField();
-			Element field = (Element) fields.item(i);
-			fileField.setPosition(i + 1);
-			String name = field.getElementsByTagName("name").item(0).getTextContent();
-			fileField.setName(name);
-			fileField.setDescription(field.getElementsByTagName("description").item(0).getTextContent());
-			NodeList outputMapping = field.getElementsByTagName("outputMapping");
-			if (outputMapping.getLength() > 0) {
-				fileField.setOutputMapping(outputMapping.item(0).getTextContent());
-			}
-			fileField.setDescription(field.getElementsByTagName("description").item(0).getTextContent());
-			NodeList validationRules = field.getElementsByTagName("validationRule");
-			for (int j = 0; j < validationRules.getLength(); j++) {
-				Element validationRule = (Element) validationRules.item(j);
-				NodeList metadataNodeList = validationRule.getElementsByTagName("metadata");
-				NodeList disableImmediateNotificationNode = validationRule.getElementsByTagName("disableImmediateNotification");
-				boolean notifyImmediately = true;
-				if (disableImmediateNotificationNode.getLength() > 0) {
-					// We don't care about any metadata in this field, just that one exists.
-					notifyImmediately = false;
-				}
-				Object metadata = null;
-				if (metadataNodeList != null && metadataNodeList.getLength() > 0) {
-					metadata = metadataNodeList.item(0).getTextContent();
-				}
-				try {
-					fileField.addValidationRule(new ValidationRule(
-						Integer.valueOf(validationRule.getElementsByTagName("id").item(0).getTextContent()),
-						metadata,
-						notifyImmediately));					
-				}
-				catch (NumberFormatException ex) {
-					LOGGER.error("Malformed Validation Rule ID Detected. Ignoring this field.");
-				}
-			}
-			fileFields.add(fileField);
-		}
-		// Sort all the fields so that they are in positional order.
-		Collections.sort(fileFields, new FileFieldComparator());
-		if (LOGGER.isTraceEnabled()) {
-			logFieldsLoaded(fileFields);
-		}
-		config.setFileFields(fileFields);
-		return config;
-	}
-	
-	private void logFieldsLoaded(List<FileField> fileFields) {
-		for (FileField fileField : fileFields) {
-			LOGGER.trace("Loaded File Field: {}", fileField);
-		}
-	}
-
-	@Autowired
-	public void setXmlPrinter(XMLPrinter xmlPrinter) {
-		this.xmlPrinter = xmlPrinter;
-	}
-}
+package com.rprescott.fileprocessor.validation;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+/**
+ * Loads {@link FileConfiguration}s from their XML files.
+ * 
+ * <br><br>
+ * 
+ * Files are parsed in a single streaming pass, and each parsed configuration is cached by the canonical path of its file,
+ * so validating thousands of data files against a handful of layouts only parses each layout once. Before a cached
+ * configuration is used, the modification time and size of its file are checked; if either has changed the file is read
+ * again, and only parsed again if its content hash differs from that of the cached copy. The cache holds at most
+ * {@link #setCacheSize(int)} configurations, evicting the least recently used.
+ * 
+ * <br><br>
+ * 
+ * Every call returns its own copy of the configuration, so callers are free to change it.
+ */
+@Component
+public class FileConfigurationLoader {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileConfigurationLoader.class);
+	private XMLPrinter xmlPrinter;
+	private final XMLInputFactory xmlInputFactory;
+	private Cache<String, CachedConfiguration> cache = newCache(64);
+
+	private static class CachedConfiguration {
+		private final long lastModified;
+		private final long size;
+		private final HashCode hash;
+		private final FileConfiguration configuration;
+
+		CachedConfiguration(long lastModified, long size, HashCode hash, FileConfiguration configuration) {
+			this.lastModified = lastModified;
+			this.size = size;
+			this.hash = hash;
+			this.configuration = configuration;
+		}
+	}
+
+	public FileConfigurationLoader() {
+		xmlInputFactory = XMLInputFactory.newInstance();
+		xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+	}
+
+	public FileConfiguration loadConfigurationFile(File configFile) throws ParserConfigurationException, SAXException, IOException {
+		String path = configFile.getCanonicalPath();
+		long lastModified = configFile.lastModified();
+		long size = configFile.length();
+		CachedConfiguration cached = cache.getIfPresent(path);
+		if (cached != null && cached.lastModified == lastModified && cached.size == size) {
+			return cached.configuration.copy();
+		}
+		byte[] content = Files.readAllBytes(configFile.toPath());
+		HashCode hash = Hashing.murmur3_128().hashBytes(content);
+		if (cached != null && cached.hash.equals(hash)) {
+			// Touched, but not changed.
+			cache.put(path, new CachedConfiguration(lastModified, size, hash, cached.configuration));
+			return cached.configuration.copy();
+		}
+		if (cached != null) {
+			LOGGER.info("Configuration file has changed since it was loaded. Reloading: {}", path);
+		}
+		FileConfiguration config = parse(content, path);
+		cache.put(path, new CachedConfiguration(lastModified, size, hash, config));
+		return config.copy();
+	}
+
+	private FileConfiguration parse(byte[] content, String path) throws ParserConfigurationException, SAXException, IOException {
+		if (LOGGER.isTraceEnabled()) {
+			LOGGER.trace(xmlPrinter.toPrettyString(parseDocument(content), 4));
+		}
+		FileConfiguration config = new FileConfiguration();
+		String containsHeader = null;
+		List<FileField> fileFields = new ArrayList<>();
+		FileField fileField = null;
+		String ruleId = null;
+		Object metadata = null;
+		boolean notifyImmediately = true;
+		try {
+			XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(content));
+			try {
+				while (reader.hasNext()) {
+					int event = reader.next();
+					if (event == XMLStreamConstants.DTD) {
+						throw new SAXException("DOCTYPE is disallowed in configuration file: " + path);
+					}
+					if (event == XMLStreamConstants.START_ELEMENT) {
+						switch (reader.getLocalName()) {
+							case "delimiter":
+								if (config.getDelimiter() == null) {
+									config.setDelimiter(reader.getElementText());
+								}
+								break;
+							case "quote":
+								if (config.getQuote() == null) {
+									config.setQuote(reader.getElementText());
+								}
+								break;
+							case "fixedWidth":
+								config.setFixedWidth(Boolean.parseBoolean(reader.getElementText().trim()));
+								break;
+							case "recordLength":
+								config.setRecordLength(parseInt(reader.getElementText(), "recordLength", path));
+								break;
+							case "trimPadding":
+								config.setTrimPadding(Boolean.parseBoolean(reader.getElementText().trim()));
+								break;
+							case "projection":
+								List<Integer> projection = new ArrayList<>();
+								for (String position : reader.getElementText().split(",")) {
+									projection.add(parseInt(position, "projection position", path));
+								}
+								config.setProjection(projection);
+								break;
+							case "maxBadRecords":
+								config.setMaxBadRecords(parseLong(reader.getElementText(), "maxBadRecords", path));
+								break;
+							case "maxBadRecordRatio":
+								config.setMaxBadRecordRatio(parseRatio(reader.getElementText(), "maxBadRecordRatio", path));
+								break;
+							case "errorBudgetWarmupRecords":
+								config.setErrorBudgetWarmupRecords(parseLong(reader.getElementText(), "errorBudgetWarmupRecords", path));
+								break;
+							case "containsHeader":
+								if (containsHeader == null) {
+									containsHeader = reader.getElementText();
+								}
+								break;
+							case "field":
+								fileField = new FileField();
+								fileField.setPosition(fileFields.size() + 1);
+								break;
+							case "name":
+								if (fileField != null && fileField.getName() == null) {
+									fileField.setName(reader.getElementText());
+								}
+								break;
+							case "description":
+								if (fileField != null && fileField.getDescription() == null) {
+									fileField.setDescription(reader.getElementText());
+								}
+								break;
+							case "offset":
+								if (fileField != null) {
+									fileField.setOffset(parseInt(reader.getElementText(), "offset", path));
+								}
+								break;
+							case "length":
+								if (fileField != null) {
+									fileField.setLength(parseInt(reader.getElementText(), "length", path));
+								}
+								break;
+							case "validationCacheSize":
+								if (fileField != null) {
+									fileField.setValidationCacheSize(parseInt(reader.getElementText(), "validationCacheSize", path));
+								}
+								break;
+							case "outputMapping":
+								if (fileField != null && fileField.getOutputMapping() == null) {
+									fileField.setOutputMapping(reader.getElementText());
+								}
+								break;
+							case "validationRule":
+								ruleId = null;
+								metadata = null;
+								notifyImmediately = true;
+								break;
+							case "id":
+								ruleId = reader.getElementText();
+								break;
+							case "metadata":
+								if (metadata == null) {
+									metadata = reader.getElementText();
+								}
+								break;
+							case "disableImmediateNotification":
+								// We don't care about any metadata in this field, just that one exists.
+								notifyImmediately = false;
+								break;
+							default:
+								break;
+						}
+					}
+					else if (event == XMLStreamConstants.END_ELEMENT) {
+						if ("validationRule".equals(reader.getLocalName()) && fileField != null) {
+							try {
+								fileField.addValidationRule(new ValidationRule(Integer.valueOf(ruleId == null ? "" : ruleId.trim()), metadata, notifyImmediately));
+							}
+							catch (NumberFormatException ex) {
+								LOGGER.error("Malformed Validation Rule ID Detected. Ignoring this field.");
+							}
+						}
+						else if ("field".equals(reader.getLocalName()) && fileField != null) {
+							if (fileField.getName() == null || fileField.getDescription() == null) {
+								throw new SAXException("Field " + fileField.getPosition() + " must have a name and a description in configuration file: " + path);
+							}
+							fileFields.add(fileField);
+							fileField = null;
+						}
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (XMLStreamException ex) {
+			throw new SAXException("Unable to parse configuration file: " + path + ". " + ex.getMessage(), ex);
+		}
+		if ((config.getDelimiter() == null && !config.isFixedWidth()) || containsHeader == null) {
+			throw new SAXException("A delimiter and containsHeader must be defined in configuration file: " + path);
+		}
+		if (config.isFixedWidth()) {
+			for (FileField field : fileFields) {
+				if (field.getOffset() < 0 || field.getLength() <= 0) {
+					throw new SAXException("Field " + field.getPosition() + " must have an offset and a length in fixed width configuration file: " + path);
+				}
+			}
+		}
+		if (config.isFixedWidth() && config.getQuote() != null) {
+			throw new SAXException("A fixed width file cannot have a quote in configuration file: " + path);
+		}
+		if (config.getQuote() != null && (config.getQuote().length() != 1 || config.getQuote().equals(config.getDelimiter()))) {
+			throw new SAXException("A quote must be a single character other than the delimiter in configuration file: " + path);
+		}
+		config.setContainsHeader(Boolean.valueOf(containsHeader));
+		// Sort all the fields so that they are in positional order.
+		Collections.sort(fileFields, new FileFieldComparator());
+		if (LOGGER.isTraceEnabled()) {
+			logFieldsLoaded(fileFields);
+		}
+		config.setFileFields(fileFields);
+		return config;
+	}
+
+	private static int parseInt(String text, String element, String path) throws SAXException {
+		try {
+			return Integer.parseInt(text.trim());
+		}
+		catch (NumberFormatException ex) {
+			throw new SAXException("The " + element + " must be a whole number in configuration file: " + path, ex);
+		}
+	}
+
+	private static long parseLong(String text, String element, String path) throws SAXException {
+		try {
+			return Long.parseLong(text.trim());
+		}
+		catch (NumberFormatException ex) {
+			throw new SAXException("The " + element + " must be a whole number in configuration file: " + path, ex);
+		}
+	}
+
+	private static double parseRatio(String text, String element, String path) throws SAXException {
+		double ratio;
+		try {
+			ratio = Double.parseDouble(text.trim());
+		}
+		catch (NumberFormatException ex) {
+			throw new SAXException("The " + element + " must be a number from 0 to 1 in configuration file: " + path, ex);
+		}
+		if (!(ratio >= 0 && ratio <= 1)) {
+			throw new SAXException("The " + element + " must be a number from 0 to 1 in configuration file: " + path);
+		}
+		return ratio;
+	}
+
+	/**
+	 * Builds a DOM of the configuration. Only used to pretty print the configuration when tracing.
+	 */
+	private Document parseDocument(byte[] content) throws ParserConfigurationException, SAXException, IOException {
+		DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+		documentBuilderFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+		DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+		Document document = documentBuilder.parse(new ByteArrayInputStream(content));
+		document.getDocumentElement().normalize();
+		return document;
+	}
+	
+	private void logFieldsLoaded(List<FileField> fileFields) {
+		for (FileField fileField : fileFields) {
+			LOGGER.trace("Loaded File Field: {}", fileField);
+		}
+	}
+
+	private static Cache<String, CachedConfiguration> newCache(int cacheSize) {
+		return CacheBuilder.newBuilder().maximumSize(cacheSize).recordStats().build();
+	}
+
+	/**
+	 * Sets the most configurations to keep parsed at once. Defaults to 64. Changing the size empties the cache.
+	 */
+	public void setCacheSize(int cacheSize) {
+		this.cache = newCache(cacheSize);
+	}
+
+	/**
+	 * Forgets every cached configuration, so each is parsed again the next time it is loaded.
+	 */
+	public void invalidateCache() {
+		cache.invalidateAll();
+	}
+
+	public CacheStats getCacheStats() {
+		return cache.stats();
+	}
+
+	@Autowired
+	public void setXmlPrinter(XMLPrinter xmlPrinter) {
+		this.xmlPrinter = xmlPrinter;
+	}
+}
@@ -1,68 +1,122 @@
-package com.rprescott.fileprocessor.validation;
-
-import java.util.ArrayList;
-import java.util.List;
-
-public class FileField {
-	
-	private int position;
-	private String name;
-	private String description;
-	private String outputMapping;
-	private List<ValidationRule> validationRules = new ArrayList<>();
-
-	public int getPosition() {
-		return position;
-	}
-
-	public void setPosition(int position) {
-		this.position = position;
-	}
-
-	public String getName() {
-		return name;
-	}
-
-	public void setName(String name) {
-		this.name = name;
-	}
-
-	public String getDescription() {
-		return description;
-	}
-
-	public void setDescription(String description) {
-		this.description = description;
-	}
-
-	public String getOutputMapping() {
-		return outputMapping;
-	}
-
-	public void setOutputMapping(String outputMapping) {
-		this.outputMapping = outputMapping;
-	}
-
-	public List<ValidationRule> getValidationRules() {
-		return validationRules;
-	}
-	
-	public void addValidationRule(ValidationRule validationRule) {
-		this.validationRules.add(validationRule);
-	}
-
-	@Override
-	public String toString() {
-		StringBuilder builder = new StringBuilder();
-		builder.append("Field Position: ");
-		builder.append(this.position);
-		builder.append(". Name: " );
-		builder.append(this.name);
-		builder.append(". Description: ");
-		builder.append(this.description);
-		builder.append(". Output Mapping: ");
-		builder.append(this.outputMapping == null ? "None" : this.outputMapping);
-		return builder.toString();
-	}
-
-}
+package com.rprescott.fileprocessor.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FileField {
+	
+	private int position;
+	private String name;
+	private String description;
+	private String outputMapping;
+	private int offset = -1;
+	private int length;
+	private int validationCacheSize;
+	private List<ValidationRule> validationRules = new ArrayList<>();
+
+	public int getPosition() {
+		return position;
+	}
+
+	public void setPosition(int position) {
+		this.position = position;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
+
+	public String getOutputMapping() {
+		return outputMapping;
+	}
+
+	public void setOutputMapping(String outputMapping) {
+		this.outputMapping = outputMapping;
+	}
+
+	/**
+	 * Returns the offset of the field from the start of the record in a fixed width file, or -1 if it has none.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	public void setOffset(int offset) {
+		this.offset = offset;
+	}
+
+	/**
+	 * Returns the length of the field in a fixed width file, or 0 if it has none.
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	public void setLength(int length) {
+		this.length = length;
+	}
+
+	/**
+	 * Returns the most distinct values of the field whose validation outcome is remembered, or 0 if every value is validated.
+	 */
+	public int getValidationCacheSize() {
+		return validationCacheSize;
+	}
+
+	public void setValidationCacheSize(int validationCacheSize) {
+		this.validationCacheSize = validationCacheSize;
+	}
+
+	public List<ValidationRule> getValidationRules() {
+		return validationRules;
+	}
+	
+	public void addValidationRule(ValidationRule validationRule) {
+		this.validationRules.add(validationRule);
+	}
+
+	/**
+	 * Returns a copy of this field, with copies of its validation rules, that can be changed without affecting this one.
+	 */
+	public FileField copy() {
+		FileField copy = new FileField();
+		copy.setPosition(position);
+		copy.setName(name);
+		copy.setDescription(description);
+		copy.setOutputMapping(outputMapping);
+		copy.setOffset(offset);
+		copy.setLength(length);
+		copy.setValidationCacheSize(validationCacheSize);
+		for (ValidationRule validationRule : validationRules) {
+			copy.addValidationRule(new ValidationRule(validationRule.getRuleId(), validationRule.getMetadata(), validationRule.shouldNotifyImmediately()));
+		}
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("Field Position: ");
+		builder.append(this.position);
+		builder.append(". Name: " );
+		builder.append(this.name);
+		builder.append(". Description: ");
+		builder.append(this.description);
+		builder.append(". Output Mapping: ");
+		builder.append(this.outputMapping == null ? "None" : this.outputMapping);
+		return builder.toString();
+	}
+
+}
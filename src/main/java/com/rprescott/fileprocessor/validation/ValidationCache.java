@@ -0,0 +1,95 @@
+package com.rprescott.fileprocessor.validation;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rprescott.fileprocessor.validation.rules.AbstractInputValidationRule;
+
+/**
+ * Remembers the outcome of validating each distinct value of a field, so that a field with few distinct values (a state code,
+ * say, or a status flag) is only validated once per value rather than once per record. The outcome of a value is the rules it
+ * failed, in the order they are applied, which is all that is needed to report its failures again.
+ *
+ * <br><br>
+ *
+ * The cache holds at most {@link FileField#getValidationCacheSize()} values, and is emptied whenever it is full. Every 1024 misses
+ * the hit rate is checked, and if there have been fewer hits than misses the field has too many distinct values to be worth
+ * caching, so the cache empties and disables itself for the rest of the file.
+ *
+ * <br><br>
+ *
+ * This class is thread safe.
+ *
+ * @author rprescott
+ */
+public class ValidationCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ValidationCache.class);
+	/** The outcome of a value that failed none of the rules. */
+	public static final AbstractInputValidationRule[] PASSED = new AbstractInputValidationRule[0];
+	private static final int CHECK_EVERY_MISSES = 1024;
+
+	private final FileField field;
+	private final int maxEntries;
+	private final ConcurrentHashMap<String, AbstractInputValidationRule[]> outcomes;
+	private final LongAdder hits = new LongAdder();
+	private final AtomicLong misses = new AtomicLong();
+	private volatile boolean enabled = true;
+
+	public ValidationCache(FileField field, int maxEntries) {
+		this.field = field;
+		this.maxEntries = maxEntries;
+		this.outcomes = new ConcurrentHashMap<>(Math.min(maxEntries, 1024));
+	}
+
+	/**
+	 * Returns the rules the value failed, which is {@link #PASSED} if it failed none, or null if its outcome is not known.
+	 */
+	public AbstractInputValidationRule[] get(String value) {
+		if (!enabled || value == null) {
+			return null;
+		}
+		AbstractInputValidationRule[] failedRules = outcomes.get(value);
+		if (failedRules != null) {
+			hits.increment();
+			return failedRules;
+		}
+		long missCount = misses.incrementAndGet();
+		if (missCount % CHECK_EVERY_MISSES == 0 && hits.sum() < missCount) {
+			enabled = false;
+			outcomes.clear();
+			LOGGER.info("Disabled the validation cache of field {} ({}) after {} hits and {} misses. It has too many distinct values to cache.",
+				field.getPosition(), field.getName(), hits.sum(), missCount);
+		}
+		return null;
+	}
+
+	/**
+	 * Remembers the rules the value failed, unless the cache has disabled itself.
+	 */
+	public void put(String value, AbstractInputValidationRule[] failedRules) {
+		if (!enabled || value == null) {
+			return;
+		}
+		if (outcomes.size() >= maxEntries) {
+			outcomes.clear();
+		}
+		outcomes.put(value, failedRules);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+}
@@ -1,35 +1,49 @@
-package com.rprescott.fileprocessor.validation;
-
-import com.rprescott.fileprocessor.validation.rules.AbstractInputValidationRule;
-
-public class ValidationFailure {
-	
-	private FileField field;
-	private String fieldValue;
-	private long lineNumber;
-	private AbstractInputValidationRule rule;
-	
-	public ValidationFailure(FileField field, String fieldValue, long lineNumber, AbstractInputValidationRule rule) {
-		this.field = field;
-		this.fieldValue = fieldValue;
-		this.lineNumber = lineNumber;
-		this.rule = rule;
-	}
-	
-	public FileField getField() {
-		return field;
-	}
-
-	public String getFieldValue() {
-		return fieldValue;
-	}
-	
-	public long getLineNumber() {
-		return lineNumber;
-	}
-
-	public AbstractInputValidationRule getRule() {
-		return rule;
-	}
-
-}
+package com.rprescott.fileprocessor.validation;
+
+import com.rprescott.fileprocessor.validation.rules.AbstractInputValidationRule;
+
+public class ValidationFailure {
+	
+	private FileField field;
+	private String fieldValue;
+	private long lineNumber;
+	private AbstractInputValidationRule rule;
+	private long firstOccurrenceLineNumber;
+	
+	public ValidationFailure(FileField field, String fieldValue, long lineNumber, AbstractInputValidationRule rule) {
+		this.field = field;
+		this.fieldValue = fieldValue;
+		this.lineNumber = lineNumber;
+		this.rule = rule;
+	}
+
+	public ValidationFailure(FileField field, String fieldValue, long lineNumber, AbstractInputValidationRule rule, long firstOccurrenceLineNumber) {
+		this(field, fieldValue, lineNumber, rule);
+		this.firstOccurrenceLineNumber = firstOccurrenceLineNumber;
+	}
+	
+	public FileField getField() {
+		return field;
+	}
+
+	public String getFieldValue() {
+		return fieldValue;
+	}
+	
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	public AbstractInputValidationRule getRule() {
+		return rule;
+	}
+
+	/**
+	 * Returns the line on which the value first occurred, for a value that failed a {@link com.rprescott.fileprocessor.validation.rules.UniqueValidationRule}
+	 * by occurring before, or 0 for any other failure.
+	 */
+	public long getFirstOccurrenceLineNumber() {
+		return firstOccurrenceLineNumber;
+	}
+
+}
@@ -0,0 +1,140 @@
+package com.rprescott.fileprocessor.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.rprescott.fileprocessor.validation.rules.AbstractInputValidationRule;
+
+/**
+ * Counts the validation failures of a file per field and rule, rather than logging each of them as it happens. For each
+ * field and rule a fixed number of failures is kept as examples, chosen by reservoir sampling so that they are spread across
+ * the whole file rather than being the first few. Once the file is complete, {@link #getSummaries()} describes every kind
+ * of failure seen in a handful of lines no matter how bad the file was.
+ * 
+ * <br><br>
+ * 
+ * Logging each failure is still possible as an explicit option: when a rate is supplied and DEBUG is enabled for this class,
+ * up to that many failures per second are logged, and the rest are only counted.
+ * 
+ * <br><br>
+ * 
+ * Instances are thread safe, so the threads processing the parts of one file may share one.
+ * 
+ * @author rprescott
+ */
+public class ValidationFailureAggregator {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ValidationFailureAggregator.class);
+
+	private final int maxExamples;
+	private final RateLimiter debugLogLimiter;
+	/** Keyed by rule instance, which is unique to a field within a {@link ValidationPlan}. */
+	private final ConcurrentMap<AbstractInputValidationRule, FailureCounter> counters = new ConcurrentHashMap<>();
+	private final AtomicLong invalidRecords = new AtomicLong();
+
+	private static class FailureCounter {
+		private final FileField field;
+		private final AbstractInputValidationRule rule;
+		private final AtomicLong count = new AtomicLong();
+		private final ValidationFailure[] examples;
+
+		FailureCounter(FileField field, AbstractInputValidationRule rule, int maxExamples) {
+			this.field = field;
+			this.rule = rule;
+			this.examples = new ValidationFailure[maxExamples];
+		}
+
+		void add(ValidationFailure failure) {
+			long seen = count.getAndIncrement();
+			if (seen < examples.length) {
+				synchronized (this) {
+					examples[(int) seen] = failure;
+				}
+			}
+			else {
+				// Keep each failure with probability maxExamples / (seen + 1), replacing a random example.
+				long slot = ThreadLocalRandom.current().nextLong(seen + 1);
+				if (slot < examples.length) {
+					synchronized (this) {
+						examples[(int) slot] = failure;
+					}
+				}
+			}
+		}
+
+		synchronized ValidationFailureSummary summarize() {
+			List<ValidationFailure> sample = new ArrayList<>();
+			for (ValidationFailure example : examples) {
+				if (example != null) {
+					sample.add(example);
+				}
+			}
+			sample.sort(Comparator.comparingLong(ValidationFailure::getLineNumber));
+			return new ValidationFailureSummary(field, rule.getRuleId(), rule.getRuleName(), count.get(), sample);
+		}
+	}
+
+	/**
+	 * @param maxExamples
+	 * 		The number of failures to keep as examples for each field and rule.
+	 * @param debugLogsPerSecond
+	 * 		The most failures to log per second at DEBUG, or 0 to never log them.
+	 */
+	public ValidationFailureAggregator(int maxExamples, double debugLogsPerSecond) {
+		this.maxExamples = maxExamples;
+		this.debugLogLimiter = debugLogsPerSecond > 0 ? RateLimiter.create(debugLogsPerSecond) : null;
+	}
+
+	/**
+	 * Counts every failure of an invalid record.
+	 */
+	public void record(RecordValidationResult result) {
+		invalidRecords.incrementAndGet();
+		for (ValidationFailure failure : result.getValidationErrors()) {
+			counters.computeIfAbsent(failure.getRule(), rule -> new FailureCounter(failure.getField(), rule, maxExamples)).add(failure);
+			if (debugLogLimiter != null && LOGGER.isDebugEnabled() && debugLogLimiter.tryAcquire()) {
+				LOGGER.debug("Field Position {} ({}) of Record {} failed validation on Rule ID: {} with supplied value \"{}\"",
+					failure.getField().getPosition(),
+					failure.getField().getName(),
+					Arrays.toString(result.getValue()),
+					failure.getRule().getRuleId(),
+					failure.getFieldValue());
+			}
+		}
+	}
+
+	public long getInvalidRecords() {
+		return invalidRecords.get();
+	}
+
+	public long getTotalFailures() {
+		long totalFailures = 0;
+		for (FailureCounter counter : counters.values()) {
+			totalFailures += counter.count.get();
+		}
+		return totalFailures;
+	}
+
+	/**
+	 * Returns a summary of each field and rule that failed at least once, ordered by field position and then rule ID.
+	 */
+	public List<ValidationFailureSummary> getSummaries() {
+		List<ValidationFailureSummary> summaries = new ArrayList<>();
+		for (FailureCounter counter : counters.values()) {
+			summaries.add(counter.summarize());
+		}
+		summaries.sort(Comparator.comparingInt((ValidationFailureSummary summary) -> summary.getField().getPosition())
+			.thenComparingInt(ValidationFailureSummary::getRuleId));
+		return summaries;
+	}
+}
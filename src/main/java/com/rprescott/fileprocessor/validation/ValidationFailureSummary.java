@@ -0,0 +1,63 @@
+package com.rprescott.fileprocessor.validation;
+
+import java.util.List;
+
+/**
+ * The number of times a single rule of a single field failed while processing a file, along with a few of the failures as
+ * examples.
+ * 
+ * @author rprescott
+ */
+public class ValidationFailureSummary {
+
+	private FileField field;
+	private int ruleId;
+	private String ruleName;
+	private long count;
+	private List<ValidationFailure> examples;
+
+	public ValidationFailureSummary(FileField field, int ruleId, String ruleName, long count, List<ValidationFailure> examples) {
+		this.field = field;
+		this.ruleId = ruleId;
+		this.ruleName = ruleName;
+		this.count = count;
+		this.examples = examples;
+	}
+
+	public FileField getField() {
+		return field;
+	}
+
+	public int getRuleId() {
+		return ruleId;
+	}
+
+	public String getRuleName() {
+		return ruleName;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns a uniformly random sample of the failures, in line order.
+	 */
+	public List<ValidationFailure> getExamples() {
+		return examples;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Field Position ").append(field.getPosition()).append(" (").append(field.getName()).append(") failed validation on Rule ID: ")
+			.append(ruleId).append(" (").append(ruleName).append(") ").append(count).append(" times. Examples:");
+		for (ValidationFailure example : examples) {
+			sb.append(" line ").append(example.getLineNumber()).append(" \"").append(example.getFieldValue()).append("\"");
+			if (example.getFirstOccurrenceLineNumber() > 0) {
+				sb.append(" (first on line ").append(example.getFirstOccurrenceLineNumber()).append(")");
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,148 @@
+package com.rprescott.fileprocessor.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rprescott.fileprocessor.validation.rules.AbstractInputValidationRule;
+import com.rprescott.fileprocessor.validation.rules.ValidationRules;
+
+/**
+ * The validation rules of a file, compiled once up front so they can be reused for every record of the file.
+ *
+ * <br><br>
+ *
+ * Constructing a rule is relatively expensive (a reflective constructor call plus parsing of its metadata), so rather than
+ * constructing the rules for every field of every line, a plan is built from the {@link FileField}s of a {@link FileConfiguration}
+ * and holds ready to use rule instances in flat arrays indexed by column.
+ *
+ * <br><br>
+ *
+ * A plan holds the state of the file it validates: a rule may remember the values it has seen (a {@link com.rprescott.fileprocessor.validation.rules.UniqueValidationRule},
+ * say), as do the caches and the rule ordering below. A plan must therefore be compiled for each file, and never reused for
+ * another. It is thread safe, so it may be shared by the threads processing the same file.
+ *
+ * <br><br>
+ *
+ * A field with a {@link FileField#getValidationCacheSize()} also has a {@link ValidationCache} of the outcome of each of its values,
+ * as long as all of its rules are {@link AbstractInputValidationRule#isCacheable()}. The caches last as long as the plan.
+ *
+ * <br><br>
+ *
+ * A plan returned by {@link #failFast(long)} has a {@link RuleOrdering}, and its records are only validated until the first rule
+ * they fail. The values of a record are still shown to every rule that is not {@link AbstractInputValidationRule#isCacheable()},
+ * so that a value is found to be a duplicate whichever way its file is validated.
+ *
+ * @author rprescott
+ */
+public class ValidationPlan {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ValidationPlan.class);
+	private static final AbstractInputValidationRule[] NO_RULES = new AbstractInputValidationRule[0];
+
+	private final FileField[] fields;
+	private final AbstractInputValidationRule[][] rules;
+	private final ValidationCache[] caches;
+	private final RuleOrdering ruleOrdering;
+	private final boolean statefulRules;
+
+	private ValidationPlan(FileField[] fields, AbstractInputValidationRule[][] rules, ValidationCache[] caches, RuleOrdering ruleOrdering) {
+		this.fields = fields;
+		this.rules = rules;
+		this.caches = caches;
+		this.ruleOrdering = ruleOrdering;
+		this.statefulRules = Arrays.stream(rules).flatMap(Arrays::stream).anyMatch(rule -> !rule.isCacheable());
+	}
+
+	/**
+	 * Builds a plan for the supplied fields. Any rule ID that is not known to {@link ValidationRules} is logged once here and then ignored.
+	 *
+	 * @param fileFields
+	 * 		The fields of the file, in positional order.
+	 * @param validationRules
+	 * 		The registry used to construct each rule.
+	 */
+	public static ValidationPlan compile(List<FileField> fileFields, ValidationRules validationRules) {
+		FileField[] fields = fileFields.toArray(new FileField[fileFields.size()]);
+		AbstractInputValidationRule[][] rules = new AbstractInputValidationRule[fields.length][];
+		ValidationCache[] caches = new ValidationCache[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			List<AbstractInputValidationRule> fieldRules = new ArrayList<>();
+			for (ValidationRule validationRule : fields[i].getValidationRules()) {
+				if (validationRules.get(validationRule.getRuleId()) != null) {
+					AbstractInputValidationRule rule = validationRules.getInstance(
+						validationRule.getRuleId(),
+						validationRule.getMetadata(),
+						validationRule.shouldNotifyImmediately());
+					if (rule != null) {
+						fieldRules.add(rule);
+					}
+				}
+				else {
+					LOGGER.warn("Validation rule not found for ID: {}", validationRule.getRuleId());
+				}
+			}
+			rules[i] = fieldRules.isEmpty() ? NO_RULES : fieldRules.toArray(new AbstractInputValidationRule[fieldRules.size()]);
+			if (fields[i].getValidationCacheSize() > 0 && !fieldRules.isEmpty() && fieldRules.stream().allMatch(AbstractInputValidationRule::isCacheable)) {
+				caches[i] = new ValidationCache(fields[i], fields[i].getValidationCacheSize());
+			}
+		}
+		return new ValidationPlan(fields, rules, caches, null);
+	}
+
+	public static ValidationPlan compile(FileConfiguration fileConfiguration, ValidationRules validationRules) {
+		return compile(fileConfiguration.getFileFields(), validationRules);
+	}
+
+	/**
+	 * Returns a plan with the same rules and caches as this one whose records are validated fail fast, with the rules of each
+	 * field ordered by a new {@link RuleOrdering} once the supplied number of records has been sampled.
+	 */
+	public ValidationPlan failFast(long sampleRecords) {
+		return new ValidationPlan(fields, rules, caches, new RuleOrdering(fields, rules, sampleRecords));
+	}
+
+	public boolean isFailFast() {
+		return ruleOrdering != null;
+	}
+
+	/**
+	 * Returns true if any rule of the plan is not {@link AbstractInputValidationRule#isCacheable()}, that is, if its outcome for a
+	 * value depends on the values it was shown before.
+	 */
+	public boolean hasStatefulRules() {
+		return statefulRules;
+	}
+
+	/**
+	 * Returns the order in which the rules of each field are applied if the plan is fail fast, or null if it is not.
+	 */
+	public RuleOrdering getRuleOrdering() {
+		return ruleOrdering;
+	}
+
+	public int getNumberOfFields() {
+		return fields.length;
+	}
+
+	public FileField getField(int column) {
+		return fields[column];
+	}
+
+	/**
+	 * Returns the rules to apply to the given column, in the order they were declared. Never null.
+	 */
+	public AbstractInputValidationRule[] getRules(int column) {
+		return rules[column];
+	}
+
+	/**
+	 * Returns the cache of the outcome of each value of the given column, or null if its values are not cached.
+	 */
+	public ValidationCache getCache(int column) {
+		return caches[column];
+	}
+}
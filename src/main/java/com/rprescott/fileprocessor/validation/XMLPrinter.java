@@ -1,53 +1,53 @@
-package com.rprescott.fileprocessor.validation;
-
-import java.io.StringWriter;
-
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathFactory;
-
-import org.springframework.stereotype.Service;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
-@Service
-public class XMLPrinter {
-	
-	public String toPrettyString(Document document, int indent) {
-	    try {
-	        // Remove whitespaces outside tags
-	        document.normalize();
-	        XPath xPath = XPathFactory.newInstance().newXPath();
-	        NodeList nodeList = (NodeList) xPath.evaluate("//text()[normalize-space()='']",
-	                                                      document,
-	                                                      XPathConstants.NODESET);
-
-	        for (int i = 0; i < nodeList.getLength(); ++i) {
-	            Node node = nodeList.item(i);
-	            node.getParentNode().removeChild(node);
-	        }
-
-	        // Setup pretty print options
-	        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-	        transformerFactory.setAttribute("indent-number", indent);
-	        Transformer transformer = transformerFactory.newTransformer();
-	        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-	        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-	        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-
-	        // Return pretty print xml string
-	        StringWriter stringWriter = new StringWriter();
-	        transformer.transform(new DOMSource(document), new StreamResult(stringWriter));
-	        return stringWriter.toString();
-	    } catch (Exception e) {
-	        throw new RuntimeException(e);
-	    }
-	}
-
-}
+package com.rprescott.fileprocessor.validation;
+
+import java.io.StringWriter;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+@Service
+public class XMLPrinter {
+	
+	public String toPrettyString(Document document, int indent) {
+	    try {
+	        // Remove whitespaces outside tags
+	        document.normalize();
+	        XPath xPath = XPathFactory.newInstance().newXPath();
+	        NodeList nodeList = (NodeList) xPath.evaluate("//text()[normalize-space()='']",
+	                                                      document,
+	                                                      XPathConstants.NODESET);
+
+	        for (int i = 0; i < nodeList.getLength(); ++i) {
+	            Node node = nodeList.item(i);
+	            node.getParentNode().removeChild(node);
+	        }
+
+	        // Setup pretty print options
+	        TransformerFactory transformerFactory = TransformerFactory.newInstance();
+	        transformerFactory.setAttribute("indent-number", indent);
+	        Transformer transformer = transformerFactory.newTransformer();
+	        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+	        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+	        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+
+	        // Return pretty print xml string
+	        StringWriter stringWriter = new StringWriter();
+	        transformer.transform(new DOMSource(document), new StreamResult(stringWriter));
+	        return stringWriter.toString();
+	    } catch (Exception e) {
+	        throw new RuntimeException(e);
+	    }
+	}
+
+}
@@ -1,21 +1,40 @@
-package com.rprescott.fileprocessor.validation.rules;
-
-public abstract class AbstractInputValidationRule {
-	
-	protected Object metadata;
-	protected boolean notifyImmediately;
-	
-	public abstract boolean validate(String inputData);
-	public abstract int getRuleId();
-	public abstract String getRuleName();
-	
-	public AbstractInputValidationRule(Object metadata, boolean notifyImmediately) {
-		this.metadata = metadata;
-		this.notifyImmediately = notifyImmediately;
-	}
-	
-	public boolean shouldNotifyImmediately() {
-		return this.notifyImmediately;
-	}
-	
-}
+package com.rprescott.fileprocessor.validation.rules;
+
+public abstract class AbstractInputValidationRule {
+	
+	protected Object metadata;
+	protected boolean notifyImmediately;
+	
+	public abstract boolean validate(String inputData);
+	public abstract int getRuleId();
+	public abstract String getRuleName();
+	
+	public AbstractInputValidationRule(Object metadata, boolean notifyImmediately) {
+		this.metadata = metadata;
+		this.notifyImmediately = notifyImmediately;
+	}
+	
+	public boolean shouldNotifyImmediately() {
+		return this.notifyImmediately;
+	}
+	
+	/**
+	 * Validates a value of the record on the given line. Rules that only look at the value itself need not override this.
+	 */
+	public boolean validate(String inputData, long lineNumber) {
+		return validate(inputData);
+	}
+
+	public Object getMetadata() {
+		return this.metadata;
+	}
+
+	/**
+	 * Returns true if the rule always gives the same outcome for the same value, so that the outcome may be remembered rather
+	 * than the value validated again. Rules whose outcome depends on the values they have seen before must return false.
+	 */
+	public boolean isCacheable() {
+		return true;
+	}
+	
+}
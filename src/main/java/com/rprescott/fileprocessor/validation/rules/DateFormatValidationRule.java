@@ -1,58 +1,83 @@
-package com.rprescott.fileprocessor.validation.rules;
-
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-public class DateFormatValidationRule extends AbstractInputValidationRule {
-	
-	private static final Logger LOGGER = LoggerFactory.getLogger(DateFormatValidationRule.class);
-	private DateTimeFormatter expectedFormat;
-
-	public DateFormatValidationRule(Object metadata) {
-		this(metadata, true);
-	}
-	
-	public DateFormatValidationRule(Object metadata, boolean notifyImmediately) {
-		super(metadata, notifyImmediately);
-		if (metadata != null) {
-			if (metadata instanceof String) {
-				expectedFormat = DateTimeFormatter.ofPattern((String) metadata);
-			}
-		}
-		else {
-			LOGGER.error("No metadata supplied for {}.", this.getClass().getSimpleName());
-		}
-	}
-
-	@Override
-	public boolean validate(String inputData) {
-		boolean isValid = true;
-		if (inputData != null && !inputData.isEmpty()) {
-			try {
-				expectedFormat.parse(inputData);
-			}
-			catch (DateTimeParseException ex) {
-				LOGGER.error(ex.getMessage(), ex);
-				isValid = false;
-			}
-		}
-		return isValid;
-	}
-
-	@Override
-	public int getRuleId() {
-		return 4;
-	}
-
-	public DateTimeFormatter getExpectedFormat() {
-		return expectedFormat;
-	}
-
-	@Override
-	public String getRuleName() {
-		return "Date Format";
-	}
-}
+package com.rprescott.fileprocessor.validation.rules;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DateFormatValidationRule extends AbstractInputValidationRule {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(DateFormatValidationRule.class);
+	private DateTimeFormatter expectedFormat;
+	/** Validates the value without parsing it, or null if the pattern is not one it can compile. */
+	private DatePatternValidator fastValidator;
+
+	public DateFormatValidationRule(Object metadata) {
+		this(metadata, true);
+	}
+	
+	public DateFormatValidationRule(Object metadata, boolean notifyImmediately) {
+		super(metadata, notifyImmediately);
+		if (metadata != null) {
+			if (metadata instanceof String) {
+				expectedFormat = DateTimeFormatter.ofPattern((String) metadata);
+				fastValidator = DatePatternValidator.compile((String) metadata);
+			}
+		}
+		else {
+			LOGGER.error("No metadata supplied for {}.", this.getClass().getSimpleName());
+		}
+	}
+
+	@Override
+	public boolean validate(String inputData) {
+		boolean isValid = true;
+		if (inputData != null && !inputData.isEmpty()) {
+			// Common patterns are checked character by character, and only the values they cannot decide on are parsed.
+			int result = fastValidator != null ? fastValidator.validate(inputData) : DatePatternValidator.UNDECIDED;
+			if (result != DatePatternValidator.UNDECIDED) {
+				return result == DatePatternValidator.VALID;
+			}
+			try {
+				expectedFormat.parse(inputData);
+			}
+			catch (DateTimeParseException ex) {
+				// The failure is reported by whoever asked for the validation, so there is no need to log it (or its stack trace) here.
+				isValid = false;
+			}
+		}
+		return isValid;
+	}
+
+	@Override
+	public int getRuleId() {
+		return 4;
+	}
+
+	public DateTimeFormatter getExpectedFormat() {
+		return expectedFormat;
+	}
+
+	/**
+	 * Returns the {@link LocalDate#toEpochDay()} of a valid value of a format that describes a whole date. A value of a common
+	 * pattern is converted from the digits its validation checks, and only any other value is parsed by the formatter.
+	 *
+	 * @throws DateTimeException
+	 * 		If the value is not a valid date of the format.
+	 */
+	public long toEpochDay(String inputData) {
+		long epochDay = fastValidator != null ? fastValidator.toEpochDay(inputData) : DatePatternValidator.NOT_A_DATE;
+		if (epochDay != DatePatternValidator.NOT_A_DATE) {
+			return epochDay;
+		}
+		return LocalDate.from(expectedFormat.parse(inputData)).toEpochDay();
+	}
+
+	@Override
+	public String getRuleName() {
+		return "Date Format";
+	}
+}
@@ -0,0 +1,265 @@
+package com.rprescott.fileprocessor.validation.rules;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Validates values against a common date pattern by checking the digits and range of each field directly on the characters of
+ * the value, rather than parsing it with a {@link DateTimeFormatter} that reports every invalid value by throwing an exception.
+ *
+ * <br><br>
+ *
+ * Only patterns made of four letter years ({@code yyyy} or {@code uuuu}), two letter months, days, hours, minutes and seconds
+ * ({@code MM}, {@code dd}, {@code HH}, {@code mm}, {@code ss}) and literals can be compiled, and only if they describe a whole
+ * date, a time, or both. Such a pattern accepts exactly the values that {@link DateTimeFormatter#ofPattern(String)} parses with
+ * its default {@link ResolverStyle#SMART} resolver: a day of 31 is accepted in any month (and moved to the end of the month),
+ * and 24:00:00 is accepted as the end of the day. A signed year, which the formatter accepts for years of more than four digits,
+ * is left {@link #UNDECIDED} for the formatter to parse.
+ *
+ * @author rprescott
+ */
+final class DatePatternValidator {
+
+	static final int VALID = 0;
+	static final int INVALID = 1;
+	static final int UNDECIDED = 2;
+	/** Returned by {@link #toEpochDay(String)} for a value it cannot convert. */
+	static final long NOT_A_DATE = Long.MIN_VALUE;
+
+	private static final int LITERAL = 0;
+	private static final int YEAR_OF_ERA = 1;
+	private static final int PROLEPTIC_YEAR = 2;
+	private static final int MONTH = 3;
+	private static final int DAY = 4;
+	private static final int HOUR = 5;
+	private static final int MINUTE = 6;
+	private static final int SECOND = 7;
+	private static final String RESERVED = "[]{}#";
+
+	/** The field of each element of the pattern, or LITERAL. */
+	private final int[] elements;
+	/** The character of each literal element. */
+	private final char[] literals;
+	private final int width;
+	/** The index within a value of each field, or -1 if the pattern has none. */
+	private final int yearIndex;
+	private final int monthIndex;
+	private final int dayIndex;
+	private final int hourIndex;
+
+	private DatePatternValidator(int[] elements, char[] literals, int width, int[] indexes) {
+		this.elements = elements;
+		this.literals = literals;
+		this.width = width;
+		this.yearIndex = indexes[YEAR_OF_ERA] >= 0 ? indexes[YEAR_OF_ERA] : indexes[PROLEPTIC_YEAR];
+		this.monthIndex = indexes[MONTH];
+		this.dayIndex = indexes[DAY];
+		this.hourIndex = indexes[HOUR];
+	}
+
+	/**
+	 * Compiles the supplied pattern, or returns null if it is not one this class can validate.
+	 */
+	static DatePatternValidator compile(String pattern) {
+		List<Integer> elements = new ArrayList<>();
+		StringBuilder literals = new StringBuilder();
+		boolean[] seen = new boolean[SECOND + 1];
+		int[] indexes = new int[SECOND + 1];
+		Arrays.fill(indexes, -1);
+		int width = 0;
+		int i = 0;
+		while (i < pattern.length()) {
+			char c = pattern.charAt(i);
+			if (c == '\'') {
+				// Quoted text is a literal, in which a doubled quote is a quote. Two quotes on their own are a quote as well.
+				int end = i + 1;
+				while (end < pattern.length()) {
+					if (pattern.charAt(end) == '\'') {
+						if (end + 1 < pattern.length() && pattern.charAt(end + 1) == '\'') {
+							end++;
+						}
+						else {
+							break;
+						}
+					}
+					end++;
+				}
+				if (end >= pattern.length()) {
+					return null;
+				}
+				String text = end == i + 1 ? "'" : pattern.substring(i + 1, end).replace("''", "'");
+				for (int j = 0; j < text.length(); j++) {
+					if (!addLiteral(text.charAt(j), elements, literals)) {
+						return null;
+					}
+				}
+				width += text.length();
+				i = end + 1;
+				continue;
+			}
+			if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+				int runEnd = i;
+				while (runEnd < pattern.length() && pattern.charAt(runEnd) == c) {
+					runEnd++;
+				}
+				int field = fieldOf(c, runEnd - i);
+				if (field == LITERAL || seen[field] || (field <= PROLEPTIC_YEAR && (seen[YEAR_OF_ERA] || seen[PROLEPTIC_YEAR]))) {
+					return null;
+				}
+				seen[field] = true;
+				indexes[field] = width;
+				elements.add(field);
+				literals.append('\0');
+				width += runEnd - i;
+				i = runEnd;
+				continue;
+			}
+			if (RESERVED.indexOf(c) != -1 || !addLiteral(c, elements, literals)) {
+				return null;
+			}
+			width++;
+			i++;
+		}
+		boolean hasYear = seen[YEAR_OF_ERA] || seen[PROLEPTIC_YEAR];
+		boolean wholeDate = hasYear && seen[MONTH] && seen[DAY];
+		boolean noDate = !hasYear && !seen[MONTH] && !seen[DAY];
+		boolean time = seen[HOUR] && (seen[MINUTE] || !seen[SECOND]);
+		boolean noTime = !seen[HOUR] && !seen[MINUTE] && !seen[SECOND];
+		if (!(wholeDate || noDate) || !(time || noTime) || (noDate && noTime)) {
+			return null;
+		}
+		int[] compiled = new int[elements.size()];
+		for (int j = 0; j < compiled.length; j++) {
+			compiled[j] = elements.get(j);
+		}
+		return new DatePatternValidator(compiled, literals.toString().toCharArray(), width, indexes);
+	}
+
+	/**
+	 * Adds a literal, unless it is a digit, which a year before it would take as one of its own.
+	 */
+	private static boolean addLiteral(char c, List<Integer> elements, StringBuilder literals) {
+		if (c >= '0' && c <= '9') {
+			return false;
+		}
+		elements.add(LITERAL);
+		literals.append(c);
+		return true;
+	}
+
+	private static int fieldOf(char letter, int count) {
+		switch (letter) {
+			case 'y':
+				return count == 4 ? YEAR_OF_ERA : LITERAL;
+			case 'u':
+				return count == 4 ? PROLEPTIC_YEAR : LITERAL;
+			case 'M':
+				return count == 2 ? MONTH : LITERAL;
+			case 'd':
+				return count == 2 ? DAY : LITERAL;
+			case 'H':
+				return count == 2 ? HOUR : LITERAL;
+			case 'm':
+				return count == 2 ? MINUTE : LITERAL;
+			case 's':
+				return count == 2 ? SECOND : LITERAL;
+			default:
+				return LITERAL;
+		}
+	}
+
+	/**
+	 * Returns {@link #VALID} or {@link #INVALID}, or {@link #UNDECIDED} if the value has a signed year.
+	 */
+	int validate(String value) {
+		if (yearIndex >= 0 && yearIndex < value.length() && (value.charAt(yearIndex) == '+' || value.charAt(yearIndex) == '-')) {
+			return UNDECIDED;
+		}
+		if (value.length() != width) {
+			return INVALID;
+		}
+		int hour = 0;
+		int minute = 0;
+		int second = 0;
+		int index = 0;
+		for (int i = 0; i < elements.length; i++) {
+			int element = elements[i];
+			if (element == LITERAL) {
+				if (value.charAt(index++) != literals[i]) {
+					return INVALID;
+				}
+				continue;
+			}
+			int digits = element <= PROLEPTIC_YEAR ? 4 : 2;
+			int fieldValue = 0;
+			for (int j = 0; j < digits; j++) {
+				int digit = value.charAt(index++) - '0';
+				if (digit < 0 || digit > 9) {
+					return INVALID;
+				}
+				fieldValue = fieldValue * 10 + digit;
+			}
+			switch (element) {
+				case YEAR_OF_ERA:
+					if (fieldValue < 1) {
+						return INVALID;
+					}
+					break;
+				case MONTH:
+					if (fieldValue < 1 || fieldValue > 12) {
+						return INVALID;
+					}
+					break;
+				case DAY:
+					if (fieldValue < 1 || fieldValue > 31) {
+						return INVALID;
+					}
+					break;
+				case HOUR:
+					hour = fieldValue;
+					break;
+				case MINUTE:
+					minute = fieldValue;
+					break;
+				case SECOND:
+					second = fieldValue;
+					break;
+				default:
+					break;
+			}
+		}
+		if (minute > 59 || second > 59 || hour > 24 || (hour == 24 && (minute != 0 || second != 0))) {
+			return INVALID;
+		}
+		return VALID;
+	}
+
+	/**
+	 * Returns the {@link LocalDate#toEpochDay()} of a valid value of a pattern that describes a whole date, resolved exactly as
+	 * the formatter resolves it: a day beyond the end of its month is the last day of the month, and a time of 24:00:00 is the
+	 * start of the next day. Returns {@link #NOT_A_DATE} if the pattern has no date or the value is not {@link #VALID}.
+	 */
+	long toEpochDay(String value) {
+		if (dayIndex < 0 || validate(value) != VALID) {
+			return NOT_A_DATE;
+		}
+		int year = digits(value, yearIndex, 4);
+		int month = digits(value, monthIndex, 2);
+		int day = Math.min(digits(value, dayIndex, 2), YearMonth.of(year, month).lengthOfMonth());
+		long epochDay = LocalDate.of(year, month, day).toEpochDay();
+		return hourIndex >= 0 && digits(value, hourIndex, 2) == 24 ? epochDay + 1 : epochDay;
+	}
+
+	private static int digits(String value, int index, int count) {
+		int number = 0;
+		for (int i = index; i < index + count; i++) {
+			number = number * 10 + value.charAt(i) - '0';
+		}
+		return number;
+	}
+}
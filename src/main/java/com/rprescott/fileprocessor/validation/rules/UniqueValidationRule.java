@@ -0,0 +1,296 @@
+package com.rprescott.fileprocessor.validation.rules;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Requires every value of a field to be unique within the file, such as the ID of each piece of a mailing. Unlike the other
+ * rules, the outcome of a value depends on the values validated before it, so a rule instance must only be used for one file.
+ * Uniqueness is only checked when a whole file is read through one {@link com.rprescott.fileprocessor.validation.ValidationPlan};
+ * a record validated on its own, with a plan compiled just for it, always passes. Empty values are not checked.
+ *
+ * <br><br>
+ *
+ * A file may hold hundreds of millions of keys, far more than a {@code HashSet<String>} can hold on the heap, so each value is
+ * reduced to a 64 bit fingerprint which is kept, along with the line number of the value, in an open addressing table of direct
+ * buffers outside the heap: 16 bytes a slot, or between 21 and 43 bytes a key as the table is kept between three eighths and
+ * three quarters full. Two different values share a fingerprint with a probability of about n<sup>2</sup>/2<sup>65</sup> for n keys
+ * (roughly one in a thousand for 200 million keys), in which case the second is reported as a duplicate of the first. If that
+ * cannot be tolerated, the metadata {@code exact} also keeps every value in direct buffers, and a value whose fingerprint has
+ * been seen before is only reported once it has been compared with the earlier value and found to be equal. The metadata may
+ * also give the number of keys expected, so the table does not have to grow, e.g. {@code 200000000,exact}.
+ *
+ * <br><br>
+ *
+ * The direct memory is reclaimed along with the rule once it is no longer referenced, and the JVM's limit on direct memory
+ * ({@code -XX:MaxDirectMemorySize}) must allow for it. When a file is processed on several threads the values are checked in the
+ * order the threads reach them, so the first occurrence of a key is the first one checked rather than the first in the file.
+ *
+ * @author rprescott
+ */
+public class UniqueValidationRule extends AbstractInputValidationRule {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(UniqueValidationRule.class);
+	private static final int MIN_CAPACITY = 1024;
+	/** The table is kept at most three quarters full. */
+	private static final double MAX_LOAD = 0.75;
+	/** The slots of each buffer of the table, which keeps each buffer well within 2GB. */
+	private static final int SEGMENT_SLOTS = 1 << 25;
+	private static final int KEY_SEGMENT_BYTES = 1 << 26;
+
+	private final boolean exact;
+	private final long expectedKeys;
+	/** Each slot holds a fingerprint (0 if the slot is empty) and a line number, and in exact mode the address of the value. */
+	private final int slotBytes;
+	private ByteBuffer[] table;
+	private long capacity;
+	private long size;
+	private final List<ByteBuffer> keySegments = new ArrayList<>();
+
+	public UniqueValidationRule(Object metadata) {
+		this(metadata, true);
+	}
+
+	public UniqueValidationRule(Object metadata, boolean notifyImmediately) {
+		super(metadata, notifyImmediately);
+		boolean exactKeys = false;
+		long keys = 0;
+		if (metadata instanceof String) {
+			for (String option : ((String) metadata).split(",")) {
+				option = option.trim();
+				if ("exact".equalsIgnoreCase(option)) {
+					exactKeys = true;
+				}
+				else if (!option.isEmpty()) {
+					try {
+						keys = Long.parseLong(option);
+					}
+					catch (NumberFormatException ex) {
+						LOGGER.error("Invalid metadata received for {}. Supplied Metadata: {}", this.getClass().getSimpleName(), metadata);
+					}
+				}
+			}
+		}
+		else if (metadata instanceof Number) {
+			keys = ((Number) metadata).longValue();
+		}
+		this.exact = exactKeys;
+		this.expectedKeys = keys;
+		this.slotBytes = exactKeys ? 24 : 16;
+	}
+
+	@Override
+	public boolean validate(String inputData) {
+		return validate(inputData, 0);
+	}
+
+	/**
+	 * Returns false if the value has been validated before, and otherwise remembers it as first occurring on the given line.
+	 */
+	@Override
+	public synchronized boolean validate(String inputData, long lineNumber) {
+		if (inputData == null || inputData.isEmpty()) {
+			return true;
+		}
+		if (table == null) {
+			allocate(Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max((long) (expectedKeys / MAX_LOAD), 1)) << 1));
+		}
+		long fingerprint = fingerprintOf(inputData);
+		long slot = find(inputData, fingerprint);
+		if (getLong(slot, 0) != 0) {
+			return false;
+		}
+		if (size + 1 > capacity * MAX_LOAD) {
+			grow();
+			slot = find(inputData, fingerprint);
+		}
+		putLong(slot, 0, fingerprint);
+		putLong(slot, 8, lineNumber);
+		if (exact) {
+			putLong(slot, 16, storeKey(inputData));
+		}
+		size++;
+		return true;
+	}
+
+	/**
+	 * Returns the line number on which the value first occurred, which is 0 if it was validated without one, or -1 if the value
+	 * has not been validated.
+	 */
+	public synchronized long getFirstOccurrence(String value) {
+		if (table == null || value == null || value.isEmpty()) {
+			return -1;
+		}
+		long slot = find(value, fingerprintOf(value));
+		return getLong(slot, 0) != 0 ? getLong(slot, 8) : -1;
+	}
+
+	/**
+	 * Returns the number of distinct values validated.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the bytes of direct memory held by the table and, in exact mode, the values.
+	 */
+	public synchronized long getOffHeapBytes() {
+		long bytes = 0;
+		if (table != null) {
+			for (ByteBuffer segment : table) {
+				bytes += segment.capacity();
+			}
+		}
+		for (ByteBuffer keySegment : keySegments) {
+			bytes += keySegment.capacity();
+		}
+		return bytes;
+	}
+
+	@Override
+	public boolean isCacheable() {
+		return false;
+	}
+
+	@Override
+	public int getRuleId() {
+		return 6;
+	}
+
+	@Override
+	public String getRuleName() {
+		return "Unique";
+	}
+
+	/**
+	 * Returns the slot holding the value, or the empty slot it belongs in if it is not in the table.
+	 */
+	private long find(String value, long fingerprint) {
+		long mask = capacity - 1;
+		for (long slot = fingerprint & mask; ; slot = (slot + 1) & mask) {
+			long slotFingerprint = getLong(slot, 0);
+			if (slotFingerprint == 0) {
+				return slot;
+			}
+			// In exact mode a matching fingerprint is only a duplicate if the earlier value is equal, and otherwise probing carries on.
+			if (slotFingerprint == fingerprint && (!exact || keyEquals(getLong(slot, 16), value))) {
+				return slot;
+			}
+		}
+	}
+
+	private void allocate(long newCapacity) {
+		capacity = newCapacity;
+		int segments = (int) ((newCapacity + SEGMENT_SLOTS - 1) / SEGMENT_SLOTS);
+		table = new ByteBuffer[segments];
+		for (int i = 0; i < segments; i++) {
+			table[i] = ByteBuffer.allocateDirect((int) (Math.min(newCapacity, SEGMENT_SLOTS) * slotBytes)).order(ByteOrder.nativeOrder());
+		}
+	}
+
+	/**
+	 * Doubles the capacity of the table. Every fingerprint is moved to its slot in the new table; no value is needed to do so.
+	 */
+	private void grow() {
+		ByteBuffer[] oldTable = table;
+		long oldCapacity = capacity;
+		allocate(oldCapacity * 2);
+		long mask = capacity - 1;
+		for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+			ByteBuffer oldSegment = oldTable[(int) (oldSlot / SEGMENT_SLOTS)];
+			int oldIndex = (int) (oldSlot % SEGMENT_SLOTS) * slotBytes;
+			long fingerprint = oldSegment.getLong(oldIndex);
+			if (fingerprint == 0) {
+				continue;
+			}
+			long slot = fingerprint & mask;
+			while (getLong(slot, 0) != 0) {
+				slot = (slot + 1) & mask;
+			}
+			for (int offset = 0; offset < slotBytes; offset += 8) {
+				putLong(slot, offset, oldSegment.getLong(oldIndex + offset));
+			}
+		}
+		LOGGER.debug("Grew the table of {} to {} slots holding {} values.", this.getClass().getSimpleName(), capacity, size);
+	}
+
+	private long getLong(long slot, int offset) {
+		return table[(int) (slot / SEGMENT_SLOTS)].getLong((int) (slot % SEGMENT_SLOTS) * slotBytes + offset);
+	}
+
+	private void putLong(long slot, int offset, long value) {
+		table[(int) (slot / SEGMENT_SLOTS)].putLong((int) (slot % SEGMENT_SLOTS) * slotBytes + offset, value);
+	}
+
+	/**
+	 * Appends the value to the key segments, returning its address: the index of its segment in the high 32 bits and its offset
+	 * within the segment in the low 32. A value of only Latin-1 characters is kept as one byte a character with a positive length,
+	 * and any other as two bytes a character with a negative length.
+	 */
+	private long storeKey(String value) {
+		boolean latin1 = true;
+		for (int i = 0; i < value.length() && latin1; i++) {
+			latin1 = value.charAt(i) < 0x100;
+		}
+		int bytes = 4 + value.length() * (latin1 ? 1 : 2);
+		ByteBuffer segment = keySegments.isEmpty() ? null : keySegments.get(keySegments.size() - 1);
+		if (segment == null || segment.remaining() < bytes) {
+			segment = ByteBuffer.allocateDirect(Math.max(KEY_SEGMENT_BYTES, bytes)).order(ByteOrder.nativeOrder());
+			keySegments.add(segment);
+		}
+		long address = ((long) (keySegments.size() - 1) << 32) | segment.position();
+		segment.putInt(latin1 ? value.length() : -value.length());
+		for (int i = 0; i < value.length(); i++) {
+			if (latin1) {
+				segment.put((byte) value.charAt(i));
+			}
+			else {
+				segment.putChar(value.charAt(i));
+			}
+		}
+		return address;
+	}
+
+	private boolean keyEquals(long address, String value) {
+		ByteBuffer segment = keySegments.get((int) (address >>> 32));
+		int index = (int) address;
+		int length = segment.getInt(index);
+		boolean latin1 = length >= 0;
+		if (Math.abs(length) != value.length()) {
+			return false;
+		}
+		index += 4;
+		for (int i = 0; i < value.length(); i++) {
+			char c = latin1 ? (char) (segment.get(index + i) & 0xff) : segment.getChar(index + i * 2);
+			if (c != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a 64 bit hash of the value that is never 0, which marks an empty slot. The hash is mixed well enough for its low
+	 * bits to index the table.
+	 */
+	static long fingerprintOf(String value) {
+		long hash = 0x9E3779B97F4A7C15L ^ value.length();
+		for (int i = 0; i < value.length(); i++) {
+			hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+			hash = Long.rotateLeft(hash, 23);
+		}
+		// The finalizer of MurmurHash3, which spreads every bit of the hash over every other.
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash == 0 ? 1 : hash;
+	}
+}
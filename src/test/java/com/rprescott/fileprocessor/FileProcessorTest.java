@@ -1,118 +1,1051 @@
-package com.rprescott.fileprocessor;
-
-import static org.junit.Assert.assertEquals;
-import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.verify;
-
-import java.io.File;
-import java.io.IOException;
-import java.util.List;
-
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.junit.Before;
-import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Mock;
-import org.mockito.runners.MockitoJUnitRunner;
-import org.springframework.context.ApplicationEventPublisher;
-import org.xml.sax.SAXException;
-
-import com.rprescott.fileprocessor.FileProcessor;
-import com.rprescott.fileprocessor.LineSplitter;
-import com.rprescott.fileprocessor.events.FileCompletedProcessingEvent;
-import com.rprescott.fileprocessor.events.FileStartedProcessingEvent;
-import com.rprescott.fileprocessor.events.LineSplitEvent;
-import com.rprescott.fileprocessor.validation.FileConfigurationLoader;
-import com.rprescott.fileprocessor.validation.XMLPrinter;
-import com.rprescott.fileprocessor.validation.rules.ValidationRules;
-
-@RunWith(MockitoJUnitRunner.class)
-public class FileProcessorTest {
-
-    private FileProcessor classUnderTest;
-    private LineSplitter lineSplitter;
-    private FileConfigurationLoader fileConfigurationLoader;
-    private ValidationRules validationRules;
-    @Mock
-    private XMLPrinter mockXmlPrinter;
-    @Mock
-    private ApplicationEventPublisher mockEventPublisher;
-
-    @Before
-    public void setup() throws Exception {
-        classUnderTest = new FileProcessor();
-        lineSplitter = new LineSplitter();
-        fileConfigurationLoader = new FileConfigurationLoader();
-        validationRules = new ValidationRules();
-        validationRules.afterPropertiesSet();
-        fileConfigurationLoader.setXmlPrinter(mockXmlPrinter);
-        lineSplitter.setEventPublisher(mockEventPublisher);
-
-        // Set up our class under test with the appropriate dependencies (Some mocked,
-        // some not);
-        classUnderTest.setLineSplitter(lineSplitter);
-        classUnderTest.setEventPublisher(mockEventPublisher);
-        classUnderTest.setFileConfigurationLoader(fileConfigurationLoader);
-        classUnderTest.setValidationRules(validationRules);
-    }
-
-    @Test
-    public void testProcessingCommaSeparatedFile() throws IOException, ParserConfigurationException, SAXException {
-        File dataFile = new File("src/test/resources/data/Comma_5_Fields.txt");
-        File configurationFile = new File("src/test/resources/config/comma_5_fields.xml");
-        classUnderTest.readAndValidateFile(dataFile, configurationFile);
-        verifyResults(dataFile, false, 5, 0);
-    }
-
-    @Test
-    public void testProcessingPipeSeparatedFile() throws IOException, ParserConfigurationException, SAXException {
-        File dataFile = new File("src/test/resources/data/Pipe_5_Fields.txt");
-        File configurationFile = new File("src/test/resources/config/pipe_5_fields.xml");
-        classUnderTest.readAndValidateFile(dataFile, configurationFile);
-        verifyResults(dataFile, false, 5, 0);
-    }
-
-    private void verifyResults(File testFile, boolean containsHeader, int numberOfLines,
-            int numberOfLineMalformations) {
-        int totalEvents = numberOfLines + numberOfLineMalformations + 1 + 1;
-        FileStartedProcessingEvent event = new FileStartedProcessingEvent(testFile);
-        // Verify we sent out the file started processing event.
-        verify(mockEventPublisher).publishEvent(event);
-        // Capture all the times we triggered any type of event.
-        ArgumentCaptor<Object> lineSplitEventCaptor = ArgumentCaptor.forClass(Object.class);
-        verify(mockEventPublisher, times(totalEvents)).publishEvent(lineSplitEventCaptor.capture());
-
-        // Make sure we captured the correct number of events (# of Line splits + Number
-        // of Malformed Lines + 1 File Started Processing + 1 File Completed
-        // Processing).
-        assertEquals(totalEvents, lineSplitEventCaptor.getAllValues().size());
-        List<Object> capturedEvents = lineSplitEventCaptor.getAllValues();
-        int numLineSplitEvents = 0;
-        for (int i = 0; i < capturedEvents.size(); i++) {
-            if (capturedEvents.get(i) instanceof LineSplitEvent) {
-                numLineSplitEvents++;
-                // For this assertion, we need to simply add 1 to the number of line splits.
-                // This is because the first line in the sample file is malformed (Extra comma).
-                // This means that the first line split happens on line 2 of the file and not
-                // line 1. I thought it made more sense to do the increment here instead of
-                // initializing the
-                // variable to 1.
-                // The following assertion guarantees order of the line split events. This means
-                // we won't get a line split for Line 10 in a file before we get a Line split
-                // for Line 9.
-                if (!containsHeader) {
-                    assertEquals(numLineSplitEvents, ((LineSplitEvent) capturedEvents.get(i)).getLineNumber());
-                } else {
-                    assertEquals(numLineSplitEvents + 1, ((LineSplitEvent) capturedEvents.get(i)).getLineNumber());
-                }
-
-            } else if (capturedEvents.get(i) instanceof FileCompletedProcessingEvent) {
-                FileCompletedProcessingEvent fileCompletedProcessingEvent = new FileCompletedProcessingEvent(testFile,
-                        numberOfLines + numberOfLineMalformations);
-                assertEquals(fileCompletedProcessingEvent, capturedEvents.get(i));
-            }
-        }
-    }
-}
+package com.rprescott.fileprocessor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.xml.sax.SAXException;
+
+import com.rprescott.fileprocessor.ColumnarBatch.ColumnType;
+import com.rprescott.fileprocessor.FileProcessor;
+import com.rprescott.fileprocessor.LineSplitter;
+import com.rprescott.fileprocessor.events.BatchCompletedProcessingEvent;
+import com.rprescott.fileprocessor.events.ColumnarBatchEvent;
+import com.rprescott.fileprocessor.events.FileAbortedProcessingEvent;
+import com.rprescott.fileprocessor.events.FileCompletedProcessingEvent;
+import com.rprescott.fileprocessor.events.FileStartedProcessingEvent;
+import com.rprescott.fileprocessor.events.InvalidLineEvent;
+import com.rprescott.fileprocessor.events.LineSplitEvent;
+import com.rprescott.fileprocessor.events.LineValidatedEvent;
+import com.rprescott.fileprocessor.events.ValidatedBatchEvent;
+import com.rprescott.fileprocessor.metrics.FileMetrics;
+import com.rprescott.fileprocessor.metrics.ProcessingMetrics;
+import com.rprescott.fileprocessor.validation.FileConfiguration;
+import com.rprescott.fileprocessor.validation.FileConfigurationLoader;
+import com.rprescott.fileprocessor.validation.RecordValidationResult;
+import com.rprescott.fileprocessor.validation.RuleOrdering;
+import com.rprescott.fileprocessor.validation.ValidationFailure;
+import com.rprescott.fileprocessor.validation.ValidationFailureSummary;
+import com.rprescott.fileprocessor.validation.ValidationPlan;
+import com.rprescott.fileprocessor.validation.ValidationRule;
+import com.rprescott.fileprocessor.validation.XMLPrinter;
+import com.rprescott.fileprocessor.validation.rules.DateFormatValidationRule;
+import com.rprescott.fileprocessor.validation.rules.UniqueValidationRule;
+import com.rprescott.fileprocessor.validation.rules.ValidationRules;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FileProcessorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private FileProcessor classUnderTest;
+    private LineSplitter lineSplitter;
+    private FileConfigurationLoader fileConfigurationLoader;
+    private ValidationRules validationRules;
+    private ProcessingMetrics processingMetrics;
+    @Mock
+    private XMLPrinter mockXmlPrinter;
+    @Mock
+    private ApplicationEventPublisher mockEventPublisher;
+
+    @Before
+    public void setup() throws Exception {
+        classUnderTest = new FileProcessor();
+        lineSplitter = new LineSplitter();
+        fileConfigurationLoader = new FileConfigurationLoader();
+        validationRules = new ValidationRules();
+        validationRules.afterPropertiesSet();
+        fileConfigurationLoader.setXmlPrinter(mockXmlPrinter);
+        lineSplitter.setEventPublisher(mockEventPublisher);
+
+        // Set up our class under test with the appropriate dependencies (Some mocked,
+        // some not);
+        classUnderTest.setLineSplitter(lineSplitter);
+        classUnderTest.setEventPublisher(mockEventPublisher);
+        classUnderTest.setFileConfigurationLoader(fileConfigurationLoader);
+        classUnderTest.setValidationRules(validationRules);
+        processingMetrics = new ProcessingMetrics();
+        classUnderTest.setProcessingMetrics(processingMetrics);
+    }
+
+    @Test
+    public void testProcessingCommaSeparatedFile() throws IOException, ParserConfigurationException, SAXException {
+        File dataFile = new File("src/test/resources/data/Comma_5_Fields.txt");
+        File configurationFile = new File("src/test/resources/config/comma_5_fields.xml");
+        classUnderTest.readAndValidateFile(dataFile, configurationFile);
+        verifyResults(dataFile, false, 5, 0);
+    }
+
+    @Test
+    public void testProcessingPipeSeparatedFile() throws IOException, ParserConfigurationException, SAXException {
+        File dataFile = new File("src/test/resources/data/Pipe_5_Fields.txt");
+        File configurationFile = new File("src/test/resources/config/pipe_5_fields.xml");
+        classUnderTest.readAndValidateFile(dataFile, configurationFile);
+        verifyResults(dataFile, false, 5, 0);
+    }
+
+    @Test
+    public void testProcessingCommaSeparatedFileInParallel() throws IOException, ParserConfigurationException, SAXException {
+        File dataFile = new File("src/test/resources/data/Comma_5_Fields.txt");
+        File configurationFile = new File("src/test/resources/config/comma_5_fields.xml");
+        // Use a tiny chunk size so that the file is divided into several chunks.
+        classUnderTest.setParallelChunkSize(16);
+        classUnderTest.readFileParallel(dataFile, fileConfigurationLoader.loadConfigurationFile(configurationFile), false, true);
+        verifyResults(dataFile, false, 5, 0);
+    }
+
+    @Test
+    public void testProcessingCommaSeparatedFilePipelined() throws IOException, ParserConfigurationException, SAXException {
+        File dataFile = new File("src/test/resources/data/Comma_5_Fields.txt");
+        File configurationFile = new File("src/test/resources/config/comma_5_fields.xml");
+        // Use tiny blocks and a small ring so that the reader has to wait for the publisher to free a slot.
+        classUnderTest.setPipelineRingSize(2);
+        classUnderTest.setPipelineBlockSize(16);
+        PipelineStatistics statistics = classUnderTest.readFilePipelined(dataFile, fileConfigurationLoader.loadConfigurationFile(configurationFile), true, 2);
+        verifyResults(dataFile, false, 5, 0);
+        assertTrue(statistics.getBlocks() > 1);
+        // The maxima are sampled at different times, so only each one on its own is bounded by the ring.
+        assertTrue(statistics.getMaxAwaitingProcessing() <= 2);
+        assertTrue(statistics.getMaxAwaitingPublish() <= 2);
+    }
+
+    @Test
+    public void testProcessingMetrics() throws IOException, ParserConfigurationException, SAXException {
+        File dataFile = new File("src/test/resources/data/Comma_5_Fields.txt");
+        File configurationFile = new File("src/test/resources/config/comma_5_fields.xml");
+        classUnderTest.readAndValidateFile(dataFile, configurationFile);
+
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(7)).publishEvent(eventCaptor.capture());
+        FileMetrics metrics = ((FileCompletedProcessingEvent) eventCaptor.getAllValues().get(6)).getMetrics();
+        assertEquals(5, metrics.getRecordsRead());
+        assertEquals(dataFile.length(), metrics.getBytesRead());
+        assertEquals(0, metrics.getMalformedRecords());
+        assertEquals(0, metrics.getInvalidRecords());
+        assertEquals(5, metrics.getSplitLatency().getCount());
+        assertEquals(5, metrics.getValidationLatency().getCount());
+        // Every record has a value for the one field validated against rule 4 (date format).
+        assertEquals(5, metrics.getRuleLatency(4).getCount());
+        assertEquals(1, processingMetrics.getFilesProcessed());
+        assertEquals(5, processingMetrics.getTotals().getRecordsRead());
+    }
+
+    @Test
+    public void testProcessingBatchOfFiles() throws IOException {
+        File commaFile = new File("src/test/resources/data/Comma_5_Fields.txt");
+        File pipeFile = new File("src/test/resources/data/Pipe_5_Fields.txt");
+        FileBatchProcessor batchProcessor = new FileBatchProcessor();
+        batchProcessor.setFileProcessor(classUnderTest);
+        batchProcessor.setFileConfigurationLoader(fileConfigurationLoader);
+        batchProcessor.setEventPublisher(mockEventPublisher);
+        batchProcessor.setMaxConcurrentFiles(2);
+        BatchCompletedProcessingEvent batchEvent = batchProcessor.processFiles(Arrays.asList(
+            new BatchFile(commaFile, new File("src/test/resources/config/comma_5_fields.xml")),
+            new BatchFile(pipeFile, new File("src/test/resources/config/pipe_5_fields.xml")),
+            new BatchFile(pipeFile, new File("src/test/resources/config/missing.xml"))));
+
+        verify(mockEventPublisher).publishEvent(batchEvent);
+        verify(mockEventPublisher).publishEvent(new FileCompletedProcessingEvent(commaFile, 5));
+        verify(mockEventPublisher).publishEvent(new FileCompletedProcessingEvent(pipeFile, 5));
+        // The results are in the order the files were given, and a missing configuration only fails its own file.
+        assertEquals(commaFile, batchEvent.getResults().get(0).getFile());
+        assertEquals(5, batchEvent.getResults().get(1).getRecordsRead());
+        assertFalse(batchEvent.getResults().get(2).isSuccessful());
+        assertEquals(10, batchEvent.getTotalRecordsRead());
+        assertEquals(1, batchEvent.getNumberOfFailures());
+    }
+
+    @Test
+    public void testProcessingCommaSeparatedFileWithBatchedEvents() throws IOException, ParserConfigurationException, SAXException {
+        File dataFile = new File("src/test/resources/data/Comma_5_Fields.txt");
+        File configurationFile = new File("src/test/resources/config/comma_5_fields.xml");
+        ProcessingOptions options = new ProcessingOptions();
+        options.setEventBatchSize(2);
+        classUnderTest.readFile(dataFile, fileConfigurationLoader.loadConfigurationFile(configurationFile), true, options);
+
+        // File Started + 3 batches (2, 2 and 1 lines) + File Completed.
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(5)).publishEvent(eventCaptor.capture());
+        List<Object> capturedEvents = eventCaptor.getAllValues();
+        assertEquals(2, ((ValidatedBatchEvent) capturedEvents.get(1)).size());
+        assertEquals(2, ((ValidatedBatchEvent) capturedEvents.get(2)).size());
+        assertEquals(1, ((ValidatedBatchEvent) capturedEvents.get(3)).size());
+        assertEquals(new FileCompletedProcessingEvent(dataFile, 5), capturedEvents.get(4));
+    }
+
+    @Test
+    public void testProcessingCommaSeparatedFileWithColumnarBatches() throws IOException, ParserConfigurationException, SAXException {
+        File dataFile = new File("src/test/resources/data/Comma_5_Fields.txt");
+        File configurationFile = new File("src/test/resources/config/comma_5_fields.xml");
+        ProcessingOptions options = new ProcessingOptions();
+        options.setEventBatchSize(2);
+        options.setColumnarBatches(true);
+        classUnderTest.readFile(dataFile, fileConfigurationLoader.loadConfigurationFile(configurationFile), true, options);
+
+        // File Started + 2 batches (2 and 2 lines) + the last line on its own, as its number is too large for a long + File Completed.
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(5)).publishEvent(eventCaptor.capture());
+        List<Object> capturedEvents = eventCaptor.getAllValues();
+        ColumnarBatch batch = ((ColumnarBatchEvent) capturedEvents.get(1)).getBatch();
+        assertEquals(2, batch.getRowCount());
+        assertEquals(ColumnType.TEXT, batch.getColumnType(0));
+        assertEquals(ColumnType.EPOCH_DAY, batch.getColumnType(1));
+        assertEquals(ColumnType.LONG, batch.getColumnType(3));
+        assertEquals("12345", batch.getText(0, 0));
+        assertEquals(LocalDate.of(2018, 6, 8), batch.getDate(1, 0));
+        assertTrue(batch.isNull(1, 1));
+        assertEquals("", batch.getText(2, 0));
+        assertEquals(123456789, batch.getLong(3, 0));
+        assertTrue(batch.isNull(3, 1));
+        assertEquals("asdf18$!", batch.getText(4, 0));
+        batch = ((ColumnarBatchEvent) capturedEvents.get(2)).getBatch();
+        assertEquals(2, batch.getRowCount());
+        assertEquals(1, batch.getLong(3, 0));
+        assertEquals(0, batch.getLong(3, 1));
+        assertEquals("00000", ((LineValidatedEvent) capturedEvents.get(3)).getValidatedLine()[0]);
+        assertEquals(new FileCompletedProcessingEvent(dataFile, 5), capturedEvents.get(4));
+    }
+
+    @Test
+    public void testStreamingCommaSeparatedFile()throws IOException, ParserConfigurationException, SAXException {
+        File dataFile = new File("src/test/resources/data/Comma_5_Fields.txt");
+        File configurationFile = new File("src/test/resources/config/comma_5_fields.xml");
+        FileConfiguration configuration = fileConfigurationLoader.loadConfigurationFile(configurationFile);
+        try (Stream<FileRecord> records = classUnderTest.streamFile(dataFile, configuration, true)) {
+            List<FileRecord> validRecords = records.filter(FileRecord::isValid).collect(Collectors.toList());
+            assertEquals(5, validRecords.size());
+            for (int i = 0; i < validRecords.size(); i++) {
+                assertEquals(i + 1, validRecords.get(i).getLineNumber());
+            }
+            assertEquals("abcde", validRecords.get(2).getFields()[0]);
+        }
+        try (Stream<FileRecord> records = classUnderTest.streamFile(dataFile, configuration, false)) {
+            assertEquals(2, records.skip(1).findFirst().get().getLineNumber());
+        }
+        // Streaming publishes no events at all.
+        verifyZeroInteractions(mockEventPublisher);
+    }
+
+    @Test
+    public void testStreamingLargeFileInParallel() throws IOException, ParserConfigurationException, SAXException {
+        // Large enough to be split several times, with mixed line endings, malformed and invalid lines and no final EOR marker.
+        File dataFile = temporaryFolder.newFile("Large_Comma_5_Fields.txt");
+        StringBuilder data = new StringBuilder();
+        int lines = 200000;
+        for (int i = 1; i <= lines; i++) {
+            data.append(String.format("%05d", i % 100000)).append(i % 7 == 0 ? ",2019-13-01" : ",2019-01-01").append(",,").append(i);
+            data.append(i % 1000 == 0 ? "" : ",x").append(i == lines ? "" : i % 3 == 0 ? "\r\n" : "\n");
+        }
+        Files.write(dataFile.toPath(), data.toString().getBytes(StandardCharsets.US_ASCII));
+        FileConfiguration configuration = fileConfigurationLoader.loadConfigurationFile(new File("src/test/resources/config/comma_5_fields.xml"));
+
+        List<String> sequential;
+        try (Stream<FileRecord> records = classUnderTest.streamFile(dataFile, configuration, true)) {
+            sequential = records.map(record -> record + " " + record.isValid()).collect(Collectors.toList());
+        }
+        assertEquals(lines, sequential.size());
+        for (int i = 0; i < lines; i++) {
+            assertTrue(sequential.get(i).startsWith("Line " + (i + 1) + ": "));
+        }
+        assertEquals("Line 1000: Malformed false", sequential.get(999));
+        assertTrue(sequential.get(6).endsWith("false"));
+        assertTrue(sequential.get(7).endsWith("true"));
+
+        // Each part of a parallel stream starts at a line and numbers its lines from where the part before it ends.
+        try (Stream<FileRecord> records = classUnderTest.streamFile(dataFile, configuration, true)) {
+            assertTrue(records.spliterator().trySplit() != null);
+        }
+        try (Stream<FileRecord> records = classUnderTest.streamFile(dataFile, configuration, true)) {
+            List<String> parallel = records.parallel().map(record -> record + " " + record.isValid()).collect(Collectors.toList());
+            assertEquals(lines, parallel.size());
+            for (int i = 0; i < lines; i++) {
+                assertEquals(sequential.get(i), parallel.get(i));
+            }
+        }
+
+        // A short circuited stream reads no further than it has to, and closing the stream closes the file.
+        FileChannel fileChannel = FileChannel.open(dataFile.toPath());
+        CountingFileChannel channel = new CountingFileChannel(fileChannel);
+        try (Stream<FileRecord> records = classUnderTest.streamChannel(channel, dataFile, configuration, true)) {
+            assertEquals(sequential.subList(0, 3), records.limit(3).map(record -> record + " " + record.isValid()).collect(Collectors.toList()));
+            assertTrue(channel.getBytesRead() < 65536);
+            assertTrue(fileChannel.isOpen());
+        }
+        assertFalse(fileChannel.isOpen());
+        verifyZeroInteractions(mockEventPublisher);
+    }
+
+    @Test
+    public void testProcessingRecordLargerThanInitialBuffer() throws IOException {
+        File dataFile = temporaryFolder.newFile("Long_Record.txt");
+        StringBuilder longField = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            longField.append('x');
+        }
+        Files.write(dataFile.toPath(), ("a,b\n" + longField + ",c\nd,e\n").getBytes(StandardCharsets.US_ASCII));
+        classUnderTest.readFile(dataFile, ",", 2);
+
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(5)).publishEvent(eventCaptor.capture());
+        LineSplitEvent longLineEvent = (LineSplitEvent) eventCaptor.getAllValues().get(2);
+        assertEquals(2, longLineEvent.getLineNumber());
+        assertEquals(longField.toString(), longLineEvent.getSplitLine().get()[0]);
+        assertEquals("c", longLineEvent.getSplitLine().get()[1]);
+        assertEquals(new FileCompletedProcessingEvent(dataFile, 3), eventCaptor.getAllValues().get(4));
+    }
+
+    @Test
+    public void testReusingPooledBuffers() throws IOException {
+        File dataFile = temporaryFolder.newFile("Long_Record.txt");
+        StringBuilder longField = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            longField.append('x');
+        }
+        Files.write(dataFile.toPath(), ("a,b\n" + longField + ",c\nd,e\n").getBytes(StandardCharsets.US_ASCII));
+        BufferPool bufferPool = new BufferPool();
+        classUnderTest.setBufferPool(bufferPool);
+
+        // The 4KB buffer grows to 8KB and then 16KB, each of which is allocated the first time and reused the second.
+        classUnderTest.readFile(dataFile, ",", 2);
+        assertEquals(0, bufferPool.getHits());
+        assertEquals(3, bufferPool.getMisses());
+        classUnderTest.readFile(dataFile, ",", 2);
+        assertEquals(3, bufferPool.getHits());
+        assertEquals(3, bufferPool.getMisses());
+        assertEquals(0, bufferPool.getBytesInUse());
+        // While growing, the full buffer is held along with the one twice its size.
+        assertEquals(8192 + 16384, bufferPool.getPeakBytesInUse());
+        assertEquals(4096 + 8192 + 16384, bufferPool.getIdleBytes());
+
+        FileConfiguration configuration = new FileConfiguration();
+        configuration.setDelimiter(",");
+        configuration.setExpectedNumberOfFields(2);
+        classUnderTest.setPipelineRingSize(2);
+        classUnderTest.setPipelineBlockSize(4096);
+        classUnderTest.readFilePipelined(dataFile, configuration, false, 2);
+        assertEquals(0, bufferPool.getBytesInUse());
+
+        // Buffers are no longer pooled once the pool holds as many idle bytes as it may.
+        bufferPool.clear();
+        bufferPool.resetStatistics();
+        bufferPool.setMaxIdleBytes(4096);
+        classUnderTest.readFile(dataFile, ",", 2);
+        assertEquals(2, bufferPool.getDiscards());
+        assertEquals(4096, bufferPool.getIdleBytes());
+    }
+
+    @Test
+    public void testSummarizingValidationFailures()throws IOException, ParserConfigurationException, SAXException {
+        File dataFile = temporaryFolder.newFile("Bad_Dates.txt");
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            data.append("12345,not a date,,1,\n");
+        }
+        Files.write(dataFile.toPath(), data.toString().getBytes(StandardCharsets.US_ASCII));
+        ProcessingOptions options = new ProcessingOptions();
+        options.setFailureExamples(3);
+        classUnderTest.readFile(dataFile, fileConfigurationLoader.loadConfigurationFile(new File("src/test/resources/config/comma_5_fields.xml")), true, options);
+
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(52)).publishEvent(eventCaptor.capture());
+        List<ValidationFailureSummary> summaries = ((FileCompletedProcessingEvent) eventCaptor.getAllValues().get(51)).getValidationFailures();
+        assertEquals(1, summaries.size());
+        assertEquals(2, summaries.get(0).getField().getPosition());
+        assertEquals(4, summaries.get(0).getRuleId());
+        assertEquals(50, summaries.get(0).getCount());
+        assertEquals(3, summaries.get(0).getExamples().size());
+        assertEquals("not a date", summaries.get(0).getExamples().get(0).getFieldValue());
+    }
+
+    @Test
+    public void testCachingValidationOutcomes() throws IOException, ParserConfigurationException, SAXException {
+        File dataFile = temporaryFolder.newFile("Repeated_Values.txt");
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 2048; i++) {
+            data.append("12345,").append(i % 2 == 0 ? "2019-01-01" : "not a date").append(",,").append(i).append(",\n");
+        }
+        Files.write(dataFile.toPath(), data.toString().getBytes(StandardCharsets.US_ASCII));
+        FileConfiguration configuration = fileConfigurationLoader.loadConfigurationFile(new File("src/test/resources/config/comma_5_fields.xml"));
+        configuration.getFileFields().get(1).setValidationCacheSize(16);
+        configuration.getFileFields().get(3).setValidationCacheSize(16);
+        classUnderTest.readFile(dataFile, configuration, true);
+
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(2050)).publishEvent(eventCaptor.capture());
+        FileCompletedProcessingEvent completedEvent = (FileCompletedProcessingEvent) eventCaptor.getAllValues().get(2049);
+        // Every other date is reported as invalid, whether or not its outcome came from the cache.
+        assertEquals(1024, completedEvent.getValidationFailures().get(0).getCount());
+        assertEquals(1024, completedEvent.getMetrics().getInvalidRecords());
+        // Each date is validated once. Every number is distinct, so the cache of the numbers disables itself after 1024 misses.
+        assertEquals(2046, completedEvent.getMetrics().getValidationCacheHits());
+        assertEquals(2 + 1024, completedEvent.getMetrics().getValidationCacheMisses());
+    }
+
+    @Test
+    public void testValidatingFailFast() throws IOException, ParserConfigurationException, SAXException {
+        FileConfiguration configuration = fileConfigurationLoader.loadConfigurationFile(new File("src/test/resources/config/comma_5_fields.xml"));
+        ValidationPlan validationPlan = ValidationPlan.compile(configuration, validationRules);
+        // The first field is present (rule 1) but too short (rule 2), and the second is not a date (rule 4).
+        String[] record = {"1234", "not a date", "", "1", ""};
+        assertEquals(2, classUnderTest.performValidation(record, 1, validationPlan).getValidationErrors().size());
+
+        ValidationPlan failFastPlan = validationPlan.failFast(100);
+        for (int i = 0; i < 100; i++) {
+            RecordValidationResult result = classUnderTest.performValidation(record, i + 1, failFastPlan);
+            assertEquals(1, result.getValidationErrors().size());
+            assertEquals(2, result.getValidationErrors().get(0).getRule().getRuleId());
+        }
+        // Only rule 2 failed in the sample, so it is now applied before rule 1.
+        RuleOrdering ruleOrdering = failFastPlan.getRuleOrdering();
+        assertFalse(ruleOrdering.isSampling());
+        assertEquals(2, ruleOrdering.getRules(0)[0].getRuleId());
+        assertEquals(1, ruleOrdering.getRules(0)[1].getRuleId());
+        assertEquals(1, classUnderTest.performValidation(record, 101, failFastPlan).getValidationErrors().size());
+        assertEquals(2, classUnderTest.performValidation(record, 102, validationPlan).getValidationErrors().size());
+
+        File dataFile = new File("src/test/resources/data/Comma_5_Fields.txt");
+        ProcessingOptions options = new ProcessingOptions();
+        options.setFailFast(true);
+        options.setRuleOrderingSampleRecords(2);
+        classUnderTest.readFile(dataFile, configuration, true, options);
+        verifyResults(dataFile, false, 5, 0);
+    }
+
+    @Test
+    public void testAbandoningFileOverErrorBudget() throws IOException, ParserConfigurationException, SAXException {
+        File dataFile = temporaryFolder.newFile("Wrong_Delimiter.txt");
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            data.append("12345,2019-01-01,,1,\n");
+        }
+        Files.write(dataFile.toPath(), data.toString().getBytes(StandardCharsets.US_ASCII));
+        FileConfiguration configuration = fileConfigurationLoader.loadConfigurationFile(new File("src/test/resources/config/comma_5_fields.xml"));
+        configuration.setDelimiter("|");
+        configuration.setMaxBadRecords(3);
+        ProcessingOptions checkpointing = new ProcessingOptions();
+        checkpointing.setCheckpointEveryRecords(2);
+        assertEquals(4, classUnderTest.readFile(dataFile, configuration, true, checkpointing));
+
+        // Every line is malformed, so the fourth is one too many. The checkpoint is deleted so the file is not resumed with a fresh budget.
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(6)).publishEvent(eventCaptor.capture());
+        assertEquals(new FileAbortedProcessingEvent(dataFile, 4, 4, 0), eventCaptor.getAllValues().get(5));
+        assertFalse(new File(dataFile.getPath() + ".checkpoint").exists());
+
+        // An unterminated last line counts towards the budget as well.
+        reset(mockEventPublisher);
+        File truncatedFile = temporaryFolder.newFile("Wrong_Delimiter_Truncated.txt");
+        Files.write(truncatedFile.toPath(), data.substring(0, 4 * 21 - 1).getBytes(StandardCharsets.US_ASCII));
+        assertEquals(4, classUnderTest.readFile(truncatedFile, configuration, true, new ProcessingOptions()));
+        eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(6)).publishEvent(eventCaptor.capture());
+        assertEquals(new FileAbortedProcessingEvent(truncatedFile, 4, 4, 0), eventCaptor.getAllValues().get(5));
+
+        // The ratio is only checked once the warm up records have been read.
+        reset(mockEventPublisher);
+        configuration.setMaxBadRecords(0);
+        configuration.setMaxBadRecordRatio(0.5);
+        configuration.setErrorBudgetWarmupRecords(10);
+        assertEquals(10, classUnderTest.readFile(dataFile, configuration, true, new ProcessingOptions()));
+        eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(12)).publishEvent(eventCaptor.capture());
+        assertEquals(new FileAbortedProcessingEvent(dataFile, 10, 10, 0), eventCaptor.getAllValues().get(11));
+
+        // A file within its budget is read to the end.
+        reset(mockEventPublisher);
+        configuration.setDelimiter(",");
+        assertEquals(20, classUnderTest.readFile(dataFile, configuration, true, new ProcessingOptions()));
+        verify(mockEventPublisher, times(22)).publishEvent(eventCaptor.capture());
+    }
+
+    @Test
+    public void testValidatingUniqueValues() throws IOException, ParserConfigurationException, SAXException {
+        for (String metadata : new String[] { null, "exact", "10,exact" }) {
+            UniqueValidationRule unique = new UniqueValidationRule(metadata);
+            assertTrue(unique.validate("A", 1));
+            assertTrue(unique.validate("B", 2));
+            assertFalse(unique.validate("A", 3));
+            assertTrue(unique.validate("", 4));
+            assertTrue(unique.validate("", 5));
+            assertEquals(1, unique.getFirstOccurrence("A"));
+            assertEquals(-1, unique.getFirstOccurrence("C"));
+            // Enough keys to grow the table several times, each of which is still found afterwards.
+            for (int i = 0; i < 5000; i++) {
+                assertTrue(unique.validate("key" + i, 10 + i));
+            }
+            for (int i = 0; i < 5000; i++) {
+                assertFalse(unique.validate("key" + i, 10000 + i));
+            }
+            assertEquals(5002, unique.getSize());
+            assertEquals(4999 + 10, unique.getFirstOccurrence("key4999"));
+        }
+
+        File dataFile = temporaryFolder.newFile("Duplicate_Keys.txt");
+        Files.write(dataFile.toPath(), "12345,,,1,\n54321,,,2,\n12345,,,3,\n".getBytes(StandardCharsets.US_ASCII));
+        FileConfiguration configuration = fileConfigurationLoader.loadConfigurationFile(new File("src/test/resources/config/comma_5_fields.xml"));
+        configuration.getFileFields().get(0).addValidationRule(new ValidationRule(6, null, true));
+        classUnderTest.readFile(dataFile, configuration, true);
+
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(5)).publishEvent(eventCaptor.capture());
+        ValidationFailure failure = ((InvalidLineEvent) eventCaptor.getAllValues().get(3)).getRecordValidationResult().getValidationErrors().get(0);
+        assertEquals(6, failure.getRule().getRuleId());
+        assertEquals(3, failure.getLineNumber());
+        assertEquals(1, failure.getFirstOccurrenceLineNumber());
+
+        // A value is a duplicate whether or not the record it first occurred in failed fail fast before reaching the rule.
+        configuration.getFileFields().get(0).getValidationRules().remove(2);
+        configuration.getFileFields().get(3).addValidationRule(new ValidationRule(6, null, true));
+        String[] shortKey = {"1234", "", "", "7", ""};
+        String[] duplicate = {"12345", "", "", "7", ""};
+        for (ValidationPlan validationPlan : new ValidationPlan[] { ValidationPlan.compile(configuration, validationRules),
+        		ValidationPlan.compile(configuration, validationRules).failFast(0) }) {
+            assertEquals(2, classUnderTest.performValidation(shortKey, 1, validationPlan).getValidationErrors().get(0).getRule().getRuleId());
+            List<ValidationFailure> failures = classUnderTest.performValidation(duplicate, 2, validationPlan).getValidationErrors();
+            assertEquals(1, failures.size());
+            assertEquals(6, failures.get(0).getRule().getRuleId());
+            assertEquals(1, failures.get(0).getFirstOccurrenceLineNumber());
+        }
+    }
+
+    @Test
+    public void testConfigurationIsCachedUntilItChanges() throws IOException, ParserConfigurationException, SAXException {
+        File configurationFile = temporaryFolder.newFile("layout.xml");
+        byte[] commaLayout = Files.readAllBytes(new File("src/test/resources/config/comma_5_fields.xml").toPath());
+        Files.write(configurationFile.toPath(), commaLayout);
+        FileConfiguration configuration = fileConfigurationLoader.loadConfigurationFile(configurationFile);
+        assertEquals(",", configuration.getDelimiter());
+        assertEquals(5, configuration.getFileFields().size());
+        assertEquals("yyyy-MM-dd", configuration.getFileFields().get(1).getValidationRules().get(0).getMetadata());
+
+        // Changing the returned copy must not change what is cached.
+        configuration.setDelimiter(";");
+        assertEquals(",", fileConfigurationLoader.loadConfigurationFile(configurationFile).getDelimiter());
+        assertEquals(1, fileConfigurationLoader.getCacheStats().hitCount());
+
+        Files.write(configurationFile.toPath(), Files.readAllBytes(new File("src/test/resources/config/pipe_5_fields.xml").toPath()));
+        configurationFile.setLastModified(configurationFile.lastModified() + 2000);
+        assertEquals("|", fileConfigurationLoader.loadConfigurationFile(configurationFile).getDelimiter());
+    }
+
+    @Test
+    public void testResumingFromCheckpoint() throws IOException, ParserConfigurationException, SAXException {
+        File dataFile = temporaryFolder.newFile("Resumable.txt");
+        Files.copy(new File("src/test/resources/data/Comma_5_Fields.txt").toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        FileConfiguration configuration = fileConfigurationLoader.loadConfigurationFile(new File("src/test/resources/config/comma_5_fields.xml"));
+        ProcessingOptions options = new ProcessingOptions();
+        options.setCheckpointEveryRecords(2);
+        List<Long> validatedLines = new ArrayList<>();
+        // Fail while broadcasting line 4, after the checkpoint following line 2 was written.
+        classUnderTest.setEventPublisher(new ApplicationEventPublisher() {
+            @Override
+            public void publishEvent(ApplicationEvent event) {
+                publishEvent((Object) event);
+            }
+
+            @Override
+            public void publishEvent(Object event) {
+                if (event instanceof LineValidatedEvent) {
+                    long lineNumber = validatedLines.size() + 1;
+                    if (lineNumber == 4) {
+                        throw new IllegalStateException("Listener failed");
+                    }
+                    validatedLines.add(lineNumber);
+                }
+            }
+        });
+        try {
+            classUnderTest.readFile(dataFile, configuration, true, options);
+            fail("Expected the listener failure to stop processing");
+        }
+        catch (IllegalStateException ex) {
+            assertEquals(Arrays.asList(1L, 2L, 3L), validatedLines);
+        }
+        File checkpointFile = new File(dataFile.getPath() + ".checkpoint");
+        assertTrue(checkpointFile.exists());
+
+        // Line 3 was broadcasted after the last checkpoint, so it is the only line broadcasted again.
+        classUnderTest.setEventPublisher(mockEventPublisher);
+        assertEquals(5, classUnderTest.resume(dataFile, configuration, true, options));
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(5)).publishEvent(eventCaptor.capture());
+        assertTrue(((LineValidatedEvent) eventCaptor.getAllValues().get(1)).getOriginalLine().startsWith("abcde,,12345,1,"));
+        assertEquals(new FileCompletedProcessingEvent(dataFile, 5), eventCaptor.getAllValues().get(4));
+        assertFalse(checkpointFile.exists());
+    }
+
+    @Test
+    public void testFollowingFileUntilTrailer() throws Exception {
+        File dataFile = temporaryFolder.newFile("Growing.txt");
+        Files.write(dataFile.toPath(), "a,b\n".getBytes(StandardCharsets.US_ASCII));
+        ProcessingOptions options = new ProcessingOptions();
+        options.setFollowing(true);
+        options.setFollowPollMillis(10);
+        options.setFollowTrailerPrefix("TRL");
+        // A safety net so a broken end condition fails the test rather than hanging it.
+        options.setFollowIdleTimeoutMillis(5000);
+        FileConfiguration configuration = new FileConfiguration();
+        configuration.setDelimiter(",");
+        configuration.setExpectedNumberOfFields(2);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> recordsRead = executor.submit(() -> classUnderTest.readFile(dataFile, configuration, false, options));
+            // Append a complete line and the start of another, then the rest of it and the trailer.
+            Thread.sleep(50);
+            Files.write(dataFile.toPath(), "c,d\ne,".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+            Thread.sleep(50);
+            assertFalse(recordsRead.isDone());
+            Files.write(dataFile.toPath(), "f\nTRL,3\n".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+            assertEquals(3, recordsRead.get(10, TimeUnit.SECONDS).longValue());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(5)).publishEvent(eventCaptor.capture());
+        LineSplitEvent joinedLineEvent = (LineSplitEvent) eventCaptor.getAllValues().get(3);
+        assertEquals(3, joinedLineEvent.getLineNumber());
+        assertEquals("f", joinedLineEvent.getSplitLine().get()[1]);
+        assertEquals(new FileCompletedProcessingEvent(dataFile, 3), eventCaptor.getAllValues().get(4));
+    }
+
+    @Test
+    public void testProcessingGzipFiles() throws IOException {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            data.append(i).append(",line ").append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        byte[] bytes = data.toString().getBytes(StandardCharsets.US_ASCII);
+        File dataFile = temporaryFolder.newFile("Lines.txt");
+        Files.write(dataFile.toPath(), bytes);
+        File gzipFile = temporaryFolder.newFile("Lines.txt.gz");
+        try (GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(gzipFile))) {
+            out.write(bytes);
+        }
+        // Members of 1000 bytes, so that lines span members and there are many members to inflate at once.
+        File bgzfFile = temporaryFolder.newFile("Lines.txt.bgz");
+        try (FileOutputStream out = new FileOutputStream(bgzfFile)) {
+            for (int i = 0; i < bytes.length; i += 1000) {
+                writeBgzfMember(out, Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + 1000)));
+            }
+            writeBgzfMember(out, new byte[0]);
+        }
+
+        classUnderTest.readFile(dataFile, ",", 2);
+        List<Object> expectedEvents = captureLineEvents(2002);
+        classUnderTest.readFile(gzipFile, ",", 2);
+        assertEquals(expectedEvents, captureLineEvents(2002));
+        classUnderTest.readFile(bgzfFile, ",", 2);
+        assertEquals(expectedEvents, captureLineEvents(2002));
+        FileConfiguration configuration = new FileConfiguration();
+        configuration.setDelimiter(",");
+        configuration.setExpectedNumberOfFields(2);
+        classUnderTest.readFilePipelined(bgzfFile, configuration, false, 2);
+        assertEquals(expectedEvents, captureLineEvents(2002));
+    }
+
+    @Test
+    public void testProcessingQuotedFields() throws IOException {
+        File dataFile = temporaryFolder.newFile("Quoted.txt");
+        Files.write(dataFile.toPath(), ("1,\"a,b\",plain\r\n"
+            + "2,\"say \"\"hi\"\"\",x\n"
+            + "3,\"multi\r\nline\",y\n"
+            + "4,\"a\"b,c\n"
+            + "5,5'10\",z\n"
+            + "6,\"\",\n"
+            + "7,\"unterminated\n").getBytes(StandardCharsets.US_ASCII));
+        FileConfiguration configuration = new FileConfiguration();
+        configuration.setDelimiter(",");
+        configuration.setQuote("\"");
+        configuration.setExpectedNumberOfFields(3);
+        // Records 4 and 7 are malformed, so there is an event for each of the 7 records as well as the start and completion events.
+        List<Object> expectedEvents = Arrays.asList("1:[1, a,b, plain]", "2:[2, say \"hi\", x]", "3:[3, multi\r\nline, y]", "5:[5, 5'10\", z]", "6:[6, , ]");
+
+        classUnderTest.readFile(dataFile, configuration, false);
+        assertEquals(expectedEvents, captureLineEvents(9));
+        // Blocks smaller than a record, so that the quoted line break is split across reads.
+        classUnderTest.setPipelineBlockSize(8);
+        classUnderTest.readFilePipelined(dataFile, configuration, false, 2);
+        assertEquals(expectedEvents, captureLineEvents(9));
+        classUnderTest.readFileParallel(dataFile, configuration, false, true);
+        assertEquals(expectedEvents, captureLineEvents(9));
+    }
+
+    @Test
+    public void testProcessingFixedWidthFile() throws IOException, ParserConfigurationException, SAXException {
+        FileConfiguration configuration = fileConfigurationLoader.loadConfigurationFile(new File("src/test/resources/config/fixed_width_3_fields.xml"));
+        File dataFile = temporaryFolder.newFile("FixedWidth.txt");
+        // The second record has filler after its last field, and the last record is too short to hold every field.
+        Files.write(dataFile.toPath(), "001Bob  NY\n002AliceCA  filler\r\n003     TX\n04\n".getBytes(StandardCharsets.US_ASCII));
+        // Every record is malformed or split, as well as the start and completion events.
+        List<Object> expectedEvents = Arrays.asList("1:[001, Bob, NY]", "2:[002, Alice, CA]", "3:[003, , TX]");
+
+        classUnderTest.readFile(dataFile, configuration, false);
+        assertEquals(expectedEvents, captureLineEvents(6));
+
+        File fixedLengthFile = temporaryFolder.newFile("FixedLength.txt");
+        Files.write(fixedLengthFile.toPath(), "001Bob  NY002AliceCA003     TX04".getBytes(StandardCharsets.US_ASCII));
+        configuration.setRecordLength(10);
+        classUnderTest.readFile(fixedLengthFile, configuration, false);
+        assertEquals(expectedEvents, captureLineEvents(6));
+        classUnderTest.setPipelineBlockSize(8);
+        classUnderTest.readFilePipelined(fixedLengthFile, configuration, false, 2);
+        assertEquals(expectedEvents, captureLineEvents(6));
+        classUnderTest.setParallelChunkSize(16);
+        classUnderTest.readFileParallel(fixedLengthFile, configuration, false, true);
+        assertEquals(expectedEvents, captureLineEvents(6));
+    }
+
+    @Test
+    public void testProcessingFixedLengthRecordsLargerThanBuffer() throws IOException, ParserConfigurationException, SAXException {
+        FileConfiguration configuration = fileConfigurationLoader.loadConfigurationFile(new File("src/test/resources/config/fixed_width_3_fields.xml"));
+        configuration.setRecordLength(5000);
+        StringBuilder filler = new StringBuilder();
+        for (int i = 10; i < 5000; i++) {
+            filler.append(' ');
+        }
+        File dataFile = temporaryFolder.newFile("LongFixedLength.txt");
+        Files.write(dataFile.toPath(), ("001Bob  NY" + filler + "002AliceCA" + filler).getBytes(StandardCharsets.US_ASCII));
+        BufferPool bufferPool = new BufferPool();
+        classUnderTest.setBufferPool(bufferPool);
+
+        // Each record is longer than the 4KB buffer, so the buffer is made large enough to hold one.
+        classUnderTest.readFile(dataFile, configuration, false);
+        assertEquals(Arrays.asList("1:[001, Bob, NY]", "2:[002, Alice, CA]"), captureLineEvents(4));
+        assertEquals(0, bufferPool.getBytesInUse());
+    }
+
+    @Test
+    public void testProjectingFields() throws IOException, ParserConfigurationException, SAXException {
+        File dataFile = new File("src/test/resources/data/Comma_5_Fields.txt");
+        FileConfiguration configuration = fileConfigurationLoader.loadConfigurationFile(new File("src/test/resources/config/comma_5_fields.xml"));
+        configuration.setProjection(Arrays.asList(2));
+        classUnderTest.readFile(dataFile, configuration, false);
+        assertEquals(Arrays.asList("1:[null, 2018-06-08, null, null, null]", "2:[null, , null, null, null]", "3:[null, , null, null, null]",
+            "4:[null, 2018-06-08, null, null, null]", "5:[null, 2000-01-01, null, null, null]"), captureLineEvents(7));
+
+        // The fields after the projection are still counted.
+        File malformedFile = temporaryFolder.newFile("Malformed.txt");
+        Files.write(malformedFile.toPath(), "a,b,c,d,e,f\na,b\na,b,c,d,e\n".getBytes(StandardCharsets.US_ASCII));
+        classUnderTest.readFile(malformedFile, configuration, false);
+        assertEquals(Arrays.asList("3:[null, b, null, null, null]"), captureLineEvents(5));
+
+        // Fields with rules are decoded when validating, even though they are not projected.
+        classUnderTest.readFile(dataFile, configuration, true);
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(7)).publishEvent(eventCaptor.capture());
+        List<String[]> validatedLines = eventCaptor.getAllValues().stream()
+            .filter(event -> event instanceof LineValidatedEvent)
+            .map(event -> ((LineValidatedEvent) event).getValidatedLine())
+            .collect(Collectors.toList());
+        assertFalse(validatedLines.isEmpty());
+        for (String[] validatedLine : validatedLines) {
+            assertFalse(Arrays.asList(validatedLine).subList(0, 4).contains(null));
+            assertNull(validatedLine[4]);
+        }
+    }
+
+    @Test
+    public void testValidatingDatesWithoutParsing() {
+        // Each value is judged exactly as DateTimeFormatter judges it, which moves the 30th of February to the end of the month.
+        DateFormatValidationRule date = new DateFormatValidationRule("yyyy-MM-dd");
+        assertTrue(date.validate("2019-02-30"));
+        assertTrue(date.validate(""));
+        assertFalse(date.validate("2019-13-01"));
+        assertFalse(date.validate("2019-02-32"));
+        assertFalse(date.validate("0000-01-01"));
+        assertFalse(date.validate("2019-1-01"));
+        assertFalse(date.validate("2019/01/01"));
+        // Signed years are left to the formatter.
+        assertTrue(date.validate("+12019-01-01"));
+        assertFalse(date.validate("12019-01-01"));
+
+        DateFormatValidationRule time = new DateFormatValidationRule("HH:mm:ss");
+        assertTrue(time.validate("24:00:00"));
+        assertFalse(time.validate("24:00:01"));
+        assertFalse(time.validate("12:60:00"));
+        assertTrue(new DateFormatValidationRule("MM/dd/yyyy").validate("12/31/1999"));
+        assertTrue(new DateFormatValidationRule("yyyyMMdd").validate("19991231"));
+        assertFalse(new DateFormatValidationRule("yyyyMMdd").validate("1999123"));
+        // A pattern that cannot be compiled is still validated by the formatter.
+        assertTrue(new DateFormatValidationRule("d/M/uuuu").validate("8/6/2018"));
+        assertFalse(new DateFormatValidationRule("d/M/uuuu").validate("8/13/2018"));
+
+        // Epoch days are read from the same digits, and resolve as the formatter resolves them.
+        assertEquals(LocalDate.of(2019, 2, 28).toEpochDay(), date.toEpochDay("2019-02-30"));
+        assertEquals(LocalDate.of(2020, 2, 29).toEpochDay(), date.toEpochDay("2020-02-31"));
+        assertEquals(LocalDate.of(12019, 1, 1).toEpochDay(), date.toEpochDay("+12019-01-01"));
+        assertEquals(LocalDate.of(2000, 1, 1).toEpochDay(), new DateFormatValidationRule("yyyy-MM-dd HH:mm:ss").toEpochDay("1999-12-31 24:00:00"));
+        assertEquals(LocalDate.of(2018, 6, 8).toEpochDay(), new DateFormatValidationRule("d/M/uuuu").toEpochDay("8/6/2018"));
+    }
+
+    @Test
+    public void testSwarScannerMatchesByteLoop() {
+        ByteScanner expected = new ByteLoopScanner();
+        ByteScanner swar = new SwarByteScanner();
+        Random random = new Random(42);
+        byte[] bytes = new byte[67];
+        for (int i = 0; i < bytes.length; i++) {
+            // Mostly the bytes that are searched for, including 0x80 and 0xff to catch sign and borrow mistakes.
+            bytes[i] = (byte) new int[] { '\n', '\r', ',', 0, 0x80, 0xff, 'a' }[random.nextInt(7)];
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes);
+        List<ByteBuffer> buffers = Arrays.asList(ByteBuffer.wrap(bytes), ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN), direct,
+            direct.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+        for (ByteBuffer buf : buffers) {
+            for (byte target : new byte[] { '\n', '\r', ',', 0, (byte) 0x80, (byte) 0xff, '|' }) {
+                for (int from = 0; from < 20; from++) {
+                    for (int to = from; to <= bytes.length; to++) {
+                        assertEquals(expected.indexOf(buf, from, to, target), swar.indexOf(buf, from, to, target));
+                        assertEquals(expected.count(buf, from, to, target), swar.count(buf, from, to, target));
+                        for (int length : new int[] { 0, 3, bytes.length }) {
+                            int[] expectedIndexes = new int[length];
+                            int[] swarIndexes = new int[length];
+                            assertEquals(expected.indexesOf(buf, from, to, target, expectedIndexes), swar.indexesOf(buf, from, to, target, swarIndexes));
+                            assertTrue(Arrays.equals(expectedIndexes, swarIndexes));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Captures the events published since the last call and returns the split lines and line numbers of the line events, which
+     * do not depend on the name of the file.
+     */
+    private List<Object> captureLineEvents(int expectedEvents) {
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(expectedEvents)).publishEvent(eventCaptor.capture());
+        reset(mockEventPublisher);
+        return eventCaptor.getAllValues().stream()
+            .filter(event -> event instanceof LineSplitEvent)
+            .map(event -> ((LineSplitEvent) event).getLineNumber() + ":" + Arrays.toString(((LineSplitEvent) event).getSplitLine().get()))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Writes a single BGZF member: a gzip member whose header records its own compressed size in a "BC" extra field.
+     */
+    private void writeBgzfMember(OutputStream out, byte[] data) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] compressed = new byte[data.length + 64];
+        int compressedLength = deflater.deflate(compressed);
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ByteBuffer member = ByteBuffer.allocate(18 + compressedLength + 8).order(ByteOrder.LITTLE_ENDIAN);
+        member.put(new byte[] { 0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff });
+        member.putShort((short) 6).put((byte) 'B').put((byte) 'C').putShort((short) 2).putShort((short) (member.capacity() - 1));
+        member.put(compressed, 0, compressedLength);
+        member.putInt((int) crc.getValue()).putInt(data.length);
+        out.write(member.array());
+    }
+
+    private void verifyResults(File testFile, boolean containsHeader, int numberOfLines,
+            int numberOfLineMalformations) {
+        int totalEvents = numberOfLines + numberOfLineMalformations + 1 + 1;
+        FileStartedProcessingEvent event = new FileStartedProcessingEvent(testFile);
+        // Verify we sent out the file started processing event.
+        verify(mockEventPublisher).publishEvent(event);
+        // Capture all the times we triggered any type of event.
+        ArgumentCaptor<Object> lineSplitEventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockEventPublisher, times(totalEvents)).publishEvent(lineSplitEventCaptor.capture());
+
+        // Make sure we captured the correct number of events (# of Line splits + Number
+        // of Malformed Lines + 1 File Started Processing + 1 File Completed
+        // Processing).
+        assertEquals(totalEvents, lineSplitEventCaptor.getAllValues().size());
+        List<Object> capturedEvents = lineSplitEventCaptor.getAllValues();
+        int numLineSplitEvents = 0;
+        for (int i = 0; i < capturedEvents.size(); i++) {
+            if (capturedEvents.get(i) instanceof LineSplitEvent) {
+                numLineSplitEvents++;
+                // For this assertion, we need to simply add 1 to the number of line splits.
+                // This is because the first line in the sample file is malformed (Extra comma).
+                // This means that the first line split happens on line 2 of the file and not
+                // line 1. I thought it made more sense to do the increment here instead of
+                // initializing the
+                // variable to 1.
+                // The following assertion guarantees order of the line split events. This means
+                // we won't get a line split for Line 10 in a file before we get a Line split
+                // for Line 9.
+                if (!containsHeader) {
+                    assertEquals(numLineSplitEvents, ((LineSplitEvent) capturedEvents.get(i)).getLineNumber());
+                } else {
+                    assertEquals(numLineSplitEvents + 1, ((LineSplitEvent) capturedEvents.get(i)).getLineNumber());
+                }
+
+            } else if (capturedEvents.get(i) instanceof FileCompletedProcessingEvent) {
+                FileCompletedProcessingEvent fileCompletedProcessingEvent = new FileCompletedProcessingEvent(testFile,
+                        numberOfLines + numberOfLineMalformations);
+                assertEquals(fileCompletedProcessingEvent, capturedEvents.get(i));
+            }
+        }
+    }
+
+    /**
+     * A channel that counts the bytes read through it.
+     */
+    private static class CountingFileChannel extends FileChannel {
+
+        private final FileChannel channel;
+        private final AtomicLong bytesRead = new AtomicLong();
+
+        CountingFileChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long getBytesRead() {
+            return bytesRead.get();
+        }
+
+        private int counted(int read) {
+            bytesRead.addAndGet(Math.max(read, 0));
+            return read;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return counted(channel.read(dst));
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            long read = channel.read(dsts, offset, length);
+            bytesRead.addAndGet(Math.max(read, 0));
+            return read;
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return counted(channel.read(dst, position));
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return channel.write(srcs, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return channel.write(src, position);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            channel.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return channel.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return channel.transferFrom(src, position, count);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return channel.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return channel.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return channel.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            channel.close();
+        }
+    }
+}